@@ -0,0 +1,42 @@
+package nifi.processors.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line, e.g. a benchmark name regex, and runs the
+ * selected benchmarks twice: once for throughput in ops/s together with the allocation rate from the GC profiler,
+ * and once sampling single operations for the latency percentiles, p99 included.
+ * <p>
+ * {@code java -jar nifi-demo-benchmarks/target/benchmarks.jar [OnTrigger]}
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        final Options commandLine = new CommandLineOptions(args);
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .build()).run();
+    }
+}
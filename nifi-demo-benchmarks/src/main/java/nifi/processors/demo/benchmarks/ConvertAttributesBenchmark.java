@@ -0,0 +1,68 @@
+package nifi.processors.demo.benchmarks;
+
+import nifi.processors.demo.model.RequestBuilder;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning response headers into FlowFile attributes, without any I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertAttributesBenchmark {
+
+    @Param({"8", "64"})
+    public int headerCount;
+
+    /**
+     * Every header name appears this many times, so multi-valued headers have to be joined.
+     */
+    @Param({"1", "3"})
+    public int valuesPerHeader;
+
+    private URL url;
+    private Response response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        url = new URL("http://localhost/headers");
+
+        final Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url(url).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK");
+        for (int i = 0; i < headerCount; i++) {
+            for (int v = 0; v < valuesPerHeader; v++) {
+                builder.addHeader("X-Header-" + i, "value-" + i + "-" + v);
+            }
+        }
+        response = builder.build();
+    }
+
+    @Benchmark
+    public Map<String, String> convertAttributesFromHeaders() {
+        return RequestBuilder.convertAttributesFromHeaders(url, response);
+    }
+}
@@ -0,0 +1,81 @@
+package nifi.processors.demo.benchmarks;
+
+import nifi.processors.demo.MyProcessor;
+import nifi.processors.demo.properties.Descriptions;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bodiless GETs for FlowFiles with many attributes, so the time goes into matching the attributes against
+ * the "Attributes to Send" expression and copying the matches into request headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HeaderBenchmark {
+
+    @Param({"10", "100"})
+    public int attributeCount;
+
+    @Param({"", "header\\..*", ".*"})
+    public String attributesToSend;
+
+    private LocalHttpServer server;
+    private TestRunner runner;
+    private Map<String, String> attributes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new LocalHttpServer(new byte[0], Collections.emptyMap());
+        attributes = Payloads.attributes(attributeCount, "header.");
+
+        runner = TestRunners.newTestRunner(MyProcessor.class);
+        runner.setProperty(Descriptions.PROP_URL, server.url("/headers"));
+        runner.setProperty(Descriptions.PROP_METHOD, "GET");
+        runner.setProperty(Descriptions.PROP_USE_ETAG, "false");
+        if (!attributesToSend.isEmpty()) {
+            runner.setProperty(Descriptions.PROP_ATTRIBUTES_TO_SEND, attributesToSend);
+        }
+        runner.run(1, false, true);
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        server.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        runner.run(1, true, false);
+        server.close();
+    }
+
+    @Benchmark
+    public void sendAttributes() {
+        runner.enqueue(new byte[0], attributes);
+        runner.run(1, false, false);
+        runner.clearTransferState();
+        runner.clearProvenanceEvents();
+    }
+}
@@ -0,0 +1,56 @@
+package nifi.processors.demo.benchmarks;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process HTTP server that answers every request with the same canned response, so the benchmarks measure
+ * the processor rather than the network.
+ */
+final class LocalHttpServer implements AutoCloseable {
+
+    private final MockWebServer server = new MockWebServer();
+
+    LocalHttpServer(byte[] responseBody, Map<String, String> responseHeaders) throws IOException {
+        final MockResponse response = new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/octet-stream")
+                .setBody(new Buffer().write(responseBody));
+        responseHeaders.forEach(response::addHeader);
+
+        // request bodies are consumed but not retained, and every request gets a copy of the same response
+        server.setBodyLimit(0);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return response.clone();
+            }
+        });
+        server.start();
+    }
+
+    String url(String path) {
+        return server.url(path).toString();
+    }
+
+    /**
+     * The server keeps every request it receives; drop them between iterations so they don't skew the allocation rate.
+     */
+    void drain() throws InterruptedException {
+        while (server.takeRequest(0, TimeUnit.MILLISECONDS) != null) {
+            // discard
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
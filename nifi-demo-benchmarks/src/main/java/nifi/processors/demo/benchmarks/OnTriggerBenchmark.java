@@ -0,0 +1,91 @@
+package nifi.processors.demo.benchmarks;
+
+import nifi.processors.demo.MyProcessor;
+import nifi.processors.demo.properties.Descriptions;
+import nifi.processors.demo.properties.Relationships;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One FlowFile through {@link MyProcessor#onTrigger} per operation, with the response body written either
+ * to the content of the response FlowFile or to an attribute of the original one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OnTriggerBenchmark {
+
+    @Param({"128", "1048576"})
+    public int requestSize;
+
+    @Param({"4096"})
+    public int responseSize;
+
+    @Param({"content", "attribute"})
+    public String responseDestination;
+
+    private LocalHttpServer server;
+    private TestRunner runner;
+    private byte[] requestBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new LocalHttpServer(Payloads.text(responseSize), Collections.emptyMap());
+        requestBody = Payloads.bytes(requestSize);
+
+        runner = TestRunners.newTestRunner(MyProcessor.class);
+        runner.setProperty(Descriptions.PROP_URL, server.url("/bench"));
+        runner.setProperty(Descriptions.PROP_METHOD, "POST");
+        runner.setProperty(Descriptions.PROP_USE_ETAG, "false");
+        if ("attribute".equals(responseDestination)) {
+            runner.setProperty(Descriptions.PROP_PUT_OUTPUT_IN_ATTRIBUTE, "response.body");
+            runner.setProperty(Descriptions.PROP_PUT_ATTRIBUTE_MAX_LENGTH, String.valueOf(responseSize));
+        }
+
+        // schedule the processor once up front so onScheduled isn't part of the measurement
+        runner.run(1, false, true);
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        server.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        runner.run(1, true, false);
+        server.close();
+    }
+
+    @Benchmark
+    public int onTrigger() {
+        runner.enqueue(requestBody);
+        runner.run(1, false, false);
+
+        final int transferred = runner.getFlowFilesForRelationship(Relationships.REL_SUCCESS_REQ).size()
+                + runner.getFlowFilesForRelationship(Relationships.REL_RESPONSE).size();
+        runner.clearTransferState();
+        runner.clearProvenanceEvents();
+        return transferred;
+    }
+}
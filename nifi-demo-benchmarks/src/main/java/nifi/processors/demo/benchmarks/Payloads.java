@@ -0,0 +1,43 @@
+package nifi.processors.demo.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * Random bytes from a fixed seed, so every run sends the same content.
+     */
+    static byte[] bytes(int size) {
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Printable content for responses which end up in an attribute.
+     */
+    static byte[] text(int size) {
+        final byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        return bytes;
+    }
+
+    /**
+     * Half of the attributes start with the given prefix, the other half don't.
+     */
+    static Map<String, String> attributes(int count, String prefix) {
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String name = (i % 2 == 0 ? prefix : "other.") + i;
+            attributes.put(name, "value-" + i);
+        }
+        return attributes;
+    }
+}
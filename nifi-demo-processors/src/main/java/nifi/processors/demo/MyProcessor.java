@@ -16,46 +16,98 @@
  */
 package nifi.processors.demo;
 
+import nifi.processors.demo.balance.Endpoint;
+import nifi.processors.demo.balance.LoadBalancer;
+import nifi.processors.demo.breaker.CircuitBreaker;
+import nifi.processors.demo.bulk.BulkCollector;
+import nifi.processors.demo.bulk.BulkFormat;
+import nifi.processors.demo.bulk.BulkRequestBody;
+import nifi.processors.demo.bulk.BulkResponse;
+import nifi.processors.demo.cache.ResponseCache;
+import nifi.processors.demo.cache.ResponseSnapshot;
+import nifi.processors.demo.cache.SingleFlight;
+import nifi.processors.demo.compress.ContentCoding;
+import nifi.processors.demo.compress.DecodedResponseBody;
+import nifi.processors.demo.dns.CachingDns;
+import nifi.processors.demo.hedge.Hedger;
+import nifi.processors.demo.limit.AimdLimit;
+import nifi.processors.demo.limit.ConcurrencyLimiter;
+import nifi.processors.demo.limit.RateLimiter;
+import nifi.processors.demo.limit.VegasLimit;
+import nifi.processors.demo.metrics.CallTimings;
+import nifi.processors.demo.metrics.LatencyMetrics;
+import nifi.processors.demo.model.FlowFileRequestBody;
+import nifi.processors.demo.model.HttpExchange;
 import nifi.processors.demo.model.LoggerModel;
 import nifi.processors.demo.model.RequestBuilder;
-import nifi.processors.demo.util.SoftLimitBoundedByteArrayOutputStream;
+import nifi.processors.demo.model.RequestPlan;
+import nifi.processors.demo.record.RecordInvoker;
+import nifi.processors.demo.record.RecordRequests;
+import nifi.processors.demo.tls.SharedTlsContexts;
+import nifi.processors.demo.util.AttributeBufferPool;
+import nifi.processors.demo.util.SharedConnectionRegistry;
+import nifi.processors.demo.util.TeeInputStream;
+import nifi.processors.demo.util.VirtualThreads;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
 import nifi.processors.demo.properties.Descriptions;
 import nifi.processors.demo.properties.Relationships;
+import nifi.processors.demo.retry.RetryInterceptor;
+import nifi.processors.demo.retry.RetryPolicy;
 import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.PropertyValue;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.annotation.behavior.DynamicProperties;
+import org.apache.nifi.annotation.behavior.DynamicProperty;
 import org.apache.nifi.annotation.behavior.ReadsAttribute;
 import org.apache.nifi.annotation.behavior.ReadsAttributes;
 import org.apache.nifi.annotation.behavior.WritesAttribute;
 import org.apache.nifi.annotation.behavior.WritesAttributes;
 import org.apache.nifi.annotation.lifecycle.OnScheduled;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.SeeAlso;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.expression.AttributeExpression;
+import org.apache.nifi.expression.ExpressionLanguageScope;
 import org.apache.nifi.flowfile.attributes.CoreAttributes;
 import org.apache.nifi.logging.ComponentLog;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.AbstractProcessor;
+import org.apache.nifi.processor.DataUnit;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.ProcessorInitializationContext;
 import org.apache.nifi.processor.Relationship;
+import org.apache.nifi.processor.util.StandardValidators;
+import org.apache.nifi.serialization.RecordReaderFactory;
+import org.apache.nifi.serialization.RecordSetWriterFactory;
+import org.apache.nifi.ssl.SSLContextService;
 import org.apache.nifi.stream.io.StreamUtils;
 import org.apache.nifi.util.Tuple;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -67,6 +119,11 @@ import static org.apache.commons.lang3.StringUtils.trimToEmpty;
 @SeeAlso({})
 @ReadsAttributes({@ReadsAttribute(attribute="", description="")})
 @WritesAttributes({@WritesAttribute(attribute="", description="")})
+@DynamicProperties({
+        @DynamicProperty(name = "Header Name", value = "Attribute Expression Language", expressionLanguageScope = ExpressionLanguageScope.FLOWFILE_ATTRIBUTES,
+                description = "Sends a request header with the property's name and value."),
+        @DynamicProperty(name = Descriptions.FORM_FIELD_PREFIX + "<NAME>", value = "Attribute Expression Language", expressionLanguageScope = ExpressionLanguageScope.FLOWFILE_ATTRIBUTES,
+                description = "Sends a form field named <NAME> with the property's value when 'Request Multipart Form-Data Name' is set.")})
 public final class MyProcessor extends AbstractProcessor {
 
     private final AtomicReference<OkHttpClient> okHttpClientAtomicReference = new AtomicReference<>();
@@ -81,7 +138,35 @@ public final class MyProcessor extends AbstractProcessor {
 
     @Override
     public Set<Relationship> getRelationships() {
-        return Relationships.RELATIONSHIPS;
+        return relationships;
+    }
+
+    @Override
+    public void onPropertyModified(final PropertyDescriptor descriptor, final String oldValue, final String newValue) {
+        if (Descriptions.PROP_CIRCUIT_BREAKER.equals(descriptor)) {
+            relationships = Descriptions.CIRCUIT_BREAKER_CIRCUIT_OPEN.getValue().equals(newValue)
+                    ? Relationships.RELATIONSHIPS_WITH_CIRCUIT_OPEN : Relationships.RELATIONSHIPS;
+        } else if (descriptor.isDynamic()) {
+            final Set<String> names = new HashSet<>(dynamicPropertyNames);
+            if (newValue == null) {
+                names.remove(descriptor.getName());
+            } else {
+                names.add(descriptor.getName());
+            }
+            dynamicPropertyNames = Collections.unmodifiableSet(names);
+        }
+    }
+
+    @Override
+    protected PropertyDescriptor getSupportedDynamicPropertyDescriptor(final String propertyDescriptorName) {
+        return new PropertyDescriptor.Builder()
+                .name(propertyDescriptorName)
+                .required(false)
+                .addValidator(StandardValidators.createAttributeExpressionLanguageValidator(AttributeExpression.ResultType.STRING, true))
+                .addValidator(StandardValidators.ATTRIBUTE_KEY_PROPERTY_NAME_VALIDATOR)
+                .expressionLanguageSupported(ExpressionLanguageScope.FLOWFILE_ATTRIBUTES)
+                .dynamic(true)
+                .build();
     }
 
     @Override
@@ -89,8 +174,109 @@ public final class MyProcessor extends AbstractProcessor {
         return Descriptions.DESCRIPTORS;
     }
 
-    private volatile Pattern regexAttributesToSend = null;
-    private volatile boolean useChunked = false;
+    @Override
+    protected Collection<ValidationResult> customValidate(final ValidationContext context) {
+        final List<ValidationResult> results = new ArrayList<>();
+        if (context.getProperty(Descriptions.PROP_RECORD_READER).isSet() && !context.getProperty(Descriptions.PROP_RECORD_WRITER).isSet()) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_RECORD_WRITER.getDisplayName())
+                    .valid(false)
+                    .explanation("a Record Writer is required to write the results of the requests of a Record Reader's records")
+                    .build());
+        }
+        if (context.getProperty(Descriptions.PROP_RECORD_READER).isSet()
+                && !Descriptions.BULK_NONE.getValue().equals(context.getProperty(Descriptions.PROP_BULK_FORMAT).getValue())) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_BULK_FORMAT.getDisplayName())
+                    .valid(false)
+                    .explanation("records are sent one request each, they can't also be packed into bulk requests")
+                    .build());
+        }
+        if (context.getProperty(Descriptions.PROP_RECORD_READER).isSet() && context.getProperty(Descriptions.PROP_RATE_LIMIT).isSet()) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_RATE_LIMIT.getDisplayName())
+                    .valid(false)
+                    .explanation("the rate limit puts whole FlowFiles back on the queue, it can't throttle the requests of their records")
+                    .build());
+        }
+        if (context.getProperty(Descriptions.PROP_RECORD_READER).isSet()
+                && !Descriptions.LIMIT_NONE.getValue().equals(context.getProperty(Descriptions.PROP_CONCURRENCY_LIMIT).getValue())) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_CONCURRENCY_LIMIT.getDisplayName())
+                    .valid(false)
+                    .explanation("the concurrency limit puts whole FlowFiles back on the queue, it can't limit the requests of their records; "
+                            + "use Max In-Flight Requests instead")
+                    .build());
+        }
+        if (context.getProperty(Descriptions.PROP_FORM_BODY_NAME).isSet()
+                && (context.getProperty(Descriptions.PROP_RECORD_READER).isSet()
+                    || !Descriptions.BULK_NONE.getValue().equals(context.getProperty(Descriptions.PROP_BULK_FORMAT).getValue()))) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_FORM_BODY_NAME.getDisplayName())
+                    .valid(false)
+                    .explanation("a multipart/form-data request is built from a single FlowFile, not from records or bulk requests")
+                    .build());
+        }
+        final ContentCoding requestCompression = ContentCoding.of(context.getProperty(Descriptions.PROP_REQUEST_COMPRESSION).getValue());
+        final PropertyValue compressionLevel = context.getProperty(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL);
+        if (requestCompression != null && compressionLevel.isSet() && compressionLevel.asInteger() > requestCompression.getMaxLevel()) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL.getDisplayName())
+                    .valid(false)
+                    .explanation(requestCompression.getToken() + " compresses at levels 1 to " + requestCompression.getMaxLevel())
+                    .build());
+        }
+        if (context.getProperty(Descriptions.PROP_RETRY_MAX_ATTEMPTS).asInteger() > 1 && sendsOneShotBodies(context)) {
+            results.add(new ValidationResult.Builder()
+                    .subject(Descriptions.PROP_RETRY_MAX_ATTEMPTS.getDisplayName())
+                    .valid(false)
+                    .explanation("request bodies sent by the dispatcher, with a Batch Size greater than 1 or on virtual threads, are streamed "
+                            + "once and can't be retried; set Retry Max Attempts to 1 or send the requests one at a time on platform threads")
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Whether retryable requests with a body are written by a dispatcher thread, which streams their bodies only once.
+     */
+    private static boolean sendsOneShotBodies(final ValidationContext context) {
+        final boolean dispatched = context.getProperty(Descriptions.PROP_BATCH_SIZE).asInteger() > 1
+                || Descriptions.EXECUTION_VIRTUAL_THREADS.getValue().equals(context.getProperty(Descriptions.PROP_EXECUTION_MODE).getValue())
+                    && VirtualThreads.isSupported();
+        if (!dispatched || !context.getProperty(Descriptions.PROP_SEND_BODY).asBoolean()
+                || context.getProperty(Descriptions.PROP_RECORD_READER).isSet()
+                || !Descriptions.BULK_NONE.getValue().equals(context.getProperty(Descriptions.PROP_BULK_FORMAT).getValue())) {
+            return false;
+        }
+        final String method = context.getProperty(Descriptions.PROP_METHOD).getValue();
+        if (context.isExpressionLanguagePresent(method) || "PUT".equalsIgnoreCase(method)) {
+            return true;
+        }
+        return ("POST".equalsIgnoreCase(method) || "PATCH".equalsIgnoreCase(method))
+                && context.getProperty(Descriptions.PROP_RETRY_NON_IDEMPOTENT).asBoolean();
+    }
+
+    private volatile Set<Relationship> relationships = Relationships.RELATIONSHIPS;
+    private volatile RequestPlan requestPlan = null;
+    private volatile SharedConnectionRegistry.Lease connectionLease = null;
+    private volatile boolean handOffCalls = false;
+    private volatile ResponseCache responseCache = null;
+    private volatile SingleFlight singleFlight = null;
+    private volatile ConcurrencyLimiter concurrencyLimiter = null;
+    private volatile CircuitBreaker circuitBreaker = null;
+    private volatile Relationship circuitOpenRelationship = null;
+    private volatile RateLimiter rateLimiter = null;
+    private volatile Hedger hedger = null;
+    private volatile LoadBalancer loadBalancer = null;
+    private volatile CachingDns cachingDns = null;
+    private volatile SharedTlsContexts.Lease tlsLease = null;
+    private volatile RecordInvoker recordInvoker = null;
+    private volatile BulkFormat bulkFormat = null;
+    private volatile BulkCollector bulkCollector = null;
+    private volatile BulkResponse bulkResponse = null;
+    private final AttributeBufferPool attributeBufferPool = new AttributeBufferPool();
+    private final LatencyMetrics latencyMetrics = new LatencyMetrics();
     @OnScheduled
     public void onScheduled(final ProcessContext context) {
         okHttpClientAtomicReference.set(null);
@@ -101,56 +287,387 @@ public final class MyProcessor extends AbstractProcessor {
         // Set whether to follow redirects
         okHttpClientBuilder.followRedirects(context.getProperty(Descriptions.PROP_FOLLOW_REDIRECTS).asBoolean());
 
+        // In batch mode every concurrent task may have up to "Max In-Flight Requests" calls on the dispatcher,
+        // so unless told otherwise don't let OkHttp's default limits (64 total, 5 per host) queue them behind each other
+        final int maxInFlight = context.getProperty(Descriptions.PROP_MAX_IN_FLIGHT).asInteger() * context.getMaxConcurrentTasks();
+        final int maxRequests = context.getProperty(Descriptions.PROP_MAX_REQUESTS).isSet()
+                ? context.getProperty(Descriptions.PROP_MAX_REQUESTS).asInteger() : Math.max(64, maxInFlight);
+        final String httpProtocols = context.getProperty(Descriptions.PROP_HTTP_PROTOCOLS).getValue();
+        // the dispatcher's per-host limit applies to every host, so it is only lifted if none can fall back to HTTP/1.1
+        final boolean multiplexed = Descriptions.H2_PRIOR_KNOWLEDGE.getValue().equals(httpProtocols);
+        final int maxRequestsPerHost = context.getProperty(Descriptions.PROP_MAX_REQUESTS_PER_HOST).isSet()
+                ? context.getProperty(Descriptions.PROP_MAX_REQUESTS_PER_HOST).asInteger() : multiplexed ? maxRequests : Math.max(5, maxInFlight);
+        final boolean virtualThreads = Descriptions.EXECUTION_VIRTUAL_THREADS.getValue().equals(context.getProperty(Descriptions.PROP_EXECUTION_MODE).getValue());
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            getLogger().warn("Java {} has no virtual threads, requests are sent by platform threads", new Object[]{System.getProperty("java.version")});
+        }
+        final SharedConnectionRegistry.Settings connectionSettings = new SharedConnectionRegistry.Settings(
+                context.getProperty(Descriptions.PROP_MAX_IDLE_CONNECTIONS).asInteger(),
+                context.getProperty(Descriptions.PROP_KEEP_ALIVE_DURATION).asTimePeriod(TimeUnit.MILLISECONDS),
+                maxRequests,
+                maxRequestsPerHost,
+                virtualThreads && VirtualThreads.isSupported());
+        final SharedConnectionRegistry.Lease lease = context.getProperty(Descriptions.PROP_SHARE_CONNECTION_POOL).asBoolean()
+                ? SharedConnectionRegistry.acquire(connectionSettings) : SharedConnectionRegistry.createPrivate(connectionSettings);
+        connectionLease = lease;
+        handOffCalls = lease.isVirtualThreads();
+        okHttpClientBuilder.connectionPool(lease.getConnectionPool());
+        okHttpClientBuilder.dispatcher(lease.getDispatcher());
+
+        // Set the protocols; OkHttp's default is to negotiate HTTP/2 with ALPN
+        if (Descriptions.HTTP_1_1.getValue().equals(httpProtocols)) {
+            okHttpClientBuilder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        } else if (Descriptions.H2_PRIOR_KNOWLEDGE.getValue().equals(httpProtocols)) {
+            okHttpClientBuilder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        } else {
+            okHttpClientBuilder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        }
+
+        // Set the TLS context; it is shared with other processors using the same service so they resume each other's sessions
+        final SSLContextService sslService = context.getProperty(Descriptions.PROP_SSL_CONTEXT_SERVICE).asControllerService(SSLContextService.class);
+        if (sslService != null) {
+            final SharedTlsContexts.Settings tlsSettings = new SharedTlsContexts.Settings(
+                    sslService.getIdentifier(),
+                    context.getProperty(Descriptions.PROP_TLS_SESSION_CACHE_SIZE).asInteger(),
+                    context.getProperty(Descriptions.PROP_TLS_SESSION_TIMEOUT).asTimePeriod(TimeUnit.SECONDS).intValue());
+            try {
+                tlsLease = SharedTlsContexts.acquire(tlsSettings, sslService);
+            } catch (final IOException | GeneralSecurityException e) {
+                throw new ProcessException("Failed to create the TLS context of " + sslService.getIdentifier(), e);
+            }
+            okHttpClientBuilder.sslSocketFactory(tlsLease.getSocketFactory(), tlsLease.getTrustManager());
+        } else {
+            tlsLease = null;
+        }
+
+        final String tlsProtocols = context.getProperty(Descriptions.PROP_TLS_PROTOCOLS).getValue();
+        final String cipherSuites = context.getProperty(Descriptions.PROP_TLS_CIPHER_SUITES).getValue();
+        if (tlsProtocols != null || cipherSuites != null) {
+            final ConnectionSpec.Builder tlsSpec = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS);
+            if (tlsProtocols != null) {
+                tlsSpec.tlsVersions(Arrays.stream(tlsProtocols.split(",")).map(String::trim).toArray(String[]::new));
+            }
+            if (cipherSuites != null) {
+                tlsSpec.cipherSuites(Arrays.stream(cipherSuites.split(",")).map(String::trim).filter(c -> !c.isEmpty()).toArray(String[]::new));
+            }
+            okHttpClientBuilder.connectionSpecs(Arrays.asList(tlsSpec.build(), ConnectionSpec.CLEARTEXT));
+        }
+
+        // Set the ETag cache; OkHttp revalidates cached responses with conditional requests
+        if (context.getProperty(Descriptions.PROP_USE_ETAG).asBoolean()) {
+            final String cacheDirectory = context.getProperty(Descriptions.PROP_ETAG_CACHE_DIRECTORY).getValue();
+            final File directory = cacheDirectory != null
+                    ? new File(cacheDirectory)
+                    : new File(System.getProperty("java.io.tmpdir"), "invokehttp-etag-cache" + File.separator + getIdentifier());
+            final long maxCacheSizeBytes = context.getProperty(Descriptions.PROP_ETAG_MAX_CACHE_SIZE).asDataSize(DataUnit.B).longValue();
+            okHttpClientBuilder.cache(new Cache(directory, maxCacheSizeBytes));
+        }
+
+        if (context.getProperty(Descriptions.PROP_USE_RESPONSE_CACHE).asBoolean()) {
+            final String keyHeaders = context.getProperty(Descriptions.PROP_RESPONSE_CACHE_KEY_HEADERS).getValue();
+            responseCache = new ResponseCache(
+                    context.getProperty(Descriptions.PROP_RESPONSE_CACHE_TTL).asTimePeriod(TimeUnit.NANOSECONDS),
+                    context.getProperty(Descriptions.PROP_RESPONSE_CACHE_MAX_ENTRIES).asInteger(),
+                    context.getProperty(Descriptions.PROP_RESPONSE_CACHE_MAX_SIZE).asDataSize(DataUnit.B).longValue(),
+                    context.getProperty(Descriptions.PROP_RESPONSE_CACHE_MAX_ENTRY_SIZE).asDataSize(DataUnit.B).longValue(),
+                    keyHeaders == null ? null : Arrays.stream(keyHeaders.split(",")).map(String::trim).filter(h -> !h.isEmpty()).collect(Collectors.toList()));
+        } else {
+            responseCache = null;
+        }
+
+        singleFlight = context.getProperty(Descriptions.PROP_COALESCE_REQUESTS).asBoolean()
+                ? new SingleFlight(context.getProperty(Descriptions.PROP_COALESCE_MAX_SIZE).asDataSize(DataUnit.B).longValue()) : null;
+
+        final String limitAlgorithm = context.getProperty(Descriptions.PROP_CONCURRENCY_LIMIT).getValue();
+        final int initialLimit = context.getProperty(Descriptions.PROP_CONCURRENCY_LIMIT_INITIAL).asInteger();
+        final int maxLimit = context.getProperty(Descriptions.PROP_CONCURRENCY_LIMIT_MAX).asInteger();
+        if (Descriptions.LIMIT_AIMD.getValue().equals(limitAlgorithm)) {
+            concurrencyLimiter = new ConcurrencyLimiter(() -> new AimdLimit(initialLimit, 1, maxLimit));
+        } else if (Descriptions.LIMIT_VEGAS.getValue().equals(limitAlgorithm)) {
+            concurrencyLimiter = new ConcurrencyLimiter(() -> new VegasLimit(initialLimit, maxLimit));
+        } else {
+            concurrencyLimiter = null;
+        }
+
+        final boolean honorRateLimitHeaders = context.getProperty(Descriptions.PROP_HONOR_RATE_LIMIT_HEADERS).asBoolean();
+        if (context.getProperty(Descriptions.PROP_RATE_LIMIT).isSet() || honorRateLimitHeaders) {
+            final double rate = context.getProperty(Descriptions.PROP_RATE_LIMIT).isSet()
+                    ? Double.parseDouble(context.getProperty(Descriptions.PROP_RATE_LIMIT).getValue()) : 0;
+            rateLimiter = new RateLimiter(rate, context.getProperty(Descriptions.PROP_RATE_LIMIT_BURST).asInteger());
+        } else {
+            rateLimiter = null;
+        }
+
+        final String circuitBreakerRoute = context.getProperty(Descriptions.PROP_CIRCUIT_BREAKER).getValue();
+        if (Descriptions.CIRCUIT_BREAKER_DISABLED.getValue().equals(circuitBreakerRoute)) {
+            circuitBreaker = null;
+        } else {
+            circuitBreaker = new CircuitBreaker(
+                    context.getProperty(Descriptions.PROP_CIRCUIT_BREAKER_WINDOW_SIZE).asInteger(),
+                    context.getProperty(Descriptions.PROP_CIRCUIT_BREAKER_MINIMUM_REQUESTS).asInteger(),
+                    context.getProperty(Descriptions.PROP_CIRCUIT_BREAKER_FAILURE_RATE).asInteger(),
+                    context.getProperty(Descriptions.PROP_CIRCUIT_BREAKER_OPEN_DURATION).asTimePeriod(TimeUnit.NANOSECONDS),
+                    context.getProperty(Descriptions.PROP_CIRCUIT_BREAKER_PROBES).asInteger());
+            circuitOpenRelationship = Descriptions.CIRCUIT_BREAKER_CIRCUIT_OPEN.getValue().equals(circuitBreakerRoute)
+                    ? Relationships.REL_CIRCUIT_OPEN : Relationships.REL_RETRY;
+        }
+
+        final int retryMaxAttempts = context.getProperty(Descriptions.PROP_RETRY_MAX_ATTEMPTS).asInteger();
+        if (retryMaxAttempts > 1) {
+            final RetryPolicy retryPolicy = new RetryPolicy(
+                    retryMaxAttempts,
+                    context.getProperty(Descriptions.PROP_RETRY_INITIAL_BACKOFF).asTimePeriod(TimeUnit.NANOSECONDS),
+                    context.getProperty(Descriptions.PROP_RETRY_MAX_BACKOFF).asTimePeriod(TimeUnit.NANOSECONDS),
+                    Arrays.stream(context.getProperty(Descriptions.PROP_RETRY_STATUS_CODES).getValue().split(","))
+                            .map(String::trim).map(Integer::valueOf).collect(Collectors.toList()),
+                    Arrays.stream(context.getProperty(Descriptions.PROP_RETRY_EXCEPTIONS).getValue().split(","))
+                            .map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toList()),
+                    context.getProperty(Descriptions.PROP_RETRY_NON_IDEMPOTENT).asBoolean());
+            okHttpClientBuilder.addInterceptor(new RetryInterceptor(retryPolicy));
+        }
+
+        final Dns dns;
+        if (context.getProperty(Descriptions.PROP_DNS_CACHE).asBoolean()) {
+            final CachingDns caching = new CachingDns(Dns.SYSTEM,
+                    context.getProperty(Descriptions.PROP_DNS_CACHE_MIN_TTL).asTimePeriod(TimeUnit.NANOSECONDS),
+                    context.getProperty(Descriptions.PROP_DNS_CACHE_MAX_TTL).asTimePeriod(TimeUnit.NANOSECONDS),
+                    context.getProperty(Descriptions.PROP_DNS_CACHE_NEGATIVE_TTL).asTimePeriod(TimeUnit.NANOSECONDS),
+                    context.getProperty(Descriptions.PROP_DNS_CACHE_MAX_ENTRIES).asInteger());
+            // the host of a fixed Remote URL is resolved before the first FlowFile arrives
+            final PropertyValue remoteUrl = context.getProperty(Descriptions.PROP_URL);
+            if (!remoteUrl.isExpressionLanguagePresent()) {
+                try {
+                    caching.prefetch(new URL(trimToEmpty(remoteUrl.getValue())).getHost());
+                } catch (final MalformedURLException e) {
+                    getLogger().debug("Not prefetching the address of {}", new Object[]{remoteUrl.getValue()}, e);
+                }
+            }
+            cachingDns = caching;
+            dns = caching;
+        } else {
+            cachingDns = null;
+            dns = Dns.SYSTEM;
+        }
+        okHttpClientBuilder.dns(dns);
+
+        final LoadBalancer balancer;
+        if (context.getProperty(Descriptions.PROP_ENDPOINTS).isSet()) {
+            try {
+                balancer = new LoadBalancer(
+                        LoadBalancer.parse(context.getProperty(Descriptions.PROP_ENDPOINTS).getValue()),
+                        Descriptions.RESOLUTION_DNS.getValue().equals(context.getProperty(Descriptions.PROP_ENDPOINT_RESOLUTION).getValue()),
+                        dns,
+                        loadBalancingStrategy(context.getProperty(Descriptions.PROP_LOAD_BALANCING).getValue()),
+                        context.getProperty(Descriptions.PROP_OUTLIER_CONSECUTIVE_FAILURES).asInteger(),
+                        context.getProperty(Descriptions.PROP_OUTLIER_EJECTION_TIME).asTimePeriod(TimeUnit.NANOSECONDS));
+            } catch (final IOException e) {
+                throw new ProcessException("Failed to resolve the endpoints", e);
+            }
+        } else {
+            balancer = null;
+        }
+        loadBalancer = balancer;
+
+        final PropertyValue hedgeDelay = context.getProperty(Descriptions.PROP_HEDGE_DELAY);
+        final PropertyValue hedgePercentile = context.getProperty(Descriptions.PROP_HEDGE_PERCENTILE);
+        if (hedgeDelay.isSet() || hedgePercentile.isSet()) {
+            hedger = new Hedger(
+                    hedgeDelay.isSet() ? hedgeDelay.asTimePeriod(TimeUnit.NANOSECONDS) : -1,
+                    hedgePercentile.isSet() ? Double.parseDouble(hedgePercentile.getValue()) : -1,
+                    balancer == null ? UnaryOperator.identity() : request -> hedgeToOtherEndpoint(balancer, request));
+        } else {
+            hedger = null;
+        }
 
-        useChunked = context.getProperty(Descriptions.PROP_USE_CHUNKED_ENCODING).asBoolean();
+        // Requests carry their own CallTimings, which OkHttp then uses as the call's event listener
+        if (context.getProperty(Descriptions.PROP_RECORD_LATENCY).asBoolean()) {
+            okHttpClientBuilder.eventListenerFactory(CallTimings.FACTORY);
+            latencyMetrics.setReportInterval(context.getProperty(Descriptions.PROP_LATENCY_REPORT_INTERVAL).asTimePeriod(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        }
 
-        okHttpClientAtomicReference.set(okHttpClientBuilder.build());
+        for (String headerKey : dynamicPropertyNames) {
+            // don't include any of the excluded headers, log instead
+            if (excludedHeaders.containsKey(headerKey)) {
+                getLogger().warn(excludedHeaders.get(headerKey), new Object[]{headerKey});
+            }
+        }
+        requestPlan = RequestPlan.compile(context, dynamicPropertyNames, excludedHeaders);
+
+        final RecordReaderFactory recordReader = context.getProperty(Descriptions.PROP_RECORD_READER).asControllerService(RecordReaderFactory.class);
+        if (recordReader != null) {
+            final String responseHeaders = context.getProperty(Descriptions.PROP_RECORD_RESPONSE_HEADERS).getValue();
+            recordInvoker = new RecordInvoker(
+                    recordReader,
+                    context.getProperty(Descriptions.PROP_RECORD_WRITER).asControllerService(RecordSetWriterFactory.class),
+                    context.getProperty(Descriptions.PROP_RECORD_RESPONSE_READER).asControllerService(RecordReaderFactory.class),
+                    new RecordRequests(
+                            context.getProperty(Descriptions.PROP_RECORD_URL_PATH).getValue(),
+                            context.getProperty(Descriptions.PROP_RECORD_METHOD_PATH).getValue(),
+                            context.getProperty(Descriptions.PROP_RECORD_HEADERS_PATH).getValue(),
+                            context.getProperty(Descriptions.PROP_RECORD_BODY_PATH).getValue()),
+                    context.getProperty(Descriptions.PROP_RECORD_RESULT_FIELD).getValue(),
+                    responseHeaders == null ? Collections.emptyList()
+                            : Arrays.stream(responseHeaders.split(",")).map(String::trim).filter(h -> !h.isEmpty()).collect(Collectors.toList()),
+                    requestPlan.getAcceptEncodings(),
+                    context.getProperty(Descriptions.PROP_MAX_IN_FLIGHT).asInteger(),
+                    balancer,
+                    circuitBreaker,
+                    getLogger());
+        } else {
+            recordInvoker = null;
+        }
+
+        bulkFormat = BulkFormat.of(context.getProperty(Descriptions.PROP_BULK_FORMAT).getValue());
+        if (bulkFormat != null) {
+            bulkResponse = new BulkResponse(
+                    context.getProperty(Descriptions.PROP_BULK_ITEMS_PATH).getValue(),
+                    context.getProperty(Descriptions.PROP_BULK_ID_PATH).getValue(),
+                    context.getProperty(Descriptions.PROP_BULK_STATUS_PATH).getValue(),
+                    context.getProperty(Descriptions.PROP_BULK_MAX_RESPONSE_SIZE).asDataSize(DataUnit.B).longValue());
+            bulkCollector = new BulkCollector(
+                    context.getProperty(Descriptions.PROP_BULK_MAX_FLOWFILES).asInteger(),
+                    context.getProperty(Descriptions.PROP_BULK_MAX_SIZE).asDataSize(DataUnit.B).longValue(),
+                    context.getProperty(Descriptions.PROP_BULK_MAX_WAIT).asTimePeriod(TimeUnit.NANOSECONDS));
+        } else {
+            bulkResponse = null;
+            bulkCollector = null;
+        }
+
+        final OkHttpClient okHttpClient = okHttpClientBuilder.build();
+        if (balancer != null) {
+            balancer.start(okHttpClient,
+                    context.getProperty(Descriptions.PROP_HEALTH_CHECK_PATH).getValue(),
+                    context.getProperty(Descriptions.PROP_HEALTH_CHECK_INTERVAL).asTimePeriod(TimeUnit.NANOSECONDS),
+                    getLogger());
+        }
+        okHttpClientAtomicReference.set(okHttpClient);
     }
 
-    private Request configureRequest(final ProcessContext context, final ProcessSession session, final FlowFile requestFlowFile, URL url) {
-        Request.Builder requestBuilder = new Request.Builder();
+    private static LoadBalancer.Strategy loadBalancingStrategy(final String value) {
+        if (Descriptions.BALANCE_ROUND_ROBIN.getValue().equals(value)) {
+            return LoadBalancer.Strategy.ROUND_ROBIN;
+        } else if (Descriptions.BALANCE_LEAST_OUTSTANDING.getValue().equals(value)) {
+            return LoadBalancer.Strategy.LEAST_OUTSTANDING;
+        }
+        return LoadBalancer.Strategy.POWER_OF_TWO_CHOICES;
+    }
 
-        requestBuilder = requestBuilder.url(url);
-        final String authUser = trimToEmpty(context.getProperty(Descriptions.PROP_BASIC_AUTH_USERNAME).getValue());
+    /**
+     * Sends the hedge of a request to another endpoint than the original, if there is one. The hedge carries the
+     * selection of its endpoint, which is released like the original's once the exchange is done.
+     */
+    private static Request hedgeToOtherEndpoint(final LoadBalancer balancer, final Request request) {
+        final Endpoint current = request.tag(Endpoint.class);
+        final LoadBalancer.Selection other = current == null ? null : balancer.selectOther(current);
+        if (other == null) {
+            return request;
+        }
+        try {
+            return request.newBuilder()
+                    .url(other.getEndpoint().resolve(request.url().url()))
+                    .tag(Endpoint.class, other.getEndpoint())
+                    .tag(LoadBalancer.Selection.class, other)
+                    .build();
+        } catch (final MalformedURLException e) {
+            other.release();
+            return request;
+        }
+    }
+
+    @OnStopped
+    public void onStopped() {
+        final OkHttpClient okHttpClient = okHttpClientAtomicReference.getAndSet(null);
+        if (okHttpClient != null && okHttpClient.cache() != null) {
+            try {
+                okHttpClient.cache().close();
+            } catch (final IOException e) {
+                getLogger().warn("Failed to close the ETag cache", e);
+            }
+        }
+        responseCache = null;
+        singleFlight = null;
+        recordInvoker = null;
+        bulkCollector = null;
+        bulkResponse = null;
+        concurrencyLimiter = null;
+        circuitBreaker = null;
+        rateLimiter = null;
+        final Hedger hedging = hedger;
+        hedger = null;
+        if (hedging != null) {
+            hedging.shutdown();
+        }
+        final LoadBalancer balancer = loadBalancer;
+        loadBalancer = null;
+        if (balancer != null) {
+            balancer.shutdown();
+        }
+        final CachingDns caching = cachingDns;
+        cachingDns = null;
+        if (caching != null) {
+            caching.shutdown();
+        }
+        final SharedTlsContexts.Lease tls = tlsLease;
+        tlsLease = null;
+        if (tls != null) {
+            SharedTlsContexts.release(tls);
+        }
+        final SharedConnectionRegistry.Lease lease = connectionLease;
+        connectionLease = null;
+        if (lease != null) {
+            SharedConnectionRegistry.release(lease);
+        }
+    }
 
-        // If the username/password properties are set then check if digest auth is being used
-        if (!authUser.isEmpty() && "false".equalsIgnoreCase(context.getProperty(Descriptions.PROP_DIGEST_AUTH).getValue())) {
-            final String authPass = trimToEmpty(context.getProperty(Descriptions.PROP_BASIC_AUTH_PASSWORD).getValue());
+    private Request configureRequest(final ProcessContext context, final ProcessSession session, final RequestPlan plan, final FlowFile requestFlowFile, URL url,
+                                     final boolean dispatched) {
+        Request.Builder requestBuilder = new Request.Builder();
 
-            String credential = Credentials.basic(authUser, authPass);
-            requestBuilder = requestBuilder.header("UserName", authUser );
-            requestBuilder = requestBuilder.header("PassWord", authPass );
+        requestBuilder = requestBuilder.url(url);
+        requestBuilder = requestBuilder.headers(plan.getConstantHeaders());
+        if (plan.isRecordLatency()) {
+            requestBuilder = requestBuilder.tag(CallTimings.class, new CallTimings(latencyMetrics, url.getHost()));
+        }
+        if (plan.isRetry()) {
+            requestBuilder = requestBuilder.tag(RetryInterceptor.Attempts.class, new RetryInterceptor.Attempts());
         }
 
         // set the request method
-        String method = trimToEmpty(context.getProperty(Descriptions.PROP_METHOD).evaluateAttributeExpressions(requestFlowFile).getValue()).toUpperCase();
-        switch (method) {
-            case "GET":
-                requestBuilder = requestBuilder.get();
-                break;
-            case "POST":
-                RequestBody requestBody = RequestBuilder.getRequestBodyToSend(session, context, requestFlowFile,useChunked);
-                requestBuilder = requestBuilder.post(requestBody);
-                break;
-            case "PUT":
-                requestBody = RequestBuilder.getRequestBodyToSend(session, context, requestFlowFile,useChunked);
-                requestBuilder = requestBuilder.put(requestBody);
-                break;
-            case "PATCH":
-                requestBody = RequestBuilder.getRequestBodyToSend(session, context, requestFlowFile,useChunked);
-                requestBuilder = requestBuilder.patch(requestBody);
-                break;
-            case "HEAD":
-                requestBuilder = requestBuilder.head();
-                break;
-            case "DELETE":
-                requestBuilder = requestBuilder.delete();
-                break;
-            default:
-                requestBuilder = requestBuilder.method(method, null);
-        }
-
-        requestBuilder = setHeaderProperties(context, requestBuilder, requestFlowFile);
+        final String method = plan.method(requestFlowFile);
+        final RequestPlan.Method knownMethod = RequestPlan.Method.of(method);
+        RequestBody requestBody = null;
+        if (knownMethod == null) {
+            requestBuilder = requestBuilder.method(method, null);
+        } else {
+            switch (knownMethod) {
+                case GET:
+                    requestBuilder = requestBuilder.get();
+                    break;
+                case POST:
+                    requestBody = RequestBuilder.getRequestBodyToSend(session, plan, requestFlowFile, dispatched);
+                    requestBuilder = requestBuilder.post(requestBody);
+                    break;
+                case PUT:
+                    requestBody = RequestBuilder.getRequestBodyToSend(session, plan, requestFlowFile, dispatched);
+                    requestBuilder = requestBuilder.put(requestBody);
+                    break;
+                case PATCH:
+                    requestBody = RequestBuilder.getRequestBodyToSend(session, plan, requestFlowFile, dispatched);
+                    requestBuilder = requestBuilder.patch(requestBody);
+                    break;
+                case HEAD:
+                    requestBuilder = requestBuilder.head();
+                    break;
+                case DELETE:
+                    requestBuilder = requestBuilder.delete();
+                    break;
+            }
+        }
+        if (requestBody instanceof FlowFileRequestBody && ((FlowFileRequestBody) requestBody).getContentCoding() != null) {
+            requestBuilder = requestBuilder.header("Content-Encoding", ((FlowFileRequestBody) requestBody).getContentCoding().getToken());
+        }
+
+        requestBuilder = setHeaderProperties(context, plan, requestBuilder, requestFlowFile);
 
         return requestBuilder.build();
     }
@@ -159,57 +676,835 @@ public final class MyProcessor extends AbstractProcessor {
     @Override
     public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
         OkHttpClient okHttpClient = okHttpClientAtomicReference.get();
-        FlowFile requestFlowFile = session.get();
+        final RequestPlan plan = requestPlan;
+        if (plan.isRecordLatency()) {
+            latencyMetrics.reportIfDue(session, getLogger());
+        }
+        final CachingDns caching = cachingDns;
+        if (caching != null) {
+            caching.publish(session);
+        }
+        final SharedTlsContexts.Lease tls = tlsLease;
+        if (tls != null) {
+            tls.getSocketFactory().publish(session);
+        }
+        final RecordInvoker records = recordInvoker;
+        if (records != null) {
+            final FlowFile flowFile = session.get();
+            if (flowFile != null) {
+                invokeRecords(context, session, plan, records, okHttpClient, flowFile);
+            }
+            return;
+        }
 
-        // Checking to see if the property to put the body of the response in an attribute was set
-        boolean putToAttribute = context.getProperty(Descriptions.PROP_PUT_OUTPUT_IN_ATTRIBUTE).isSet();
-        if (requestFlowFile == null) {
-            if(context.hasNonLoopConnection()){
-                return;
+        final BulkCollector collector = bulkCollector;
+        if (collector != null) {
+            final List<FlowFile> flowFiles = collector.collect(session);
+            for (Iterator<FlowFile> it = flowFiles.iterator(); it.hasNext(); ) {
+                final FlowFile flowFile = it.next();
+                if (!BulkRequestBody.canFrame(flowFile, bulkFormat)) {
+                    it.remove();
+                    handleFailure(context, session, flowFile, null,
+                            new IllegalArgumentException("An empty FlowFile can't be sent in a " + bulkFormat.getValue() + " bulk request"));
+                }
             }
+            if (!flowFiles.isEmpty()) {
+                invokeBulk(context, session, plan, okHttpClient, flowFiles);
+            }
+            return;
+        }
 
-            String request = context.getProperty(Descriptions.PROP_METHOD).evaluateAttributeExpressions().getValue().toUpperCase();
-            if ("POST".equals(request) || "PUT".equals(request) || "PATCH".equals(request)) {
-                return;
-            } else if (putToAttribute) {
-                requestFlowFile = session.create();
+        final int batchSize = context.getProperty(Descriptions.PROP_BATCH_SIZE).asInteger();
+        List<FlowFile> requestFlowFiles = batchSize > 1 ? session.get(batchSize) : null;
+        FlowFile requestFlowFile = requestFlowFiles == null ? session.get() : null;
+
+        // Checking to see if the property to put the body of the response in an attribute was set
+        boolean putToAttribute = plan.isPutToAttribute();
+        if (requestFlowFiles == null || requestFlowFiles.isEmpty()) {
+            if (requestFlowFile == null) {
+                if(context.hasNonLoopConnection()){
+                    return;
+                }
+
+                String request = plan.method(null);
+                if ("POST".equals(request) || "PUT".equals(request) || "PATCH".equals(request)) {
+                    return;
+                } else if (putToAttribute) {
+                    requestFlowFile = session.create();
+                }
             }
+            requestFlowFiles = Collections.singletonList(requestFlowFile);
         }
 
-        // Setting some initial variables
-        final int maxAttributeSize = context.getProperty(Descriptions.PROP_PUT_ATTRIBUTE_MAX_LENGTH).asInteger();
         final ComponentLog logger = getLogger();
 
         // log ETag cache metrics
-        final boolean eTagEnabled = context.getProperty(Descriptions.PROP_USE_ETAG).asBoolean();
+        final boolean eTagEnabled = plan.isUseEtag();
         if(eTagEnabled && logger.isDebugEnabled()) {
             final Cache cache = okHttpClient.cache();
             logger.debug("OkHttp ETag cache metrics :: Request Count: {} | Network Count: {} | Hit Count: {}",
                     new Object[] {cache.requestCount(), cache.networkCount(), cache.hitCount()});
         }
 
-        // Every request/response cycle has a unique transaction id which will be stored as a flowfile attribute.
-        final UUID txId = UUID.randomUUID();
+        // whether the calls are sent by the dispatcher is decided before their bodies are built, since bodies written
+        // by a dispatcher thread are one-shot; on virtual threads even a single call is sent by the dispatcher
+        final boolean dispatched = handOffCalls || requestFlowFiles.size() > 1;
+        final List<HttpExchange> exchanges = new ArrayList<>(requestFlowFiles.size());
+        for (FlowFile flowFile : requestFlowFiles) {
+            final HttpExchange exchange = prepareExchange(context, session, plan, flowFile, dispatched);
+            if (exchange != null) {
+                exchanges.add(exchange);
+            }
+        }
 
-        FlowFile responseFlowFile = null;
+        // answer what we can from the response cache, the rest goes to the network
+        final List<HttpExchange> outstanding = new ArrayList<>(exchanges.size());
+        for (HttpExchange exchange : exchanges) {
+            if (lookupCachedResponse(session, exchange)) {
+                reportSend(session, exchange);
+                processExchange(context, session, plan, exchange);
+            } else {
+                outstanding.add(exchange);
+            }
+        }
+
+        breakCircuits(context, session, outstanding);
+        admit(context, session, outstanding);
+        throttle(context, session, outstanding);
+        outstanding.forEach(exchange -> reportSend(session, exchange));
+
+        if (!dispatched && outstanding.size() == 1) {
+            final HttpExchange exchange = outstanding.get(0);
+            execute(okHttpClient, session, exchange);
+            processExchange(context, session, plan, exchange);
+        } else if (!outstanding.isEmpty()) {
+            executeAsync(okHttpClient, context, session, plan, outstanding);
+        }
+    }
+
+    /**
+     * Sends one request per record of the FlowFile. The records go to Response or Failure with the results of their
+     * requests, the FlowFile itself to Original, or to Failure if its records couldn't be read or written.
+     */
+    private void invokeRecords(final ProcessContext context, final ProcessSession session, final RequestPlan plan, final RecordInvoker records,
+                               final OkHttpClient okHttpClient, final FlowFile requestFlowFile) {
+        final long startNanos = System.nanoTime();
+        try {
+            final URL url = new URL(trimToEmpty(context.getProperty(Descriptions.PROP_URL).evaluateAttributeExpressions(requestFlowFile).getValue()));
+            // the headers from properties and attributes are the same for every record, so they are evaluated once
+            final Headers headers = setHeaderProperties(context, plan, new Request.Builder().url(url).headers(plan.getConstantHeaders()), requestFlowFile)
+                    .build().headers();
+            final RecordInvoker.Result result = records.invoke(okHttpClient, session, requestFlowFile, url, plan.method(requestFlowFile), headers,
+                    plan.contentType(requestFlowFile));
+
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (result.getSucceeded() != null) {
+                session.getProvenanceReporter().fetch(result.getSucceeded(), url.toExternalForm(), millis);
+                session.transfer(result.getSucceeded(), Relationships.REL_RESPONSE);
+            }
+            if (result.getFailed() != null) {
+                session.transfer(result.getFailed(), Relationships.REL_FAILURE);
+            }
+            session.transfer(requestFlowFile, Relationships.REL_SUCCESS_REQ);
+        } catch (final Exception e) {
+            handleFailure(context, session, requestFlowFile, null, e);
+        }
+    }
+
+    /**
+     * Sends the FlowFiles as one bulk request, through the same gates as any other request, and routes each of them
+     * by its item of the response.
+     */
+    private void invokeBulk(final ProcessContext context, final ProcessSession session, final RequestPlan plan, final OkHttpClient okHttpClient,
+                            final List<FlowFile> flowFiles) {
+        final HttpExchange exchange = prepareBulkExchange(context, session, plan, flowFiles);
+        if (exchange == null) {
+            return;
+        }
+
+        final List<HttpExchange> outstanding = new ArrayList<>(Collections.singletonList(exchange));
+        breakCircuits(context, session, outstanding);
+        admit(context, session, outstanding);
+        throttle(context, session, outstanding);
+        if (outstanding.isEmpty()) {
+            return;
+        }
+        reportSend(session, exchange);
+        execute(okHttpClient, session, exchange);
+        processBulkExchange(context, session, plan, exchange);
+    }
+
+    /**
+     * Builds the bulk request for the FlowFiles. The Remote URL, the method and the headers are evaluated against the
+     * first of them. Returns null if the request could not be built, in which case all of them have been routed to failure.
+     */
+    private HttpExchange prepareBulkExchange(final ProcessContext context, final ProcessSession session, final RequestPlan plan,
+                                             final List<FlowFile> flowFiles) {
+        final FlowFile first = flowFiles.get(0);
+        LoadBalancer.Selection selection = null;
+        try {
+            URL url = new URL(trimToEmpty(context.getProperty(Descriptions.PROP_URL).evaluateAttributeExpressions(first).getValue()));
+            final LoadBalancer balancer = loadBalancer;
+            if (balancer != null) {
+                selection = balancer.select();
+                url = selection.getEndpoint().resolve(url);
+            }
+
+            Request.Builder requestBuilder = new Request.Builder()
+                    .url(url)
+                    .headers(plan.getConstantHeaders())
+                    .method(plan.method(first), BulkRequestBody.create(session, plan, flowFiles, bulkFormat));
+            if (plan.isRecordLatency()) {
+                requestBuilder = requestBuilder.tag(CallTimings.class, new CallTimings(latencyMetrics, url.getHost()));
+            }
+            if (plan.isRetry()) {
+                requestBuilder = requestBuilder.tag(RetryInterceptor.Attempts.class, new RetryInterceptor.Attempts());
+            }
+            requestBuilder = setHeaderProperties(context, plan, requestBuilder, first);
+            if (selection != null) {
+                requestBuilder = requestBuilder.tag(Endpoint.class, selection.getEndpoint());
+            }
+            final Request httpRequest = requestBuilder.build();
+            LoggerModel.logRequest(getLogger(), httpRequest);
+
+            final HttpExchange exchange = new HttpExchange(flowFiles, url, httpRequest);
+            exchange.setSelection(selection);
+            return exchange;
+        } catch (final Exception e) {
+            if (selection != null) {
+                selection.release();
+            }
+            for (FlowFile flowFile : flowFiles) {
+                handleFailure(context, session, flowFile, null, e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Splits the response of a bulk request into the items of its FlowFiles and routes each FlowFile by the status of
+     * its item, with the item as its response. If the request failed as a whole, all FlowFiles are routed by its status.
+     */
+    private void processBulkExchange(final ProcessContext context, final ProcessSession session, final RequestPlan plan, final HttpExchange exchange) {
+        final List<FlowFile> flowFiles = exchange.getRequestFlowFiles();
+        exchange.releaseSelections();
+        try {
+            exchange.closeRequestBody();
+        } catch (final IOException e) {
+            getLogger().warn("Failed to close the contents of {} after sending them", new Object[]{flowFiles}, e);
+        }
+        final RetryInterceptor.Attempts attempts = exchange.getRequest().tag(RetryInterceptor.Attempts.class);
+        if (exchange.getFailure() != null) {
+            for (FlowFile flowFile : flowFiles) {
+                if (attempts != null) {
+                    flowFile = session.putAttribute(flowFile, RETRY_COUNT, String.valueOf(attempts.getRetries()));
+                }
+                handleFailure(context, session, flowFile, null, exchange.getFailure());
+            }
+            return;
+        }
+
+        final URL url = exchange.getUrl();
+        final BulkResponse bulk = bulkResponse;
+        final Response responseHttp = plan.getAcceptEncodings().isEmpty()
+                ? exchange.getResponse() : DecodedResponseBody.decode(exchange.getResponse(), plan.getAcceptEncodings());
+        final int statusCode = responseHttp.code();
+        final MediaType contentType;
+        final String body;
+        try {
+            LoggerModel.logResponse(getLogger(), url, responseHttp);
+            final ResponseBody responseBody = responseHttp.body();
+            contentType = responseBody == null ? null : responseBody.contentType();
+            body = responseBody == null || plan.isIgnoreResponseContent() ? "" : bulk.read(responseBody);
+        } catch (final IOException e) {
+            for (FlowFile flowFile : flowFiles) {
+                handleFailure(context, session, flowFile, null, e);
+            }
+            return;
+        } finally {
+            responseHttp.close();
+        }
+
+        final RateLimiter limiter = rateLimiter;
+        if (limiter != null && plan.isHonorRateLimitHeaders() && exchange.getRateLimitKey() != null) {
+            final long backoffNanos = RateLimiter.backoffNanos(statusCode, responseHttp.headers(), System.currentTimeMillis());
+            if (backoffNanos > 0) {
+                limiter.pause(exchange.getRateLimitKey(), backoffNanos);
+                session.adjustCounter("Rate Limit Pauses", 1, false);
+            }
+        }
+
+        final Map<String, String> statusAttributes = new HashMap<>();
+        statusAttributes.put(STATUS_MESSAGE, responseHttp.message());
+        statusAttributes.put(REQUEST_URL, url.toExternalForm());
+        statusAttributes.put(TRANSACTION_ID, exchange.getTxId().toString());
+        statusAttributes.put(BULK_SIZE, String.valueOf(flowFiles.size()));
+        if (attempts != null) {
+            statusAttributes.put(RETRY_COUNT, String.valueOf(attempts.getRetries()));
+        }
+        if (exchange.getCircuitPermit() != null) {
+            statusAttributes.put(CIRCUIT_STATE, exchange.getCircuitPermit().getState().getValue());
+        }
+
+        // only a successful response has an item per FlowFile, any other one applies to all of them
+        List<Object> items = null;
+        if (isSuccess(statusCode) && !plan.isIgnoreResponseContent()) {
+            try {
+                items = bulk.correlate(bulk.items(body, contentType), flowFiles.size(), bulk.isCorrelatedById() ? readBulkIds(session, bulk, flowFiles) : null);
+            } catch (final Exception e) {
+                for (FlowFile flowFile : flowFiles) {
+                    handleFailure(context, session, session.putAllAttributes(flowFile, statusAttributes), null, e);
+                }
+                return;
+            }
+        }
+
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - exchange.getStartNanos());
+        for (int i = 0; i < flowFiles.size(); i++) {
+            FlowFile requestFlowFile = session.putAllAttributes(flowFiles.get(i), statusAttributes);
+            requestFlowFile = session.putAttribute(requestFlowFile, BULK_INDEX, String.valueOf(i));
+            final Object item = items == null ? null : items.get(i);
+            if (items != null && item == null) {
+                handleFailure(context, session, requestFlowFile, null, new IllegalStateException("The response has no item for " + requestFlowFile));
+                continue;
+            }
+
+            final int itemStatus = item == null ? statusCode : bulk.status(item, statusCode);
+            final String content = item == null ? body : BulkResponse.toJson(item);
+            requestFlowFile = session.putAttribute(requestFlowFile, STATUS_CODE, String.valueOf(itemStatus));
+            if (plan.isAddHeadersToRequest()) {
+                requestFlowFile = session.putAllAttributes(requestFlowFile, RequestBuilder.convertAttributesFromHeaders(url, responseHttp));
+            }
+
+            FlowFile responseFlowFile = null;
+            if ((isSuccess(itemStatus) && !plan.isPutToAttribute()) || plan.isOutputResponseRegardless()) {
+                responseFlowFile = session.create(requestFlowFile);
+                responseFlowFile = session.putAllAttributes(responseFlowFile, RequestBuilder.convertAttributesFromHeaders(url, responseHttp));
+                if (item != null) {
+                    responseFlowFile = session.putAttribute(responseFlowFile, CoreAttributes.MIME_TYPE.key(), "application/json");
+                } else if (contentType != null) {
+                    responseFlowFile = session.putAttribute(responseFlowFile, CoreAttributes.MIME_TYPE.key(), contentType.toString());
+                }
+                final byte[] bytes = content.getBytes(item == null ? getCharsetFromMediaType(contentType) : StandardCharsets.UTF_8);
+                responseFlowFile = session.write(responseFlowFile, out -> out.write(bytes));
+                session.getProvenanceReporter().fetch(responseFlowFile, url.toExternalForm(), millis);
+            }
+
+            if ((!isSuccess(itemStatus) || plan.isPutToAttribute()) && !content.isEmpty()) {
+                String attributeKey = context.getProperty(Descriptions.PROP_PUT_OUTPUT_IN_ATTRIBUTE).evaluateAttributeExpressions(requestFlowFile).getValue();
+                if (attributeKey == null) {
+                    attributeKey = RESPONSE_BODY;
+                }
+                requestFlowFile = session.putAttribute(requestFlowFile, attributeKey,
+                        content.length() > plan.getMaxAttributeSize() ? content.substring(0, plan.getMaxAttributeSize()) : content);
+            }
+
+            route(requestFlowFile, responseFlowFile, session, context, plan, itemStatus);
+        }
+    }
+
+    /**
+     * The ID in the JSON content of each FlowFile, or null for one that has none or isn't JSON.
+     */
+    private List<String> readBulkIds(final ProcessSession session, final BulkResponse bulk, final List<FlowFile> flowFiles) {
+        final List<String> ids = new ArrayList<>(flowFiles.size());
+        for (FlowFile flowFile : flowFiles) {
+            final String[] id = new String[1];
+            try {
+                session.read(flowFile, in -> id[0] = bulk.id(BulkResponse.parse(in)));
+            } catch (final RuntimeException e) {
+                getLogger().debug("No ID in the content of {}", new Object[]{flowFile}, e);
+            }
+            ids.add(id[0]);
+        }
+        return ids;
+    }
+
+    /**
+     * Fills in the exchange's response from the response cache, if enabled. Returns true on a cache hit.
+     */
+    private boolean lookupCachedResponse(final ProcessSession session, final HttpExchange exchange) {
+        final ResponseCache cache = responseCache;
+        if (cache == null || !ResponseCache.isCacheable(exchange.getRequest())) {
+            return false;
+        }
+
+        final String key = cache.key(exchange.getRequest());
+        exchange.setCacheKey(key);
+        exchange.setStartNanos(System.nanoTime());
+        final Response cached = cache.get(key, exchange.getRequest());
+        if (cached == null) {
+            session.adjustCounter("Response Cache Misses", 1, false);
+            return false;
+        }
+        session.adjustCounter("Response Cache Hits", 1, false);
+        exchange.setResponse(cached);
+        exchange.setCachedResponse(true);
+        return true;
+    }
+
+    /**
+     * Builds the request for a single FlowFile and reports the send provenance event. Returns null if
+     * the request could not be built, in which case the FlowFile has already been routed to failure.
+     */
+    private HttpExchange prepareExchange(final ProcessContext context, final ProcessSession session, final RequestPlan plan, final FlowFile requestFlowFile,
+                                         final boolean dispatched) {
+        LoadBalancer.Selection selection = null;
         try {
             // read the url property from the context
             final String urlstr = trimToEmpty(context.getProperty(Descriptions.PROP_URL).evaluateAttributeExpressions(requestFlowFile).getValue());
-            final URL url = new URL(urlstr);
+            URL url = new URL(urlstr);
 
-            Request httpRequest = configureRequest(context, session, requestFlowFile, url);
+            // the request goes to the path of the Remote URL on the chosen endpoint
+            final LoadBalancer balancer = loadBalancer;
+            if (balancer != null) {
+                selection = balancer.select();
+                url = selection.getEndpoint().resolve(url);
+            }
+
+            Request httpRequest = configureRequest(context, session, plan, requestFlowFile, url, dispatched);
+            if (selection != null) {
+                httpRequest = httpRequest.newBuilder().tag(Endpoint.class, selection.getEndpoint()).build();
+            }
 
             // log request
-            LoggerModel.logRequest(logger, httpRequest);
+            LoggerModel.logRequest(getLogger(), httpRequest);
+
+            final HttpExchange exchange = new HttpExchange(requestFlowFile, url, httpRequest);
+            exchange.setSelection(selection);
+            return exchange;
+        } catch (final Exception e) {
+            if (selection != null) {
+                selection.release();
+            }
+            handleFailure(context, session, requestFlowFile, null, e);
+            return null;
+        }
+    }
+
+    /**
+     * Emits the send provenance event for a request with a body, once it is certain that the request is sent.
+     */
+    private void reportSend(final ProcessSession session, final HttpExchange exchange) {
+        if (exchange.getRequest().body() != null) {
+            for (FlowFile requestFlowFile : exchange.getRequestFlowFiles()) {
+                session.getProvenanceReporter().send(requestFlowFile, exchange.getUrl().toExternalForm(), true);
+            }
+        }
+    }
+
+    /**
+     * Checks the circuit of each exchange's host before anything is sent. Exchanges whose circuit is open are removed
+     * from the list and their FlowFiles are routed straight away, and if none are left the processor yields.
+     */
+    private void breakCircuits(final ProcessContext context, final ProcessSession session, final List<HttpExchange> exchanges) {
+        final CircuitBreaker breaker = circuitBreaker;
+        if (breaker == null || exchanges.isEmpty()) {
+            return;
+        }
+
+        int rejected = 0;
+        for (Iterator<HttpExchange> it = exchanges.iterator(); it.hasNext(); ) {
+            final HttpExchange exchange = it.next();
+            final String host = exchange.getUrl().getHost();
+            final CircuitBreaker.Permit permit = breaker.tryAcquire(host);
+            if (permit != null) {
+                exchange.setCircuitPermit(permit);
+                continue;
+            }
+            it.remove();
+            exchange.abandon();
+            for (FlowFile requestFlowFile : exchange.getRequestFlowFiles()) {
+                requestFlowFile = session.putAttribute(requestFlowFile, CIRCUIT_STATE, breaker.getState(host).getValue());
+                if (Relationships.REL_RETRY.equals(circuitOpenRelationship)) {
+                    requestFlowFile = session.penalize(requestFlowFile);
+                }
+                session.transfer(requestFlowFile, circuitOpenRelationship);
+            }
+            rejected++;
+        }
+
+        if (rejected > 0) {
+            session.adjustCounter("Circuit Open Requests", rejected, false);
+            if (exchanges.isEmpty()) {
+                context.yield();
+            }
+        }
+    }
+
+    /**
+     * Takes a permit from the adaptive concurrency limit of each exchange's host. Exchanges whose host is at its limit
+     * are removed from the list and their FlowFiles go back to the incoming queue; if nothing could be admitted at all
+     * the processor yields, rather than have its threads wait for the host.
+     */
+    private void admit(final ProcessContext context, final ProcessSession session, final List<HttpExchange> exchanges) {
+        final ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null || exchanges.isEmpty()) {
+            return;
+        }
+
+        int deferred = 0;
+        for (Iterator<HttpExchange> it = exchanges.iterator(); it.hasNext(); ) {
+            final HttpExchange exchange = it.next();
+            final ConcurrencyLimiter.Permit permit = limiter.tryAcquire(exchange.getUrl().getHost());
+            if (permit != null) {
+                exchange.setPermit(permit);
+                continue;
+            }
+            it.remove();
+            exchange.abandon();
+            session.transfer(exchange.getRequestFlowFiles());
+            deferred++;
+        }
+
+        if (deferred > 0) {
+            session.adjustCounter("Concurrency Limited Requests", deferred, false);
+            if (exchanges.isEmpty()) {
+                context.yield();
+            }
+        }
+    }
+
+    /**
+     * Takes a token from the rate limit of each exchange's key. Runs last, since tokens aren't given back: exchanges
+     * that are throttled are removed from the list and their FlowFiles go back to the incoming queue, and if none are
+     * left the processor yields.
+     */
+    private void throttle(final ProcessContext context, final ProcessSession session, final List<HttpExchange> exchanges) {
+        final RateLimiter limiter = rateLimiter;
+        if (limiter == null || exchanges.isEmpty()) {
+            return;
+        }
+
+        final PropertyValue keyProperty = context.getProperty(Descriptions.PROP_RATE_LIMIT_KEY);
+        int throttled = 0;
+        for (Iterator<HttpExchange> it = exchanges.iterator(); it.hasNext(); ) {
+            final HttpExchange exchange = it.next();
+            // a bulk exchange is keyed by its first FlowFile, like its other settings
+            final FlowFile keyFlowFile = exchange.isBulk() ? exchange.getRequestFlowFiles().get(0) : exchange.getRequestFlowFile();
+            String key = keyProperty.isSet() ? keyProperty.evaluateAttributeExpressions(keyFlowFile).getValue() : null;
+            if (StringUtils.isBlank(key)) {
+                key = exchange.getUrl().getHost();
+            }
+            if (limiter.tryAcquire(key)) {
+                exchange.setRateLimitKey(key);
+                continue;
+            }
+            it.remove();
+            exchange.abandon();
+            session.transfer(exchange.getRequestFlowFiles());
+            throttled++;
+        }
+
+        if (throttled > 0) {
+            session.adjustCounter("Rate Limited Requests", throttled, false);
+            if (exchanges.isEmpty()) {
+                context.yield();
+            }
+        }
+    }
+
+    /**
+     * Tells the concurrency limit, the circuit breaker and the load balancer how the request went, as soon as its
+     * response headers or failure arrive. May run on an OkHttp dispatcher thread.
+     */
+    private static void releasePermits(final HttpExchange exchange) {
+        final Response response = exchange.getResponse();
+        final boolean failed = exchange.getFailure() != null || response == null;
+
+        final ConcurrencyLimiter.Permit permit = exchange.getPermit();
+        if (permit != null) {
+            if (failed || response.code() == 429 || response.code() == 503) {
+                permit.onDropped();
+            } else {
+                permit.onSuccess(System.nanoTime() - exchange.getStartNanos());
+            }
+        }
+
+        final CircuitBreaker.Permit circuitPermit = exchange.getCircuitPermit();
+        if (circuitPermit != null) {
+            if (failed || response.code() / 100 == 5) {
+                circuitPermit.onFailure();
+            } else {
+                circuitPermit.onSuccess();
+            }
+        }
+
+        exchange.releaseAnsweredSelection(!failed && response.code() / 100 != 5);
+    }
+
+    /**
+     * Dispatches the exchanges on the client's {@link Dispatcher}, keeping at most "Max In-Flight Requests" of them
+     * outstanding, and processes every result on the calling thread as soon as it arrives.
+     */
+    private void executeAsync(final OkHttpClient okHttpClient, final ProcessContext context, final ProcessSession session, final RequestPlan plan,
+                              final List<HttpExchange> exchanges) {
+        final int maxInFlight = context.getProperty(Descriptions.PROP_MAX_IN_FLIGHT).asInteger();
+        final BlockingQueue<HttpExchange> completed = new LinkedBlockingQueue<>();
+        final Iterator<HttpExchange> pending = exchanges.iterator();
+        final Set<HttpExchange> unprocessed = Collections.newSetFromMap(new IdentityHashMap<>());
+        unprocessed.addAll(exchanges);
+        int inFlight = 0;
+
+        try {
+            while (pending.hasNext() || inFlight > 0) {
+                while (inFlight < maxInFlight && pending.hasNext()) {
+                    enqueue(okHttpClient, session, pending.next(), completed);
+                    inFlight++;
+                }
+
+                final HttpExchange exchange = completed.take();
+                inFlight--;
+                unprocessed.remove(exchange);
+                processExchange(context, session, plan, exchange);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessException("Interrupted while waiting for HTTP responses", e);
+        } finally {
+            // on any failure the session is rolled back, so calls still running must stop reading from its content
+            unprocessed.forEach(HttpExchange::abandon);
+        }
+    }
+
+    /**
+     * Runs the exchange's call on the calling thread, or waits for the identical call that is already in flight.
+     */
+    private void execute(final OkHttpClient okHttpClient, final ProcessSession session, final HttpExchange exchange) {
+        exchange.setStartNanos(System.nanoTime());
+        final SingleFlight.Flight flight = joinFlight(session, exchange);
+        if (flight != null && !flight.isLeader()) {
+            try {
+                final ResponseSnapshot snapshot = flight.result().get();
+                if (snapshot != null) {
+                    exchange.setResponse(snapshot.toResponse(exchange.getRequest()));
+                    return;
+                }
+                // the leader's response was too large to share, so this one is sent on its own
+            } catch (final ExecutionException e) {
+                exchange.setFailure(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                return;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.setFailure(e);
+                return;
+            }
+        }
+
+        final Hedger hedging = hedger;
+        if (hedging != null && Hedger.isHedgeable(exchange.getRequest())) {
+            // both attempts run on dispatcher threads, this one waits for the winner
+            final CountDownLatch done = new CountDownLatch(1);
+            exchange.setHedgedCall(hedging.enqueue(request -> LoadBalancer.newCall(okHttpClient, request), exchange.getRequest(), new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    exchange.setAnsweredRequest(call.request());
+                    exchange.setFailure(e);
+                    done.countDown();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    exchange.setAnsweredRequest(call.request());
+                    exchange.setResponse(response);
+                    done.countDown();
+                }
+            }));
+            try {
+                done.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.getHedgedCall().cancel();
+                exchange.setFailure(e);
+            }
+        } else {
+            try {
+                final Call call = LoadBalancer.newCall(okHttpClient, exchange.getRequest());
+                exchange.setCall(call);
+                exchange.setResponse(call.execute());
+            } catch (final Exception e) {
+                exchange.setFailure(e);
+            }
+        }
+        releasePermits(exchange);
+        landFlight(exchange);
+    }
+
+    private void enqueue(final OkHttpClient okHttpClient, final ProcessSession session, final HttpExchange exchange, final BlockingQueue<HttpExchange> completed) {
+        exchange.setStartNanos(System.nanoTime());
+        final SingleFlight.Flight flight = joinFlight(session, exchange);
+        if (flight != null && !flight.isLeader()) {
+            flight.result().whenComplete((snapshot, e) -> {
+                if (e != null) {
+                    final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    exchange.setFailure(cause instanceof Exception ? (Exception) cause : new ExecutionException(cause));
+                } else if (snapshot == null) {
+                    // the leader's response was too large to share; GET and HEAD have no body to open, so this
+                    // one can be sent from the thread that completed the flight
+                    send(okHttpClient, exchange, completed);
+                    return;
+                } else {
+                    exchange.setResponse(snapshot.toResponse(exchange.getRequest()));
+                }
+                completed.add(exchange);
+            });
+            return;
+        }
+
+        // the body is written by a dispatcher thread, so its content stream has to be opened here
+        final FlowFileRequestBody content = FlowFileRequestBody.contentOf(exchange.getRequest().body());
+        if (content != null) {
+            content.open();
+        }
+        send(okHttpClient, exchange, completed);
+    }
+
+    /**
+     * Enqueues the exchange's call, which adds the exchange to the completed ones once it has a response or failed.
+     */
+    private void send(final OkHttpClient okHttpClient, final HttpExchange exchange, final BlockingQueue<HttpExchange> completed) {
+        final Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                exchange.setAnsweredRequest(call.request());
+                exchange.setFailure(e);
+                releasePermits(exchange);
+                landFlight(exchange);
+                completed.add(exchange);
+            }
 
-            // emit send provenance event if successfully sent to the server
-            if (httpRequest.body() != null) {
-                session.getProvenanceReporter().send(requestFlowFile, url.toExternalForm(), true);
+            @Override
+            public void onResponse(Call call, Response response) {
+                exchange.setAnsweredRequest(call.request());
+                exchange.setResponse(response);
+                releasePermits(exchange);
+                landFlight(exchange);
+                completed.add(exchange);
             }
+        };
+
+        final Hedger hedging = hedger;
+        if (hedging != null && Hedger.isHedgeable(exchange.getRequest())) {
+            exchange.setHedgedCall(hedging.enqueue(request -> LoadBalancer.newCall(okHttpClient, request), exchange.getRequest(), callback));
+            return;
+        }
+        final Call call = LoadBalancer.newCall(okHttpClient, exchange.getRequest());
+        exchange.setCall(call);
+        call.enqueue(callback);
+    }
+
+    /**
+     * Joins the single flight for identical GET/HEAD requests, if enabled. Returns null if the exchange is not coalesced.
+     */
+    private SingleFlight.Flight joinFlight(final ProcessSession session, final HttpExchange exchange) {
+        final SingleFlight flights = singleFlight;
+        if (flights == null || !SingleFlight.isCoalescable(exchange.getRequest())) {
+            return null;
+        }
+        final SingleFlight.Flight flight = flights.join(SingleFlight.key(exchange.getRequest()));
+        if (!flight.isLeader()) {
+            session.adjustCounter("Coalesced Requests", 1, false);
+        }
+        exchange.setFlight(flight);
+        return flight;
+    }
+
+    /**
+     * Hands the leader's result to everyone who joined its flight. May run on an OkHttp dispatcher thread.
+     */
+    private void landFlight(final HttpExchange exchange) {
+        final SingleFlight.Flight flight = exchange.getFlight();
+        if (flight == null || !flight.isLeader()) {
+            return;
+        }
+        if (exchange.getFailure() != null) {
+            flight.fail(exchange.getFailure());
+            return;
+        }
+        try {
+            exchange.setResponse(flight.land(exchange.getResponse()));
+        } catch (final IOException e) {
+            exchange.setResponse(null);
+            exchange.setFailure(e);
+        }
+    }
+
+    /**
+     * The sizes of compressed request and response bodies before and after compression.
+     */
+    private static Map<String, String> byteCountAttributes(final FlowFileRequestBody requestContent, final ResponseBody responseBody) {
+        final Map<String, String> attributes = new HashMap<>();
+        if (requestContent != null && requestContent.getCompressedBytes() >= 0) {
+            attributes.put(REQUEST_BYTES_UNCOMPRESSED, String.valueOf(requestContent.getBytesWritten()));
+            attributes.put(REQUEST_BYTES_COMPRESSED, String.valueOf(requestContent.getCompressedBytes()));
+        }
+        if (responseBody instanceof DecodedResponseBody) {
+            attributes.put(RESPONSE_BYTES_COMPRESSED, String.valueOf(((DecodedResponseBody) responseBody).getEncodedBytes()));
+            attributes.put(RESPONSE_BYTES_UNCOMPRESSED, String.valueOf(((DecodedResponseBody) responseBody).getDecodedBytes()));
+        }
+        return attributes;
+    }
+
+    private void processExchange(final ProcessContext context, final ProcessSession session, final RequestPlan plan, final HttpExchange exchange) {
+        FlowFile requestFlowFile = exchange.getRequestFlowFile();
+        // coalesced followers never sent anything themselves
+        if (exchange.getPermit() != null) {
+            exchange.getPermit().onIgnore();
+        }
+        if (exchange.getCircuitPermit() != null) {
+            exchange.getCircuitPermit().onIgnore();
+        }
+        exchange.releaseSelections();
+        try {
+            exchange.closeRequestBody();
+        } catch (final IOException e) {
+            getLogger().warn("Failed to close the content of {} after sending it", new Object[]{requestFlowFile}, e);
+        }
+        final Hedger.HedgedCall hedgedCall = exchange.getHedgedCall();
+        if (hedgedCall != null) {
+            // the hedge rate is Hedged Requests / Hedgeable Requests
+            session.adjustCounter("Hedgeable Requests", 1, false);
+            if (hedgedCall.isHedged()) {
+                session.adjustCounter("Hedged Requests", 1, false);
+            }
+            if (hedgedCall.isHedgeWon()) {
+                session.adjustCounter("Hedge Wins", 1, false);
+            }
+        }
+
+        final RetryInterceptor.Attempts attempts = hedgedCall != null
+                ? hedgedCall.getAttempts() : exchange.getRequest().tag(RetryInterceptor.Attempts.class);
+        if (exchange.getFailure() != null) {
+            if (attempts != null && requestFlowFile != null) {
+                requestFlowFile = session.putAttribute(requestFlowFile, RETRY_COUNT, String.valueOf(attempts.getRetries()));
+            }
+            handleFailure(context, session, requestFlowFile, null, exchange.getFailure());
+            return;
+        }
+
+        // Checking to see if the property to put the body of the response in an attribute was set
+        boolean putToAttribute = plan.isPutToAttribute();
+
+        // Setting some initial variables
+        final int maxAttributeSize = plan.getMaxAttributeSize();
+        final ComponentLog logger = getLogger();
+
+        // Every request/response cycle has a unique transaction id which will be stored as a flowfile attribute.
+        final UUID txId = exchange.getTxId();
+        // a hedge that won may have been answered by another endpoint
+        final URL url = exchange.getAnsweredUrl();
+        final long startNanos = exchange.getStartNanos();
+        final FlowFileRequestBody requestContent = FlowFileRequestBody.contentOf(exchange.getRequest().body());
 
-            final long startNanos = System.nanoTime();
+        FlowFile responseFlowFile = null;
+        try {
+            try (Response responseHttp = plan.getAcceptEncodings().isEmpty()
+                    ? exchange.getResponse() : DecodedResponseBody.decode(exchange.getResponse(), plan.getAcceptEncodings())) {
+                final ResponseCache cache = responseCache;
+                if (cache != null && exchange.getCacheKey() != null && !exchange.isCachedResponse()) {
+                    cache.put(exchange.getCacheKey(), responseHttp);
+                }
 
-            try (Response responseHttp = okHttpClient.newCall(httpRequest).execute()) {
                 // output the raw response headers (DEBUG level only)
                 LoggerModel.logResponse(logger, url, responseHttp);
 
@@ -221,35 +1516,64 @@ public final class MyProcessor extends AbstractProcessor {
                     throw new IllegalStateException("Status code unknown, connection hasn't been attempted.");
                 }
 
+                // slow down when the server says so
+                final RateLimiter limiter = rateLimiter;
+                if (limiter != null && plan.isHonorRateLimitHeaders() && exchange.getRateLimitKey() != null) {
+                    final long backoffNanos = RateLimiter.backoffNanos(statusCode, responseHttp.headers(), System.currentTimeMillis());
+                    if (backoffNanos > 0) {
+                        limiter.pause(exchange.getRateLimitKey(), backoffNanos);
+                        session.adjustCounter("Rate Limit Pauses", 1, false);
+                    }
+                }
+
                 // Create a map of the status attributes that are always written to the request and response FlowFiles
                 Map<String, String> statusAttributes = new HashMap<>();
                 statusAttributes.put(STATUS_CODE, String.valueOf(statusCode));
                 statusAttributes.put(STATUS_MESSAGE, statusMessage);
                 statusAttributes.put(REQUEST_URL, url.toExternalForm());
                 statusAttributes.put(TRANSACTION_ID, txId.toString());
+                if (requestContent != null && requestContent.getBytesPerSecond() >= 0) {
+                    statusAttributes.put(REQUEST_BYTES_PER_SECOND, String.valueOf(requestContent.getBytesPerSecond()));
+                }
+                if (exchange.isCachedResponse()) {
+                    statusAttributes.put(CACHE_HIT, "true");
+                } else if (plan.isUseEtag()) {
+                    statusAttributes.put(CACHE_HIT, String.valueOf(recordCacheOutcome(session, responseHttp)));
+                } else if (exchange.getCacheKey() != null) {
+                    statusAttributes.put(CACHE_HIT, "false");
+                }
+                if (attempts != null) {
+                    statusAttributes.put(RETRY_COUNT, String.valueOf(attempts.getRetries()));
+                }
+                if (exchange.getCircuitPermit() != null) {
+                    statusAttributes.put(CIRCUIT_STATE, exchange.getCircuitPermit().getState().getValue());
+                }
 
                 if (requestFlowFile != null) {
                     requestFlowFile = session.putAllAttributes(requestFlowFile, statusAttributes);
                 }
 
                 // If the property to add the response headers to the request flowfile is true then add them
-                if (context.getProperty(Descriptions.PROP_ADD_HEADERS_TO_REQUEST).asBoolean() && requestFlowFile != null) {
+                if (plan.isAddHeadersToRequest() && requestFlowFile != null) {
                     // write the response headers as attributes
                     // this will overwrite any existing flowfile attributes
                     requestFlowFile = session.putAllAttributes(requestFlowFile, RequestBuilder.convertAttributesFromHeaders(url, responseHttp));
                 }
 
                 boolean outputBodyToRequestAttribute = (!isSuccess(statusCode) || putToAttribute) && requestFlowFile != null;
-                boolean outputBodyToResponseContent = (isSuccess(statusCode) && !putToAttribute) || context.getProperty(Descriptions.PROP_OUTPUT_RESPONSE_REGARDLESS).asBoolean();
+                boolean outputBodyToResponseContent = (isSuccess(statusCode) && !putToAttribute) || plan.isOutputResponseRegardless();
                 ResponseBody responseBody = responseHttp.body();
-                boolean bodyExists = responseBody != null && !context.getProperty(Descriptions.IGNORE_RESPONSE_CONTENT).asBoolean();
+                boolean bodyExists = responseBody != null && !plan.isIgnoreResponseContent();
 
                 InputStream responseBodyStream = null;
-                SoftLimitBoundedByteArrayOutputStream outputStreamToRequestAttribute = null;
+                AttributeBufferPool.AttributeBuffer attributeBuffer = null;
                 try {
                     responseBodyStream = bodyExists ? responseBody.byteStream() : null;
                     if (responseBodyStream != null && outputBodyToRequestAttribute && outputBodyToResponseContent) {
-                        outputStreamToRequestAttribute = new SoftLimitBoundedByteArrayOutputStream(maxAttributeSize);
+                        // the body goes to the content repository and the attribute in the same pass, the attribute only keeps
+                        // the first maxAttributeSize bytes
+                        attributeBuffer = acquireAttributeBuffer(session, maxAttributeSize);
+                        responseBodyStream = new TeeInputStream(responseBodyStream, attributeBuffer.getStream());
                     }
 
                     if (outputBodyToResponseContent) {
@@ -298,17 +1622,12 @@ public final class MyProcessor extends AbstractProcessor {
                         if (attributeKey == null) {
                             attributeKey = RESPONSE_BODY;
                         }
-                        byte[] outputBuffer;
-                        int size;
-
-                        if (outputStreamToRequestAttribute != null) {
-                            outputBuffer = outputStreamToRequestAttribute.getBuffer();
-                            size = outputStreamToRequestAttribute.size();
-                        } else {
-                            outputBuffer = new byte[maxAttributeSize];
-                            size = StreamUtils.fillBuffer(responseBodyStream, outputBuffer, false);
+                        // when the body wasn't teed into the buffer on its way to the response FlowFile, read it now
+                        if (attributeBuffer == null) {
+                            attributeBuffer = acquireAttributeBuffer(session, maxAttributeSize);
+                            attributeBuffer.getStream().readFrom(responseBodyStream);
                         }
-                        String bodyString = new String(outputBuffer, 0, size, getCharsetFromMediaType(responseBody.contentType()));
+                        String bodyString = attributeBuffer.decode(getCharsetFromMediaType(responseBody.contentType()));
                         requestFlowFile = session.putAttribute(requestFlowFile, attributeKey, bodyString);
 
                         final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
@@ -316,9 +1635,9 @@ public final class MyProcessor extends AbstractProcessor {
                                 + url.toExternalForm() + ". It took " + millis + "millis,");
                     }
                 } finally {
-                    if(outputStreamToRequestAttribute != null){
-                        outputStreamToRequestAttribute.close();
-                        outputStreamToRequestAttribute = null;
+                    if(attributeBuffer != null){
+                        attributeBuffer.release();
+                        attributeBuffer = null;
                     }
                     if(responseBodyStream != null){
                         responseBodyStream.close();
@@ -326,32 +1645,59 @@ public final class MyProcessor extends AbstractProcessor {
                     }
                 }
 
-                route(requestFlowFile, responseFlowFile, session, context, statusCode);
+                // the body has been consumed by now, so the byte counts and the total latency cover all of it
+                final Map<String, String> byteCounts = byteCountAttributes(requestContent, responseBody);
+                if (!byteCounts.isEmpty()) {
+                    if (requestFlowFile != null) {
+                        requestFlowFile = session.putAllAttributes(requestFlowFile, byteCounts);
+                    }
+                    if (responseFlowFile != null) {
+                        responseFlowFile = session.putAllAttributes(responseFlowFile, byteCounts);
+                    }
+                }
+
+                final CallTimings timings = exchange.getRequest().tag(CallTimings.class);
+                if (plan.isLatencyAttributes() && timings != null && timings.isStarted()) {
+                    final Map<String, String> latencyAttributes = timings.toAttributes();
+                    if (requestFlowFile != null) {
+                        requestFlowFile = session.putAllAttributes(requestFlowFile, latencyAttributes);
+                    }
+                    if (responseFlowFile != null) {
+                        responseFlowFile = session.putAllAttributes(responseFlowFile, latencyAttributes);
+                    }
+                }
+
+                route(requestFlowFile, responseFlowFile, session, context, plan, statusCode);
 
             }
         } catch (final Exception e) {
-            // penalize or yield
-            if (requestFlowFile != null) {
-                logger.error("Routing to {} due to exception: {}", new Object[]{Relationships.REL_FAILURE.getName(), e}, e);
-                requestFlowFile = session.penalize(requestFlowFile);
-                requestFlowFile = session.putAttribute(requestFlowFile, EXCEPTION_CLASS, e.getClass().getName());
-                requestFlowFile = session.putAttribute(requestFlowFile, EXCEPTION_MESSAGE, e.getMessage());
-                // transfer original to failure
-                session.transfer(requestFlowFile, Relationships.REL_FAILURE);
-            } else {
-                logger.error("Yielding processor due to exception encountered as a source processor: {}", e);
-                context.yield();
-            }
+            handleFailure(context, session, requestFlowFile, responseFlowFile, e);
+        }
+    }
+
+    private void handleFailure(final ProcessContext context, final ProcessSession session, FlowFile requestFlowFile, final FlowFile responseFlowFile, final Exception e) {
+        final ComponentLog logger = getLogger();
+        // penalize or yield
+        if (requestFlowFile != null) {
+            logger.error("Routing to {} due to exception: {}", new Object[]{Relationships.REL_FAILURE.getName(), e}, e);
+            requestFlowFile = session.penalize(requestFlowFile);
+            requestFlowFile = session.putAttribute(requestFlowFile, EXCEPTION_CLASS, e.getClass().getName());
+            requestFlowFile = session.putAttribute(requestFlowFile, EXCEPTION_MESSAGE, e.getMessage());
+            // transfer original to failure
+            session.transfer(requestFlowFile, Relationships.REL_FAILURE);
+        } else {
+            logger.error("Yielding processor due to exception encountered as a source processor: {}", e);
+            context.yield();
+        }
 
 
-            // cleanup response flowfile, if applicable
-            try {
-                if (responseFlowFile != null) {
-                    session.remove(responseFlowFile);
-                }
-            } catch (final Exception e1) {
-                logger.error("Could not cleanup response flowfile due to exception: {}", new Object[]{e1}, e1);
+        // cleanup response flowfile, if applicable
+        try {
+            if (responseFlowFile != null) {
+                session.remove(responseFlowFile);
             }
+        } catch (final Exception e1) {
+            logger.error("Could not cleanup response flowfile due to exception: {}", new Object[]{e1}, e1);
         }
     }
 
@@ -364,31 +1710,40 @@ public final class MyProcessor extends AbstractProcessor {
     public final static String REMOTE_DN = "invokehttp.remote.dn";
     public final static String EXCEPTION_CLASS = "invokehttp.java.exception.class";
     public final static String EXCEPTION_MESSAGE = "invokehttp.java.exception.message";
+    public final static String CACHE_HIT = "invokehttp.cache.hit";
+    public final static String REQUEST_BYTES_PER_SECOND = "invokehttp.request.bytes.per.second";
+    public final static String CIRCUIT_STATE = "invokehttp.circuit.state";
+    public final static String RETRY_COUNT = "invokehttp.retry.count";
+    public final static String REQUEST_BYTES_UNCOMPRESSED = "invokehttp.request.bytes.uncompressed";
+    public final static String REQUEST_BYTES_COMPRESSED = "invokehttp.request.bytes.compressed";
+    public final static String RESPONSE_BYTES_COMPRESSED = "invokehttp.response.bytes.compressed";
+    public final static String RESPONSE_BYTES_UNCOMPRESSED = "invokehttp.response.bytes.uncompressed";
+    public final static String BULK_INDEX = "invokehttp.bulk.index";
+    public final static String BULK_SIZE = "invokehttp.bulk.size";
+    public final static String LATENCY_DNS_CONNECT = CallTimings.LATENCY_DNS_CONNECT;
+    public final static String LATENCY_TLS = CallTimings.LATENCY_TLS;
+    public final static String LATENCY_TTFB = CallTimings.LATENCY_TTFB;
+    public final static String LATENCY_TOTAL = CallTimings.LATENCY_TOTAL;
 
     public static final Set<String> IGNORED_ATTRIBUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
             STATUS_CODE, STATUS_MESSAGE, RESPONSE_BODY, REQUEST_URL, TRANSACTION_ID, REMOTE_DN,
-            EXCEPTION_CLASS, EXCEPTION_MESSAGE, "uuid", "filename", "path")));
+            EXCEPTION_CLASS, EXCEPTION_MESSAGE, CACHE_HIT, REQUEST_BYTES_PER_SECOND, CIRCUIT_STATE, RETRY_COUNT,
+            REQUEST_BYTES_UNCOMPRESSED, REQUEST_BYTES_COMPRESSED, RESPONSE_BYTES_COMPRESSED, RESPONSE_BYTES_UNCOMPRESSED, BULK_INDEX, BULK_SIZE,
+            LATENCY_DNS_CONNECT, LATENCY_TLS, LATENCY_TTFB, LATENCY_TOTAL, "uuid", "filename", "path")));
 
     private volatile Set<String> dynamicPropertyNames = new HashSet<>();
 
-    private Request.Builder setHeaderProperties(final ProcessContext context, Request.Builder requestBuilder, final FlowFile requestFlowFile) {
-        // check if we should send the a Date header with the request
-
-        final ComponentLog logger = getLogger();
-        for (String headerKey : dynamicPropertyNames) {
+    private Request.Builder setHeaderProperties(final ProcessContext context, final RequestPlan plan, Request.Builder requestBuilder, final FlowFile requestFlowFile) {
+        // constant headers were already added, only the ones with Expression Language are evaluated here
+        for (String headerKey : plan.getDynamicHeaderNames()) {
             String headerValue = context.getProperty(headerKey).evaluateAttributeExpressions(requestFlowFile).getValue();
-
-            // don't include any of the excluded headers, log instead
-            if (excludedHeaders.containsKey(headerKey)) {
-                logger.warn(excludedHeaders.get(headerKey), new Object[]{headerKey});
-                continue;
-            }
             requestBuilder = requestBuilder.addHeader(headerKey, headerValue);
         }
 
         // iterate through the flowfile attributes, adding any attribute that
         // matches the attributes-to-send pattern. if the pattern is not set
         // (it's an optional property), ignore that attribute entirely
+        final Pattern regexAttributesToSend = plan.getAttributesToSend();
         if (regexAttributesToSend != null && requestFlowFile != null) {
             Map<String, String> attributes = requestFlowFile.getAttributes();
             Matcher m = regexAttributesToSend.matcher("");
@@ -411,13 +1766,36 @@ public final class MyProcessor extends AbstractProcessor {
         }
         return requestBuilder;
     }
+    /**
+     * Counts whether the response was served from the ETag cache, revalidated with a conditional request, or
+     * fetched from the network, and returns true if the body came from the cache. A conditional request that got
+     * a 200 still has the cached response attached, but its body came from the network.
+     */
+    private boolean recordCacheOutcome(final ProcessSession session, final Response responseHttp) {
+        if (responseHttp.cacheResponse() != null && responseHttp.networkResponse() == null) {
+            session.adjustCounter("ETag Cache Hits", 1, false);
+            return true;
+        } else if (responseHttp.networkResponse() != null && responseHttp.networkResponse().code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            session.adjustCounter("ETag Cache Conditional Hits", 1, false);
+            return true;
+        }
+        session.adjustCounter("ETag Cache Network Requests", 1, false);
+        return false;
+    }
+
+    private AttributeBufferPool.AttributeBuffer acquireAttributeBuffer(final ProcessSession session, final int maxAttributeSize) {
+        final AttributeBufferPool.AttributeBuffer attributeBuffer = attributeBufferPool.acquire(maxAttributeSize);
+        session.adjustCounter(attributeBuffer.isHit() ? "Attribute Buffer Pool Hits" : "Attribute Buffer Pool Misses", 1, false);
+        return attributeBuffer;
+    }
+
     private boolean isSuccess(int statusCode) {
         return statusCode / 100 == 2;
     }
     private Charset getCharsetFromMediaType(MediaType contentType) {
         return contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
     }
-    private void route(FlowFile request, FlowFile response, ProcessSession session, ProcessContext context, int statusCode){
+    private void route(FlowFile request, FlowFile response, ProcessSession session, ProcessContext context, RequestPlan plan, int statusCode){
         // check if we should yield the processor
         if (!isSuccess(statusCode) && request == null) {
             context.yield();
@@ -425,7 +1803,7 @@ public final class MyProcessor extends AbstractProcessor {
 
         // If the property to output the response flowfile regardless of status code is set then transfer it
         boolean responseSent = false;
-        if (context.getProperty(Descriptions.PROP_OUTPUT_RESPONSE_REGARDLESS).asBoolean()) {
+        if (plan.isOutputResponseRegardless()) {
             session.transfer(response, Relationships.REL_RESPONSE);
             responseSent = true;
         }
@@ -441,8 +1819,8 @@ public final class MyProcessor extends AbstractProcessor {
                 session.transfer(response, Relationships.REL_RESPONSE);
             }
 
-            // 5xx -> RETRY
-        } else if (statusCode / 100 == 5) {
+            // 5xx -> RETRY, as is 429 if the processor honors rate limits
+        } else if (statusCode / 100 == 5 || (statusCode == 429 && plan.isHonorRateLimitHeaders())) {
             if (request != null) {
                 request = session.penalize(request);
                 session.transfer(request, Relationships.REL_RETRY);
@@ -451,7 +1829,7 @@ public final class MyProcessor extends AbstractProcessor {
             // 1xx, 3xx, 4xx -> NO RETRY
         } else {
             if (request != null) {
-                if (context.getProperty(Descriptions.PROP_PENALIZE_NO_RETRY).asBoolean()) {
+                if (plan.isPenalizeNoRetry()) {
                     request = session.penalize(request);
                 }
                 session.transfer(request, Relationships.REL_NO_RETRY);
@@ -0,0 +1,163 @@
+package nifi.processors.demo.balance;
+
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One replica requests can be sent to, with the state the load balancer needs to pick it: the requests outstanding
+ * on it, whether it is ejected as an outlier, and the result of its last health check.
+ * <p>
+ * An endpoint resolved to one address of its host keeps the host name in its URLs, so that TLS hostname verification,
+ * SNI and the Host header or HTTP/2 authority are unchanged, and is pinned to its address by a client whose {@link Dns}
+ * answers the host with that address alone. The pinned client shares the connection pool, but OkHttp only reuses a
+ * connection for the same {@link Dns}, so the connections of different addresses stay apart.
+ */
+public final class Endpoint {
+    private final URL base;
+    private final String basePath;
+    private final InetAddress address;
+    private final Dns dns;
+    private final Map<OkHttpClient, OkHttpClient> pinnedClients = new ConcurrentHashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private int consecutiveFailures;
+    private int ejections;
+    private volatile long ejectedUntilNanos;
+    private volatile boolean healthy = true;
+
+    /**
+     * @param base     scheme, authority and optional base path the request path is appended to
+     * @param address  the address to connect to, or null to resolve the host of the base URL as usual
+     * @param fallback resolves any other host, e.g. of a redirect
+     */
+    Endpoint(URL base, InetAddress address, Dns fallback) {
+        this.base = base;
+        final String path = base.getPath();
+        this.basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        this.address = address;
+        this.dns = address == null ? null : new PinnedDns(base.getHost(), address, fallback);
+    }
+
+    /**
+     * Sends the path and query of the URL to this endpoint instead.
+     */
+    public URL resolve(URL url) throws MalformedURLException {
+        return resolve(url.getFile());
+    }
+
+    /**
+     * The URL of the path and query on this endpoint, below its base path.
+     */
+    public URL resolve(String file) throws MalformedURLException {
+        return new URL(base.getProtocol(), base.getHost(), base.getPort(), basePath + (file.startsWith("/") ? file : "/" + file));
+    }
+
+    public URL getBase() {
+        return base;
+    }
+
+    /**
+     * The address the endpoint is pinned to, or null if its host is resolved as usual.
+     */
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * The client to send this endpoint's requests with: the given client itself, or a client with the same settings,
+     * connection pool and dispatcher that connects to this endpoint's address.
+     */
+    public OkHttpClient client(OkHttpClient client) {
+        if (dns == null) {
+            return client;
+        }
+        return pinnedClients.computeIfAbsent(client, c -> c.newBuilder().dns(dns).build());
+    }
+
+    /**
+     * Identifies the endpoint across resolutions of its addresses.
+     */
+    String key() {
+        return address == null ? base.toExternalForm() : base.toExternalForm() + "@" + address.getHostAddress();
+    }
+
+    int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    boolean isAvailable(long now) {
+        return healthy && !isEjected(now);
+    }
+
+    boolean isEjected(long now) {
+        final long until = ejectedUntilNanos;
+        return until != 0 && now - until < 0;
+    }
+
+    /**
+     * Counts consecutive failures; at the threshold the endpoint is ejected, for longer every time it happens again.
+     */
+    synchronized void onResult(boolean success, int failureThreshold, long baseEjectionNanos) {
+        final long now = System.nanoTime();
+        if (success) {
+            consecutiveFailures = 0;
+            if (ejections > 0 && !isEjected(now)) {
+                ejections--;
+            }
+            return;
+        }
+        if (++consecutiveFailures >= failureThreshold && !isEjected(now)) {
+            consecutiveFailures = 0;
+            ejections = Math.min(ejections + 1, 10);
+            ejectedUntilNanos = now + baseEjectionNanos * ejections;
+        }
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public String toString() {
+        return address == null ? base.toExternalForm() : base.toExternalForm() + " (" + address.getHostAddress() + ")";
+    }
+
+    private static final class PinnedDns implements Dns {
+        private final String host;
+        private final List<InetAddress> addresses;
+        private final Dns fallback;
+
+        private PinnedDns(String host, InetAddress address, Dns fallback) {
+            this.host = host;
+            this.addresses = Collections.singletonList(address);
+            this.fallback = fallback;
+        }
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            return host.equalsIgnoreCase(hostname) ? addresses : fallback.lookup(hostname);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package nifi.processors.demo.balance;
+
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.nifi.logging.ComponentLog;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads requests over a list of endpoints. Endpoints with too many consecutive failures are ejected for a while,
+ * and endpoints failing the optional active health check are skipped until they pass it again. If no endpoint is
+ * available at all, every endpoint is used rather than none.
+ * <p>
+ * The endpoints are either the configured URLs themselves, or every address their host names resolve to; in that
+ * case they are resolved again on every health check round. Requests are tagged with their {@link Endpoint} and sent
+ * with {@link #newCall}, which connects them to the endpoint's address.
+ */
+public class LoadBalancer {
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_OUTSTANDING, POWER_OF_TWO_CHOICES
+    }
+
+    private static final long HEALTH_CHECK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final List<URL> configured;
+    private final boolean resolveAddresses;
+    private final Dns dns;
+    private final Strategy strategy;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile List<Endpoint> endpoints;
+    private ScheduledExecutorService background;
+
+    public LoadBalancer(List<URL> configured, boolean resolveAddresses, Dns dns, Strategy strategy, int failureThreshold, long ejectionNanos)
+            throws IOException {
+        this.configured = configured;
+        this.resolveAddresses = resolveAddresses;
+        this.dns = dns;
+        this.strategy = strategy;
+        this.failureThreshold = failureThreshold;
+        this.ejectionNanos = ejectionNanos;
+        this.endpoints = resolve(Collections.emptyList());
+    }
+
+    public static List<URL> parse(String endpoints) throws MalformedURLException {
+        final List<URL> urls = new ArrayList<>();
+        for (String endpoint : endpoints.split(",")) {
+            if (!endpoint.trim().isEmpty()) {
+                urls.add(new URL(endpoint.trim()));
+            }
+        }
+        return urls;
+    }
+
+    private List<Endpoint> resolve(List<Endpoint> previous) throws IOException {
+        // keep the state of endpoints that are still there
+        final Map<String, Endpoint> known = new HashMap<>();
+        for (Endpoint endpoint : previous) {
+            known.put(endpoint.key(), endpoint);
+        }
+
+        final List<Endpoint> resolved = new ArrayList<>();
+        for (URL url : configured) {
+            if (!resolveAddresses) {
+                final Endpoint endpoint = new Endpoint(url, null, dns);
+                resolved.add(known.getOrDefault(endpoint.key(), endpoint));
+                continue;
+            }
+            for (InetAddress address : dns.lookup(url.getHost())) {
+                final Endpoint endpoint = new Endpoint(url, address, dns);
+                resolved.add(known.getOrDefault(endpoint.key(), endpoint));
+            }
+        }
+        if (resolved.isEmpty()) {
+            throw new IOException("None of the endpoints " + configured + " could be resolved");
+        }
+        return Collections.unmodifiableList(resolved);
+    }
+
+    /**
+     * Picks an endpoint for one request. The returned selection must be released once the response arrived.
+     */
+    public Selection select() {
+        final Endpoint endpoint = choose(null);
+        endpoint.acquire();
+        return new Selection(endpoint);
+    }
+
+    /**
+     * Picks a different endpoint than the given one, e.g. for a hedge. The returned selection must be released
+     * like any other. Returns null if there is no other available endpoint.
+     */
+    public Selection selectOther(Endpoint excluded) {
+        final Endpoint endpoint = choose(excluded);
+        if (endpoint == null) {
+            return null;
+        }
+        endpoint.acquire();
+        return new Selection(endpoint);
+    }
+
+    /**
+     * Creates the call of a request on the client, connecting to the address of the endpoint the request is tagged
+     * with, if any.
+     */
+    public static Call newCall(OkHttpClient client, Request request) {
+        final Endpoint endpoint = request.tag(Endpoint.class);
+        return (endpoint == null ? client : endpoint.client(client)).newCall(request);
+    }
+
+    private Endpoint choose(Endpoint excluded) {
+        final List<Endpoint> all = endpoints;
+        final long now = System.nanoTime();
+        List<Endpoint> candidates = new ArrayList<>(all.size());
+        for (Endpoint endpoint : all) {
+            if (endpoint.isAvailable(now) && (excluded == null || !endpoint.key().equals(excluded.key()))) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            if (excluded != null) {
+                return null;
+            }
+            candidates = all;
+        }
+
+        switch (strategy) {
+            case LEAST_OUTSTANDING:
+                Endpoint least = null;
+                for (Endpoint endpoint : candidates) {
+                    if (least == null || endpoint.getOutstanding() < least.getOutstanding()) {
+                        least = endpoint;
+                    }
+                }
+                return least;
+            case POWER_OF_TWO_CHOICES:
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final Endpoint first = candidates.get(random.nextInt(candidates.size()));
+                final Endpoint second = candidates.get(random.nextInt(candidates.size()));
+                return second.getOutstanding() < first.getOutstanding() ? second : first;
+            default:
+                return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+        }
+    }
+
+    /**
+     * Starts checking the health of every endpoint, and resolving their addresses again if they are resolved,
+     * in the background.
+     *
+     * @param healthCheckPath the path of a GET request that answers 2xx if the endpoint is healthy, or null
+     */
+    public synchronized void start(OkHttpClient client, String healthCheckPath, long intervalNanos, ComponentLog logger) {
+        if ((healthCheckPath == null && !resolveAddresses) || background != null) {
+            return;
+        }
+        final OkHttpClient checkClient = healthCheckClient(client, intervalNanos);
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "InvokeHTTP endpoint health check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            if (resolveAddresses) {
+                try {
+                    endpoints = resolve(endpoints);
+                } catch (final IOException e) {
+                    logger.warn("Failed to resolve the endpoints again, keeping the previous addresses", e);
+                }
+            }
+            if (healthCheckPath != null) {
+                endpoints.forEach(endpoint -> check(checkClient, endpoint, healthCheckPath, logger));
+            }
+        }, 0, intervalNanos, TimeUnit.NANOSECONDS);
+        background = executor;
+    }
+
+    /**
+     * The client for health checks: the request client's connections and TLS settings, but without its retries,
+     * latency metrics and response cache, and with a timeout of at most the interval, so that an endpoint that
+     * doesn't answer is marked unhealthy instead of holding up the checks of the others.
+     */
+    static OkHttpClient healthCheckClient(OkHttpClient client, long intervalNanos) {
+        final long timeoutMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(Math.min(HEALTH_CHECK_TIMEOUT_NANOS, intervalNanos)));
+        final OkHttpClient.Builder builder = client.newBuilder()
+                .eventListener(EventListener.NONE)
+                .cache(null)
+                .connectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .callTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        builder.interceptors().clear();
+        return builder.build();
+    }
+
+    private void check(OkHttpClient client, Endpoint endpoint, String healthCheckPath, ComponentLog logger) {
+        final Request.Builder request = new Request.Builder().get().tag(Endpoint.class, endpoint);
+        try {
+            request.url(endpoint.resolve(healthCheckPath));
+        } catch (final MalformedURLException e) {
+            logger.warn("Invalid health check path {}", new Object[]{healthCheckPath}, e);
+            return;
+        }
+
+        final Call call = newCall(client, request.build());
+        boolean healthy;
+        try (Response response = call.execute()) {
+            healthy = response.isSuccessful();
+        } catch (final IOException e) {
+            healthy = false;
+        }
+        if (healthy != endpoint.isHealthy()) {
+            logger.info("Endpoint {} is {}", new Object[]{endpoint, healthy ? "healthy again" : "unhealthy"});
+        }
+        endpoint.setHealthy(healthy);
+    }
+
+    public synchronized void shutdown() {
+        if (background != null) {
+            background.shutdownNow();
+            background = null;
+        }
+    }
+
+    List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * The endpoint picked for one request. Only the first release has any effect.
+     */
+    public final class Selection {
+        private final Endpoint endpoint;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Selection(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public Endpoint getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * The request is no longer outstanding, and its outcome counts towards ejecting the endpoint.
+         */
+        public void release(boolean success) {
+            if (released.compareAndSet(false, true)) {
+                endpoint.release();
+                endpoint.onResult(success, failureThreshold, ejectionNanos);
+            }
+        }
+
+        /**
+         * The request is no longer outstanding, but never got an answer from the endpoint.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                endpoint.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package nifi.processors.demo.breaker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A circuit breaker per host. A closed circuit lets every request through and keeps the outcomes of the last
+ * requests in a window; once enough of them failed it opens, and for the open duration no request to the host is
+ * sent at all. After that the circuit is half-open and lets a few probe requests through: if they all succeed it
+ * closes again, if one of them fails it opens again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED("closed"),
+        OPEN("open"),
+        HALF_OPEN("half-open");
+
+        private final String value;
+
+        State(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long openDurationNanos;
+    private final int probes;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowSize         how many of the latest outcomes the failure rate is calculated over
+     * @param minimumCalls       how many outcomes there have to be before the circuit can open
+     * @param failureRatePercent the failure rate at or above which the circuit opens
+     * @param openDurationNanos  how long an open circuit rejects requests before it lets probes through
+     * @param probes             how many successful probes close a half-open circuit
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRatePercent, long openDurationNanos, int probes) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRatePercent = failureRatePercent;
+        this.openDurationNanos = openDurationNanos;
+        this.probes = probes;
+    }
+
+    /**
+     * Returns a permit to send a request to the host, or null if its circuit is open, or half-open with all
+     * of its probes already in flight.
+     */
+    public Permit tryAcquire(String host) {
+        return circuits.computeIfAbsent(host, h -> new Circuit()).tryAcquire(System.nanoTime());
+    }
+
+    public State getState(String host) {
+        final Circuit circuit = circuits.get(host);
+        return circuit == null ? State.CLOSED : circuit.getState();
+    }
+
+    private final class Circuit {
+        private final boolean[] failed = new boolean[windowSize];
+        private State state = State.CLOSED;
+        private int calls;
+        private int next;
+        private int failures;
+        private long openedAtNanos;
+        private int probesInFlight;
+        private int probeSuccesses;
+
+        private synchronized State getState() {
+            return state;
+        }
+
+        private synchronized Permit tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now - openedAtNanos < openDurationNanos) {
+                    return null;
+                }
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight + probeSuccesses >= probes) {
+                    return null;
+                }
+                probesInFlight++;
+            }
+            return new Permit(this, state);
+        }
+
+        private synchronized void onResult(State acquiredIn, boolean success) {
+            if (acquiredIn == State.HALF_OPEN) {
+                if (state != State.HALF_OPEN) {
+                    return;
+                }
+                probesInFlight--;
+                if (!success) {
+                    open();
+                } else if (++probeSuccesses >= probes) {
+                    close();
+                }
+                return;
+            }
+
+            // outcomes of requests sent before the circuit opened don't count any more
+            if (state != State.CLOSED) {
+                return;
+            }
+            if (calls == windowSize) {
+                if (failed[next]) {
+                    failures--;
+                }
+            } else {
+                calls++;
+            }
+            failed[next] = !success;
+            if (!success) {
+                failures++;
+            }
+            next = (next + 1) % windowSize;
+
+            if (calls >= minimumCalls && failures * 100 >= failureRatePercent * calls) {
+                open();
+            }
+        }
+
+        private synchronized void onIgnore(State acquiredIn) {
+            if (acquiredIn == State.HALF_OPEN && state == State.HALF_OPEN) {
+                probesInFlight--;
+            }
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            reset();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            reset();
+        }
+
+        private void reset() {
+            calls = 0;
+            next = 0;
+            failures = 0;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+    }
+
+    /**
+     * Permission to send one request. Only the first of the outcome methods has any effect.
+     */
+    public static final class Permit {
+        private final Circuit circuit;
+        private final State state;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Circuit circuit, State state) {
+            this.circuit = circuit;
+            this.state = state;
+        }
+
+        /**
+         * The state of the circuit when the permit was handed out.
+         */
+        public State getState() {
+            return state;
+        }
+
+        public void onSuccess() {
+            if (released.compareAndSet(false, true)) {
+                circuit.onResult(state, true);
+            }
+        }
+
+        public void onFailure() {
+            if (released.compareAndSet(false, true)) {
+                circuit.onResult(state, false);
+            }
+        }
+
+        /**
+         * Releases the permit without an outcome, e.g. because the request was never sent.
+         */
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) {
+                circuit.onIgnore(state);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package nifi.processors.demo.bulk;
+
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.FlowFileFilter;
+import org.apache.nifi.processor.ProcessSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes the FlowFiles of one bulk request from the incoming queue: up to a number of FlowFiles or of bytes, whichever
+ * is reached first, waiting up to a time for more to arrive while the batch isn't full.
+ */
+public final class BulkCollector {
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final int maxFlowFiles;
+    private final long maxBytes;
+    private final long maxWaitNanos;
+
+    public BulkCollector(int maxFlowFiles, long maxBytes, long maxWaitNanos) {
+        this.maxFlowFiles = maxFlowFiles;
+        this.maxBytes = maxBytes;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * Returns the FlowFiles of the next bulk request, or an empty list if the queue is empty. A FlowFile larger than
+     * the byte limit is sent on its own.
+     */
+    public List<FlowFile> collect(ProcessSession session) {
+        final List<FlowFile> batch = new ArrayList<>();
+        final long start = System.nanoTime();
+        final Filter filter = new Filter();
+        while (true) {
+            batch.addAll(session.get(filter));
+            if (batch.isEmpty() || filter.full || batch.size() >= maxFlowFiles) {
+                return batch;
+            }
+
+            final long remaining = maxWaitNanos - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                return batch;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, POLL_NANOS));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return batch;
+            }
+        }
+    }
+
+    /**
+     * Accepts FlowFiles until the batch has the most FlowFiles or bytes it may have, counting across the polls for
+     * one batch.
+     */
+    private final class Filter implements FlowFileFilter {
+        private int count;
+        private long bytes;
+        private boolean full;
+
+        @Override
+        public FlowFileFilterResult filter(FlowFile flowFile) {
+            if (count > 0 && bytes + flowFile.getSize() > maxBytes) {
+                full = true;
+                return FlowFileFilterResult.REJECT_AND_TERMINATE;
+            }
+            count++;
+            bytes += flowFile.getSize();
+            if (count >= maxFlowFiles || bytes >= maxBytes) {
+                full = true;
+                return FlowFileFilterResult.ACCEPT_AND_TERMINATE;
+            }
+            return FlowFileFilterResult.ACCEPT_AND_CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package nifi.processors.demo.bulk;
+
+/**
+ * How the contents of the FlowFiles of a bulk request are framed into its body.
+ */
+public enum BulkFormat {
+    JSON_ARRAY("json-array", "application/json"),
+    NDJSON("ndjson", "application/x-ndjson"),
+    MULTIPART("multipart", "multipart/form-data");
+
+    private final String value;
+    private final String contentType;
+
+    BulkFormat(String value, String contentType) {
+        this.value = value;
+        this.contentType = contentType;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the format for the property value, or null if FlowFiles aren't sent in bulk.
+     */
+    public static BulkFormat of(String value) {
+        for (BulkFormat format : values()) {
+            if (format.value.equals(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
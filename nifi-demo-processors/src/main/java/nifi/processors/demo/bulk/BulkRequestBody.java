@@ -0,0 +1,134 @@
+package nifi.processors.demo.bulk;
+
+import nifi.processors.demo.model.FlowFileRequestBody;
+import nifi.processors.demo.model.RequestPlan;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.processor.ProcessSession;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Frames the contents of several FlowFiles into one request body, as the elements of a JSON array or as the lines
+ * of NDJSON, streaming each of them from the content repository in turn. Like a {@link FlowFileRequestBody}, the
+ * contents are read with a session callback on every write, so the body can be re-sent on retries.
+ */
+public class BulkRequestBody extends RequestBody {
+    private static final byte NEWLINE = '\n';
+
+    private final ProcessSession session;
+    private final List<FlowFile> flowFiles;
+    private final BulkFormat format;
+    private final MediaType contentType;
+    private final boolean chunked;
+    private final long bufferSize;
+
+    private BulkRequestBody(ProcessSession session, List<FlowFile> flowFiles, BulkFormat format, boolean chunked, long bufferSize) {
+        this.session = session;
+        this.flowFiles = flowFiles;
+        this.format = format;
+        this.contentType = MediaType.parse(format.getContentType());
+        this.chunked = chunked;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * The body of a bulk request for the FlowFiles. In multipart format each FlowFile is a form-data part named
+     * after its index in the batch, with its filename and the Content-Type evaluated against it.
+     */
+    public static RequestBody create(ProcessSession session, RequestPlan plan, List<FlowFile> flowFiles, BulkFormat format) {
+        if (format != BulkFormat.MULTIPART) {
+            return new BulkRequestBody(session, flowFiles, format, plan.isChunked(), plan.getRequestBufferSize());
+        }
+        final MultipartBody.Builder multipart = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        for (int i = 0; i < flowFiles.size(); i++) {
+            final FlowFile flowFile = flowFiles.get(i);
+            multipart.addFormDataPart(String.valueOf(i), flowFile.getAttribute(CoreAttributes.FILENAME.key()),
+                    new FlowFileRequestBody(session, flowFile, plan.contentType(flowFile), plan.isChunked(), plan.getRequestBufferSize()));
+        }
+        return multipart.build();
+    }
+
+    /**
+     * Whether the content of the FlowFile can be framed in the format. An empty content is no JSON value, so it
+     * can't be an element of a JSON array or a line of NDJSON; the body leaves it out.
+     */
+    public static boolean canFrame(FlowFile flowFile, BulkFormat format) {
+        return format == BulkFormat.MULTIPART || flowFile.getSize() > 0;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    /**
+     * Only known for JSON arrays, since NDJSON may or may not have to add a newline after each content.
+     */
+    @Override
+    public long contentLength() {
+        if (chunked || format != BulkFormat.JSON_ARRAY) {
+            return -1;
+        }
+        long length = 2;
+        int framed = 0;
+        for (FlowFile flowFile : flowFiles) {
+            if (canFrame(flowFile, format)) {
+                length += flowFile.getSize();
+                framed++;
+            }
+        }
+        return length + Math.max(0, framed - 1);
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (format == BulkFormat.JSON_ARRAY) {
+            sink.writeUtf8("[");
+        }
+        int framed = 0;
+        for (FlowFile flowFile : flowFiles) {
+            if (!canFrame(flowFile, format)) {
+                continue;
+            }
+            if (framed++ > 0 && format == BulkFormat.JSON_ARRAY) {
+                sink.writeUtf8(",");
+            }
+            final byte[] last = new byte[1];
+            session.read(flowFile, in -> last[0] = transfer(Okio.source(in), sink));
+            if (format == BulkFormat.NDJSON && last[0] != NEWLINE) {
+                sink.writeByte(NEWLINE);
+            }
+        }
+        if (format == BulkFormat.JSON_ARRAY) {
+            sink.writeUtf8("]");
+        }
+    }
+
+    /**
+     * Copies the source into the sink's buffer, handing full segments on as they are collected, and returns the
+     * last byte copied, or 0 if the source was empty.
+     */
+    private byte transfer(Source source, BufferedSink sink) throws IOException {
+        final Buffer buffer = sink.getBuffer();
+        byte last = 0;
+        long read;
+        while ((read = source.read(buffer, bufferSize)) != -1) {
+            if (read > 0) {
+                last = buffer.getByte(buffer.size() - 1);
+            }
+            if (buffer.size() >= bufferSize) {
+                sink.emitCompleteSegments();
+            }
+        }
+        return last;
+    }
+}
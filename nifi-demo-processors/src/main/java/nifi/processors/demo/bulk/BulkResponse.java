@@ -0,0 +1,175 @@
+package nifi.processors.demo.bulk;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the response of a bulk request into one item per FlowFile, correlated by position or by an ID that
+ * both the FlowFile's content and the item contain.
+ */
+public final class BulkResponse {
+    private static final JsonProvider JSON = Configuration.defaultConfiguration().jsonProvider();
+
+    private final JsonPath itemsPath;
+    private final JsonPath idPath;
+    private final JsonPath statusPath;
+    private final long maxBytes;
+
+    /**
+     * @param itemsPath  the JSONPath to the array of items in a JSON response
+     * @param idPath     the JSONPath to the ID in a FlowFile's content and in an item, or null to correlate by position
+     * @param statusPath the JSONPath to the status code in an item, or null if all items have the response's
+     * @param maxBytes   the largest response body that is read into memory
+     */
+    public BulkResponse(String itemsPath, String idPath, String statusPath, long maxBytes) {
+        this.itemsPath = JsonPath.compile(itemsPath);
+        this.idPath = StringUtils.isBlank(idPath) ? null : JsonPath.compile(idPath);
+        this.statusPath = StringUtils.isBlank(statusPath) ? null : JsonPath.compile(statusPath);
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isCorrelatedById() {
+        return idPath != null;
+    }
+
+    public static Object parse(String json) {
+        return JSON.parse(json);
+    }
+
+    public static Object parse(InputStream json) {
+        return JSON.parse(json, StandardCharsets.UTF_8.name());
+    }
+
+    public static String toJson(Object item) {
+        return JSON.toJson(item);
+    }
+
+    /**
+     * Reads the whole response body, in the charset of its Content-Type or else UTF-8.
+     *
+     * @throws IOException if the body is larger than the max size, so that it can't be split into items
+     */
+    public String read(ResponseBody body) throws IOException {
+        if (body.contentLength() > maxBytes) {
+            throw tooLarge();
+        }
+        final BufferedSource source = body.source();
+        if (source.request(maxBytes + 1)) {
+            throw tooLarge();
+        }
+        final MediaType contentType = body.contentType();
+        final Charset charset = contentType == null ? StandardCharsets.UTF_8 : contentType.charset(StandardCharsets.UTF_8);
+        return source.readString(charset);
+    }
+
+    private IOException tooLarge() {
+        return new IOException("The response of the bulk request is larger than " + maxBytes + " bytes and can't be split into items");
+    }
+
+    /**
+     * The items of the response body: its lines if it is NDJSON, otherwise the array the items path selects.
+     */
+    public List<Object> items(String body, MediaType contentType) {
+        final List<Object> items = new ArrayList<>();
+        if (contentType != null && contentType.subtype().contains("ndjson")) {
+            for (String line : body.split("\n")) {
+                if (!line.trim().isEmpty()) {
+                    items.add(parse(line));
+                }
+            }
+            return items;
+        }
+        final Object selected = itemsPath.read(parse(body));
+        if (!(selected instanceof List)) {
+            throw new IllegalStateException("The response has no array of items at " + itemsPath.getPath());
+        }
+        items.addAll((List<?>) selected);
+        return items;
+    }
+
+    /**
+     * The ID of a FlowFile's content or of an item, or null if it has none.
+     */
+    public String id(Object document) {
+        final Object id = first(read(idPath, document));
+        return id == null ? null : String.valueOf(id);
+    }
+
+    /**
+     * The item of each FlowFile in turn, or null for a FlowFile without an item.
+     *
+     * @param flowFileIds the ID of each FlowFile's content when correlating by ID, otherwise ignored
+     * @throws IllegalStateException if correlating by position and there aren't as many items as FlowFiles
+     */
+    public List<Object> correlate(List<Object> items, int flowFiles, List<String> flowFileIds) {
+        if (idPath == null) {
+            if (items.size() != flowFiles) {
+                throw new IllegalStateException("The response has " + items.size() + " items for " + flowFiles + " FlowFiles");
+            }
+            return items;
+        }
+        final Map<String, Object> byId = new HashMap<>();
+        for (Object item : items) {
+            final String id = id(item);
+            if (id != null) {
+                byId.put(id, item);
+            }
+        }
+        final List<Object> correlated = new ArrayList<>(flowFiles);
+        for (String id : flowFileIds) {
+            correlated.add(id == null ? null : byId.get(id));
+        }
+        return correlated;
+    }
+
+    /**
+     * The status code of the item, or the given one if the item doesn't have any.
+     */
+    public int status(Object item, int responseStatus) {
+        final Object status = first(read(statusPath, item));
+        if (status instanceof Number) {
+            return ((Number) status).intValue();
+        }
+        if (status instanceof String && ((String) status).matches("\\d{3}")) {
+            return Integer.parseInt((String) status);
+        }
+        return responseStatus;
+    }
+
+    private static Object read(JsonPath path, Object document) {
+        if (path == null || document == null) {
+            return null;
+        }
+        try {
+            return path.read(document);
+        } catch (final PathNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indefinite paths select a list, of which the first value is used.
+     */
+    private static Object first(Object value) {
+        if (value instanceof List) {
+            final List<?> values = (List<?>) value;
+            return values.isEmpty() ? null : values.get(0);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+package nifi.processors.demo.bulk;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.components.Validator;
+
+/**
+ * Checks that a property value compiles as a JSONPath.
+ */
+public class JsonPathValidator implements Validator {
+
+    @Override
+    public ValidationResult validate(String subject, String input, ValidationContext context) {
+        String explanation = null;
+        try {
+            JsonPath.compile(input);
+        } catch (final InvalidPathException | IllegalArgumentException e) {
+            explanation = "not a valid JSONPath: " + e.getMessage();
+        }
+        return new ValidationResult.Builder()
+                .subject(subject)
+                .input(input)
+                .valid(explanation == null)
+                .explanation(explanation)
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package nifi.processors.demo.cache;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process cache of successful GET/HEAD responses, bounded by entry count, body size per entry and total body size,
+ * and evicted in least-recently-used order. Entries expire after a fixed time to live regardless of the response's cache headers.
+ */
+public class ResponseCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final List<String> keyHeaders;
+
+    private final LinkedHashMap<String, ResponseSnapshot> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * @param maxEntryBytes the largest body that is cached, which is also the most that is buffered to find out
+     *                      whether a body of unknown length fits; capped at the total size
+     */
+    public ResponseCache(long ttlNanos, int maxEntries, long maxBytes, long maxEntryBytes, List<String> keyHeaders) {
+        this.ttlNanos = ttlNanos;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.keyHeaders = keyHeaders == null ? Collections.emptyList() : keyHeaders;
+    }
+
+    public static boolean isCacheable(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    /**
+     * The key is the method, the resolved URL and the values of the configured request headers.
+     */
+    public String key(Request request) {
+        StringBuilder sb = new StringBuilder(request.method()).append(' ').append(request.url());
+        for (String header : keyHeaders) {
+            sb.append('\n').append(header).append(':');
+            List<String> values = request.headers(header);
+            if (!values.isEmpty()) {
+                sb.append(String.join(",", values));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a response built from the cached entry for the request, or null if there is no live entry.
+     */
+    public Response get(String key, Request request) {
+        final ResponseSnapshot entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.getCreatedAtNanos() >= ttlNanos) {
+                remove(key);
+                return null;
+            }
+        }
+        return entry.toResponse(request);
+    }
+
+    /**
+     * Stores a copy of the response if it is successful and small enough. The body is peeked, so the response can
+     * still be consumed by the caller afterwards.
+     */
+    public void put(String key, Response response) throws IOException {
+        if (!response.isSuccessful() || response.cacheControl().noStore()) {
+            return;
+        }
+
+        final ResponseBody body = response.body();
+        final byte[] bytes;
+        if (body == null) {
+            bytes = new byte[0];
+        } else {
+            // don't buffer anything for a body that is known to be too large
+            if (body.contentLength() > maxEntryBytes) {
+                return;
+            }
+            bytes = response.peekBody(maxEntryBytes + 1).bytes();
+            if (bytes.length > maxEntryBytes) {
+                return;
+            }
+        }
+
+        final ResponseSnapshot entry = ResponseSnapshot.of(response, bytes);
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            totalBytes += bytes.length;
+            evict();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    private void remove(String key) {
+        final ResponseSnapshot removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.size();
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, ResponseSnapshot>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext() && (entries.size() > maxEntries || totalBytes > maxBytes)) {
+            totalBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+}
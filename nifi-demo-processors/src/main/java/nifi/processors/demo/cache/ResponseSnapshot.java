@@ -0,0 +1,86 @@
+package nifi.processors.demo.cache;
+
+import okhttp3.Handshake;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+
+/**
+ * A fully buffered copy of a response which can be turned back into any number of independent responses.
+ */
+public final class ResponseSnapshot {
+    private final long createdAtNanos = System.nanoTime();
+    private final Protocol protocol;
+    private final int code;
+    private final String message;
+    private final Headers headers;
+    private final Handshake handshake;
+    private final MediaType contentType;
+    private final byte[] body;
+
+    private ResponseSnapshot(Response response, MediaType contentType, byte[] body) {
+        this.protocol = response.protocol();
+        this.code = response.code();
+        this.message = response.message();
+        this.headers = response.headers();
+        this.handshake = response.handshake();
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * Creates a snapshot from a body that has already been read, leaving the response itself untouched.
+     */
+    public static ResponseSnapshot of(Response response, byte[] body) {
+        final ResponseBody responseBody = response.body();
+        return new ResponseSnapshot(response, responseBody == null ? null : responseBody.contentType(), body);
+    }
+
+    /**
+     * Reads the whole body of the response into memory and closes the response, unless the body is larger than
+     * the given size, in which case the response is left readable as it was and null is returned.
+     */
+    public static ResponseSnapshot read(Response response, long maxBytes) throws IOException {
+        final ResponseBody responseBody = response.body();
+        if (responseBody == null) {
+            return new ResponseSnapshot(response, null, new byte[0]);
+        }
+        if (responseBody.contentLength() > maxBytes) {
+            return null;
+        }
+        final byte[] body = response.peekBody(maxBytes + 1).bytes();
+        if (body.length > maxBytes) {
+            return null;
+        }
+        responseBody.close();
+        return new ResponseSnapshot(response, responseBody.contentType(), body);
+    }
+
+    public Response toResponse(Request request) {
+        final long now = System.currentTimeMillis();
+        return new Response.Builder()
+                .request(request)
+                .protocol(protocol)
+                .code(code)
+                .message(message)
+                .headers(headers)
+                .handshake(handshake)
+                .body(ResponseBody.create(body, contentType))
+                .sentRequestAtMillis(now)
+                .receivedResponseAtMillis(now)
+                .build();
+    }
+
+    public long getCreatedAtNanos() {
+        return createdAtNanos;
+    }
+
+    public int size() {
+        return body.length;
+    }
+}
@@ -0,0 +1,124 @@
+package nifi.processors.demo.cache;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Coalesces identical concurrent requests into a single call. The first caller for a key becomes the leader and
+ * sends the request; everyone who joins before the leader's response arrives gets a copy of that response.
+ * The leader's response is only buffered in memory when somebody actually joined it, and only up to a size: followers
+ * of a larger response send their own requests instead.
+ */
+public class SingleFlight {
+
+    private final ConcurrentMap<String, Shared> flights = new ConcurrentHashMap<>();
+    private final long maxSnapshotBytes;
+
+    /**
+     * @param maxSnapshotBytes the largest response body that is buffered for followers
+     */
+    public SingleFlight(long maxSnapshotBytes) {
+        this.maxSnapshotBytes = maxSnapshotBytes;
+    }
+
+    public static boolean isCoalescable(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    /**
+     * Identical requests have the same method, URL and headers.
+     */
+    public static String key(Request request) {
+        return request.method() + ' ' + request.url() + '\n' + request.headers();
+    }
+
+    public Flight join(String key) {
+        final boolean[] leader = {false};
+        final Shared shared = flights.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.followers++;
+                return existing;
+            }
+            leader[0] = true;
+            return new Shared(k);
+        });
+        return new Flight(shared, leader[0]);
+    }
+
+    public int size() {
+        return flights.size();
+    }
+
+    private static final class Shared {
+        private final String key;
+        private final CompletableFuture<ResponseSnapshot> result = new CompletableFuture<>();
+        private volatile int followers;
+
+        private Shared(String key) {
+            this.key = key;
+        }
+    }
+
+    public final class Flight {
+        private final Shared shared;
+        private final boolean leader;
+
+        private Flight(Shared shared, boolean leader) {
+            this.shared = shared;
+            this.leader = leader;
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * The leader's response, completed once the leader lands. Only meaningful for followers, which get null if
+         * the response was too large to share and have to send their own request.
+         */
+        public CompletableFuture<ResponseSnapshot> result() {
+            return shared.result;
+        }
+
+        /**
+         * Called by the leader with its response. Closes the flight to new followers and, if there are any and the
+         * response isn't too large, buffers the response and hands it to them. Returns the response the leader
+         * should go on to process.
+         */
+        public Response land(Response response) throws IOException {
+            final int followers = close();
+            if (followers == 0) {
+                shared.result.complete(null);
+                return response;
+            }
+
+            final ResponseSnapshot snapshot;
+            try {
+                snapshot = ResponseSnapshot.read(response, maxSnapshotBytes);
+            } catch (final IOException e) {
+                shared.result.completeExceptionally(e);
+                throw e;
+            }
+            shared.result.complete(snapshot);
+            return snapshot == null ? response : snapshot.toResponse(response.request());
+        }
+
+        /**
+         * Called by the leader if its call failed; every follower fails with the same exception.
+         */
+        public void fail(Exception e) {
+            close();
+            shared.result.completeExceptionally(e);
+        }
+
+        private int close() {
+            flights.remove(shared.key, shared);
+            return shared.followers;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package nifi.processors.demo.compress;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.brotli.dec.BrotliInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The HTTP content codings the processor can encode request bodies with and decode response bodies from.
+ */
+public enum ContentCoding {
+    GZIP("gzip", 9, (out, level) -> new GZIPOutputStream(out, ContentCoding.BUFFER_SIZE) {
+        {
+            if (level >= 0) {
+                def.setLevel(level);
+            }
+        }
+    }) {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+    ZSTD("zstd", 22, (out, level) -> level >= 0 ? new ZstdOutputStream(out, level) : new ZstdOutputStream(out)) {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+    },
+    /**
+     * Only decoded; there is no brotli encoder on the classpath.
+     */
+    BROTLI("br", 0, null) {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new BrotliInputStream(in);
+        }
+    };
+
+    /**
+     * Compresses a stream with a coding.
+     */
+    @FunctionalInterface
+    public interface Encoder {
+        /**
+         * Wraps the stream so whatever is written to it is compressed. Closing the returned stream finishes the
+         * compressed data and closes the given stream.
+         *
+         * @param level the compression level, or -1 for the coding's default
+         */
+        OutputStream encode(OutputStream out, int level) throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+    private final int maxLevel;
+    private final Encoder encoder;
+
+    ContentCoding(String token, int maxLevel, Encoder encoder) {
+        this.token = token;
+        this.maxLevel = maxLevel;
+        this.encoder = encoder;
+    }
+
+    /**
+     * The coding's name in Content-Encoding and Accept-Encoding headers.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Whether request bodies can be compressed with the coding, rather than only responses decoded.
+     */
+    public boolean isEncodable() {
+        return encoder != null;
+    }
+
+    /**
+     * The highest compression level of an encodable coding; levels start at 1.
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * The encoder of the coding, or null if it is only decoded.
+     */
+    public Encoder getEncoder() {
+        return encoder;
+    }
+
+    public abstract InputStream decode(InputStream in) throws IOException;
+
+    /**
+     * Returns the coding of a Content-Encoding header value, or null if it is none of these.
+     */
+    public static ContentCoding of(String token) {
+        if (token == null) {
+            return null;
+        }
+        for (ContentCoding coding : values()) {
+            if (coding.token.equalsIgnoreCase(token.trim())) {
+                return coding;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+package nifi.processors.demo.compress;
+
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.IOException;
+
+/**
+ * A response body that is decoded from its Content-Encoding while it is read, counting the bytes on both sides.
+ */
+public class DecodedResponseBody extends ResponseBody {
+
+    private final ResponseBody encoded;
+    private final ContentCoding coding;
+    private final CountingSource encodedBytes;
+    private final DecodingSource decoding = new DecodingSource();
+    private BufferedSource source;
+
+    private DecodedResponseBody(ResponseBody encoded, ContentCoding coding) {
+        this.encoded = encoded;
+        this.coding = coding;
+        this.encodedBytes = new CountingSource(encoded.source());
+    }
+
+    /**
+     * Returns the response with a body that is decoded on the fly if its Content-Encoding is one of the given
+     * codings, or the response itself otherwise. Like OkHttp's transparent gzip, the decoded response has no
+     * Content-Encoding and Content-Length headers.
+     */
+    public static Response decode(Response response, Iterable<ContentCoding> accepted) {
+        final ResponseBody body = response.body();
+        final ContentCoding coding = ContentCoding.of(response.header("Content-Encoding"));
+        if (body == null || coding == null || !contains(accepted, coding)) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(new DecodedResponseBody(body, coding))
+                .build();
+    }
+
+    private static boolean contains(Iterable<ContentCoding> accepted, ContentCoding coding) {
+        for (ContentCoding candidate : accepted) {
+            if (candidate == coding) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return encoded.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public synchronized BufferedSource source() {
+        if (source == null) {
+            source = Okio.buffer(decoding);
+        }
+        return source;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (source != null) {
+                // releases the decoder, zstd's is native
+                source.close();
+            }
+        } catch (final IOException ignored) {
+            // the encoded body is closed regardless
+        } finally {
+            encoded.close();
+        }
+    }
+
+    public ContentCoding getCoding() {
+        return coding;
+    }
+
+    /**
+     * The bytes received so far, as they came over the wire.
+     */
+    public long getEncodedBytes() {
+        return encodedBytes.count;
+    }
+
+    /**
+     * The bytes read so far after decoding.
+     */
+    public long getDecodedBytes() {
+        return decoding.count;
+    }
+
+    /**
+     * Creates the decoder on the first read, because the decoders read the header of the encoded data right away.
+     */
+    private final class DecodingSource implements Source {
+        private Source decoded;
+        private long count;
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (decoded == null) {
+                decoded = Okio.source(coding.decode(Okio.buffer(encodedBytes).inputStream()));
+            }
+            final long read = decoded.read(sink, byteCount);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return encodedBytes.timeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decoded != null) {
+                decoded.close();
+            } else {
+                encodedBytes.close();
+            }
+        }
+    }
+
+    private static final class CountingSource extends ForwardingSource {
+        private long count;
+
+        private CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            final long read = super.read(sink, byteCount);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package nifi.processors.demo.dns;
+
+import okhttp3.Dns;
+import org.apache.nifi.processor.ProcessSession;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches host name lookups independently of the JVM's DNS cache policy. Addresses younger than the min TTL are used
+ * as they are. Up to the max TTL they are still used, but each use after the min TTL triggers a lookup in the
+ * background, so the calling thread never waits for DNS while a host keeps being used. Failed lookups are cached
+ * for the negative TTL, and a failed background lookup keeps the previous addresses.
+ * <p>
+ * The JDK doesn't tell how long the DNS server said a record may be cached, so the TTLs here replace it.
+ */
+public class CachingDns implements Dns {
+
+    private final Dns delegate;
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+    private final ThreadPoolExecutor refresher;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Entry>> lookups = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong resolutions = new AtomicLong();
+    private final AtomicLong resolutionFailures = new AtomicLong();
+    private final AtomicLong resolutionMicros = new AtomicLong();
+
+    public CachingDns(Dns delegate, long minTtlNanos, long maxTtlNanos, long negativeTtlNanos, int maxEntries) {
+        this.delegate = delegate;
+        this.minTtlNanos = minTtlNanos;
+        this.maxTtlNanos = Math.max(minTtlNanos, maxTtlNanos);
+        this.negativeTtlNanos = negativeTtlNanos;
+        this.maxEntries = maxEntries;
+        this.refresher = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread thread = new Thread(r, "InvokeHTTP DNS refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        final Entry entry = entries.get(hostname);
+        if (entry != null) {
+            final long age = System.nanoTime() - entry.resolvedAtNanos;
+            if (entry.addresses == null) {
+                if (age < negativeTtlNanos) {
+                    negativeHits.incrementAndGet();
+                    throw entry.failure();
+                }
+            } else if (age < minTtlNanos) {
+                hits.incrementAndGet();
+                return entry.addresses;
+            } else if (age < maxTtlNanos) {
+                staleHits.incrementAndGet();
+                prefetch(hostname);
+                return entry.addresses;
+            }
+        }
+
+        misses.incrementAndGet();
+        final Entry resolved = resolve(hostname);
+        if (resolved.addresses == null) {
+            throw resolved.failure();
+        }
+        return resolved.addresses;
+    }
+
+    /**
+     * Looks the host up in the background unless that is already happening, e.g. to have its addresses at hand
+     * before the first request.
+     */
+    public void prefetch(String hostname) {
+        if (lookups.containsKey(hostname)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> resolve(hostname));
+        } catch (final RejectedExecutionException e) {
+            // shut down, the next lookup resolves it
+        }
+    }
+
+    /**
+     * Looks the host up, or waits for the lookup another thread is already doing.
+     */
+    private Entry resolve(String hostname) {
+        final CompletableFuture<Entry> lookup = new CompletableFuture<>();
+        final CompletableFuture<Entry> running = lookups.putIfAbsent(hostname, lookup);
+        if (running != null) {
+            try {
+                return running.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Entry(null, new UnknownHostException("Interrupted while resolving " + hostname));
+            } catch (final ExecutionException e) {
+                return new Entry(null, new UnknownHostException(hostname + ": " + e.getCause()));
+            }
+        }
+
+        Entry entry;
+        final long startNanos = System.nanoTime();
+        try {
+            entry = new Entry(Collections.unmodifiableList(delegate.lookup(hostname)), null);
+        } catch (final UnknownHostException e) {
+            entry = new Entry(null, e);
+        } catch (final RuntimeException e) {
+            lookups.remove(hostname, lookup);
+            lookup.completeExceptionally(e);
+            throw e;
+        }
+        resolutions.incrementAndGet();
+        resolutionMicros.addAndGet(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+
+        if (entry.addresses == null) {
+            resolutionFailures.incrementAndGet();
+            // stale addresses beat no addresses
+            final Entry previous = entries.get(hostname);
+            if (previous == null || previous.addresses == null || System.nanoTime() - previous.resolvedAtNanos >= maxTtlNanos) {
+                put(hostname, entry);
+            }
+        } else {
+            put(hostname, entry);
+        }
+        lookups.remove(hostname, lookup);
+        lookup.complete(entry);
+        return entry;
+    }
+
+    private void put(String hostname, Entry entry) {
+        if (entries.put(hostname, entry) == null && entries.size() > maxEntries) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        String oldest = null;
+        long oldestResolvedAt = 0;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (oldest == null || entry.getValue().resolvedAtNanos - oldestResolvedAt < 0) {
+                oldest = entry.getKey();
+                oldestResolvedAt = entry.getValue().resolvedAtNanos;
+            }
+        }
+        if (oldest != null) {
+            entries.remove(oldest);
+        }
+    }
+
+    /**
+     * Adds what happened since the last call to the processor's counters. The average resolution time is
+     * DNS Resolution Time (us) / DNS Resolutions.
+     */
+    public void publish(ProcessSession session) {
+        publish(session, "DNS Cache Hits", hits);
+        publish(session, "DNS Cache Stale Hits", staleHits);
+        publish(session, "DNS Cache Negative Hits", negativeHits);
+        publish(session, "DNS Cache Misses", misses);
+        publish(session, "DNS Resolutions", resolutions);
+        publish(session, "DNS Resolution Failures", resolutionFailures);
+        publish(session, "DNS Resolution Time (us)", resolutionMicros);
+    }
+
+    private static void publish(ProcessSession session, String name, AtomicLong counter) {
+        final long delta = counter.getAndSet(0);
+        if (delta != 0) {
+            session.adjustCounter(name, delta, false);
+        }
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final long resolvedAtNanos = System.nanoTime();
+        private final List<InetAddress> addresses;
+        private final UnknownHostException failure;
+
+        private Entry(List<InetAddress> addresses, UnknownHostException failure) {
+            this.addresses = addresses;
+            this.failure = failure;
+        }
+
+        /**
+         * A new exception for every caller, so stack traces show where the lookup was made.
+         */
+        private UnknownHostException failure() {
+            final UnknownHostException e = new UnknownHostException(failure.getMessage());
+            e.initCause(failure);
+            return e;
+        }
+    }
+}
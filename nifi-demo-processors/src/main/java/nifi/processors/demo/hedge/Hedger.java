@@ -0,0 +1,257 @@
+package nifi.processors.demo.hedge;
+
+import nifi.processors.demo.metrics.CallTimings;
+import nifi.processors.demo.retry.RetryInterceptor;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sends a second, identical request if the first one hasn't been answered within the hedge delay, and takes whichever
+ * response arrives first. The delay is either fixed, or a percentile of the response times observed recently, so
+ * that only the slowest requests get hedged.
+ * <p>
+ * Only the first request's response times are recorded, since the hedge starts late. When the hedge wins, the first
+ * request is cancelled and the time it had run by then is recorded, which is a lower bound of its response time.
+ */
+public class Hedger {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final long MIN_SAMPLES = 100;
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final long fixedDelayNanos;
+    private final double percentile;
+    private final UnaryOperator<Request> hedgeTarget;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final Recorder responseTimes = new Recorder(SIGNIFICANT_DIGITS);
+    private final AtomicLong nextRefreshNanos = new AtomicLong(System.nanoTime() + REFRESH_NANOS);
+    private volatile long observedDelayNanos = -1;
+    private Histogram recycled;
+
+    /**
+     * @param fixedDelayNanos the hedge delay, or -1 to only hedge once the percentile is known
+     * @param percentile      the percentile of recent response times to use as the delay, or -1 for the fixed delay
+     * @param hedgeTarget     turns the original request into the hedge, e.g. to send it to another endpoint
+     */
+    public Hedger(long fixedDelayNanos, double percentile, UnaryOperator<Request> hedgeTarget) {
+        this.fixedDelayNanos = fixedDelayNanos;
+        this.percentile = percentile;
+        this.hedgeTarget = hedgeTarget;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "InvokeHTTP hedge timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static boolean isHedgeable(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    /**
+     * The current hedge delay, or -1 if requests aren't hedged at the moment.
+     */
+    public long getDelayNanos() {
+        if (percentile > 0) {
+            refresh();
+            final long observed = observedDelayNanos;
+            if (observed >= 0) {
+                return observed;
+            }
+        }
+        return fixedDelayNanos;
+    }
+
+    /**
+     * Starts the request and, after the hedge delay, its hedge. The callback gets the first response, or the failure
+     * once every attempt that was started has failed.
+     *
+     * @param client creates the calls of the request and its hedge
+     */
+    public HedgedCall enqueue(Call.Factory client, Request request, Callback callback) {
+        final HedgedCall call = new HedgedCall(client, request, callback);
+        call.start(getDelayNanos());
+        return call;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void record(long responseNanos) {
+        if (percentile > 0) {
+            responseTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(responseNanos));
+        }
+    }
+
+    private void refresh() {
+        final long now = System.nanoTime();
+        final long due = nextRefreshNanos.get();
+        if (now - due < 0 || !nextRefreshNanos.compareAndSet(due, now + REFRESH_NANOS)) {
+            return;
+        }
+        synchronized (this) {
+            recycled = responseTimes.getIntervalHistogram(recycled);
+            if (recycled.getTotalCount() >= MIN_SAMPLES) {
+                observedDelayNanos = TimeUnit.MICROSECONDS.toNanos(recycled.getValueAtPercentile(percentile));
+            }
+        }
+    }
+
+    public final class HedgedCall {
+        private final Call.Factory client;
+        private final Request request;
+        private final Callback callback;
+        private final long startNanos = System.nanoTime();
+
+        private Call primary;
+        private Call hedge;
+        private volatile Request hedgeRequest;
+        private ScheduledFuture<?> hedgeTimer;
+        private int running;
+        private boolean finished;
+        private volatile boolean hedged;
+        private volatile boolean hedgeWon;
+        private volatile Request delivered;
+
+        private HedgedCall(Call.Factory client, Request request, Callback callback) {
+            this.client = client;
+            this.request = request;
+            this.callback = callback;
+        }
+
+        private synchronized void start(long delayNanos) {
+            primary = client.newCall(request);
+            running = 1;
+            primary.enqueue(new Leg(false));
+            if (delayNanos >= 0) {
+                hedgeTimer = timer.schedule(this::startHedge, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized void startHedge() {
+            if (finished) {
+                return;
+            }
+            // the hedge runs concurrently with the first call, so it can't share its call listener or count its retries
+            final Request.Builder builder = hedgeTarget.apply(request).newBuilder().tag(CallTimings.class, null);
+            if (request.tag(RetryInterceptor.Attempts.class) != null) {
+                builder.tag(RetryInterceptor.Attempts.class, new RetryInterceptor.Attempts());
+            }
+            hedgeRequest = builder.build();
+            hedge = client.newCall(hedgeRequest);
+            running++;
+            hedged = true;
+            hedge.enqueue(new Leg(true));
+        }
+
+        public boolean isHedged() {
+            return hedged;
+        }
+
+        /**
+         * Whether the response came from the hedge rather than the first call.
+         */
+        public boolean isHedgeWon() {
+            return hedgeWon;
+        }
+
+        /**
+         * The hedge as it was sent, or null if it wasn't.
+         */
+        public Request getHedgeRequest() {
+            return hedgeRequest;
+        }
+
+        /**
+         * The retries of the attempt whose response or failure was passed on, or null if retries aren't counted.
+         */
+        public RetryInterceptor.Attempts getAttempts() {
+            final Request result = delivered;
+            return (result == null ? request : result).tag(RetryInterceptor.Attempts.class);
+        }
+
+        public void cancel() {
+            final Call first;
+            final Call second;
+            synchronized (this) {
+                finished = true;
+                if (hedgeTimer != null) {
+                    hedgeTimer.cancel(false);
+                }
+                first = primary;
+                second = hedge;
+            }
+            first.cancel();
+            if (second != null) {
+                second.cancel();
+            }
+        }
+
+        private final class Leg implements Callback {
+            private final boolean isHedge;
+
+            private Leg(boolean isHedge) {
+                this.isHedge = isHedge;
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                final Call loser;
+                final boolean primaryRunning;
+                synchronized (HedgedCall.this) {
+                    if (finished) {
+                        response.close();
+                        return;
+                    }
+                    finished = true;
+                    if (hedgeTimer != null) {
+                        hedgeTimer.cancel(false);
+                    }
+                    loser = isHedge ? primary : hedge;
+                    primaryRunning = !isHedge || running == 2;
+                }
+                // the first request's own response time, or, before it is cancelled, the time it had run when it lost
+                if (primaryRunning) {
+                    record(System.nanoTime() - startNanos);
+                }
+                hedgeWon = isHedge;
+                delivered = isHedge ? hedgeRequest : request;
+                if (loser != null) {
+                    loser.cancel();
+                }
+                callback.onResponse(call, response);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                synchronized (HedgedCall.this) {
+                    // as long as the other attempt may still succeed, wait for it
+                    if (finished || --running > 0) {
+                        return;
+                    }
+                    finished = true;
+                    if (hedgeTimer != null) {
+                        hedgeTimer.cancel(false);
+                    }
+                }
+                delivered = isHedge ? hedgeRequest : request;
+                callback.onFailure(call, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package nifi.processors.demo.limit;
+
+/**
+ * Additive increase, multiplicative decrease: every successful request that used at least half of the limit raises
+ * it by one, every dropped request cuts it by the backoff ratio.
+ */
+public class AimdLimit implements LimitAlgorithm {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private int limit;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+        } else if (inFlight * 2 >= limit) {
+            // don't grow the limit while the host isn't even getting half of it
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,108 @@
+package nifi.processors.demo.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Limits the requests in flight to each host. The limit of a host adapts to the RTT and drops of the requests that
+ * complete, so a host that slows down gets fewer concurrent requests instead of more blocked ones.
+ * <p>
+ * {@link #tryAcquire(String)} never blocks; when a host is at its limit the caller is expected to put the work back
+ * and try again later.
+ */
+public class ConcurrencyLimiter {
+
+    private final Supplier<LimitAlgorithm> algorithms;
+    private final ConcurrentMap<String, HostLimit> hosts = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiter(Supplier<LimitAlgorithm> algorithms) {
+        this.algorithms = algorithms;
+    }
+
+    /**
+     * Returns a permit for one request to the host, or null if the host already has as many requests in flight
+     * as its limit allows.
+     */
+    public Permit tryAcquire(String host) {
+        final HostLimit hostLimit = hosts.computeIfAbsent(host, h -> new HostLimit(algorithms.get()));
+        return hostLimit.tryAcquire() ? new Permit(hostLimit) : null;
+    }
+
+    public int getLimit(String host) {
+        final HostLimit hostLimit = hosts.get(host);
+        return hostLimit == null ? -1 : hostLimit.limit;
+    }
+
+    public int getInFlight(String host) {
+        final HostLimit hostLimit = hosts.get(host);
+        return hostLimit == null ? 0 : hostLimit.inFlight.get();
+    }
+
+    private static final class HostLimit {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LimitAlgorithm algorithm;
+        private volatile int limit;
+
+        private HostLimit(LimitAlgorithm algorithm) {
+            this.algorithm = algorithm;
+            this.limit = algorithm.getLimit();
+        }
+
+        private boolean tryAcquire() {
+            for (;;) {
+                final int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release(long rttNanos, boolean dropped, boolean sample) {
+            final int current = inFlight.getAndDecrement();
+            if (sample) {
+                synchronized (algorithm) {
+                    limit = algorithm.onSample(rttNanos, current, dropped);
+                }
+            }
+        }
+    }
+
+    /**
+     * One request's share of a host's limit. Only the first of the release methods has any effect.
+     */
+    public static final class Permit {
+        private final HostLimit hostLimit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(HostLimit hostLimit) {
+            this.hostLimit = hostLimit;
+        }
+
+        public void onSuccess(long rttNanos) {
+            if (released.compareAndSet(false, true)) {
+                hostLimit.release(rttNanos, false, true);
+            }
+        }
+
+        public void onDropped() {
+            if (released.compareAndSet(false, true)) {
+                hostLimit.release(0, true, true);
+            }
+        }
+
+        /**
+         * Releases the permit without telling the limit anything, e.g. because the request never reached the host.
+         */
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) {
+                hostLimit.release(0, false, false);
+            }
+        }
+    }
+}
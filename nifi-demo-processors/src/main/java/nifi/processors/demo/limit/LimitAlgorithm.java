@@ -0,0 +1,20 @@
+package nifi.processors.demo.limit;
+
+/**
+ * Decides how many requests may be in flight to one host, based on the outcome of the requests that completed.
+ * Calls are serialized by the caller.
+ */
+public interface LimitAlgorithm {
+
+    int getLimit();
+
+    /**
+     * Updates the limit with a completed request.
+     *
+     * @param rttNanos time from sending the request until its response arrived
+     * @param inFlight requests that were in flight when this one completed, including itself
+     * @param dropped  whether the request timed out, failed or was rejected because the host is overloaded
+     * @return the new limit
+     */
+    int onSample(long rttNanos, int inFlight, boolean dropped);
+}
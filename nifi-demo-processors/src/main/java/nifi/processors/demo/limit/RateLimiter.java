@@ -0,0 +1,151 @@
+package nifi.processors.demo.limit;
+
+import okhttp3.Headers;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets, one per key. Each bucket is a single "theoretical arrival time" (GCRA): a request is
+ * allowed if, after adding one emission interval, the bucket is no more than a full burst ahead of now. Besides the
+ * configured rate, a key can be paused because the server asked for it, e.g. with Retry-After.
+ */
+public class RateLimiter {
+
+    /**
+     * Beyond this many keys, buckets that are idle are dropped so that high-cardinality keys don't pile up.
+     */
+    private static final int MAX_IDLE_KEYS = 10_000;
+
+    /**
+     * The server can't make us wait longer than this.
+     */
+    private static final long MAX_PAUSE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond the sustained rate per key, or 0 to only honour pauses
+     * @param burst            how many requests a key that has been idle may send at once
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+    }
+
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    boolean tryAcquire(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= MAX_IDLE_KEYS) {
+                buckets.values().removeIf(b -> b.isIdle(now));
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * Stops handing out permits for the key until the given time.
+     */
+    public void pause(String key, long delayNanos) {
+        final long now = System.nanoTime();
+        final long until = now + Math.min(delayNanos, MAX_PAUSE_NANOS);
+        buckets.computeIfAbsent(key, k -> new Bucket(now)).pauseUntil(until);
+    }
+
+    /**
+     * How long the server wants the client to back off, from Retry-After on a 429 or 503, or from an exhausted
+     * X-RateLimit-Remaining / RateLimit-Remaining with the matching reset header. Returns -1 if it didn't say.
+     */
+    public static long backoffNanos(int statusCode, Headers headers, long nowMillis) {
+        if (statusCode == 429 || statusCode == 503) {
+            final String retryAfter = headers.get("Retry-After");
+            if (retryAfter != null) {
+                final long seconds = parseLong(retryAfter.trim());
+                if (seconds >= 0) {
+                    return TimeUnit.SECONDS.toNanos(seconds);
+                }
+                final Date date = headers.getDate("Retry-After");
+                if (date != null) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, date.getTime() - nowMillis));
+                }
+            }
+        }
+
+        for (String prefix : new String[]{"X-RateLimit-", "RateLimit-"}) {
+            final String remaining = headers.get(prefix + "Remaining");
+            final String reset = headers.get(prefix + "Reset");
+            if (remaining == null || reset == null || parseLong(remaining.trim()) != 0) {
+                continue;
+            }
+            final long value = parseLong(reset.trim());
+            if (value < 0) {
+                continue;
+            }
+            // some APIs send the epoch second of the reset, others the seconds until it
+            final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(nowMillis);
+            return TimeUnit.SECONDS.toNanos(value > nowSeconds / 2 ? Math.max(0, value - nowSeconds) : value);
+        }
+        return -1;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private final class Bucket {
+        private final AtomicLong theoreticalArrival;
+        private final AtomicLong pausedUntil = new AtomicLong();
+
+        private Bucket(long now) {
+            // a new key starts with a full burst
+            theoreticalArrival = new AtomicLong(now - burstNanos);
+        }
+
+        private boolean tryAcquire(long now) {
+            final long paused = pausedUntil.get();
+            if (paused != 0 && now - paused < 0) {
+                return false;
+            }
+            if (intervalNanos == 0) {
+                return true;
+            }
+            for (;;) {
+                final long tat = theoreticalArrival.get();
+                final long next = Math.max(tat - now, 0) + now + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(tat, next)) {
+                    return true;
+                }
+            }
+        }
+
+        private void pauseUntil(long until) {
+            pausedUntil.accumulateAndGet(until, (current, proposed) -> current == 0 || proposed - current > 0 ? proposed : current);
+        }
+
+        private boolean isIdle(long now) {
+            final long paused = pausedUntil.get();
+            return now - theoreticalArrival.get() >= burstNanos && (paused == 0 || now - paused >= 0);
+        }
+    }
+}
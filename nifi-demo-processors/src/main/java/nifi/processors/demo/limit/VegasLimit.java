@@ -0,0 +1,68 @@
+package nifi.processors.demo.limit;
+
+/**
+ * Delay based limit in the style of TCP Vegas. The lowest RTT seen is taken as the latency of an idle host, and the
+ * queue building up at the host is estimated from how much slower the current requests are. A short queue grows the
+ * limit, a long one or a dropped request shrinks it, by steps of log10 of the limit.
+ * <p>
+ * Every so often the idle latency is re-measured, so that the limit can recover when the host gets permanently slower.
+ */
+public class VegasLimit implements LimitAlgorithm {
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int maxLimit;
+    private double limit;
+    private long rttNoLoad;
+    private long probeCountdown;
+
+    public VegasLimit(int initialLimit, int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(1, Math.min(maxLimit, initialLimit));
+        resetProbe();
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public int onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (--probeCountdown <= 0 && !dropped) {
+            resetProbe();
+            rttNoLoad = rttNanos;
+            return getLimit();
+        }
+
+        if (!dropped && (rttNoLoad == 0 || rttNanos < rttNoLoad)) {
+            rttNoLoad = rttNanos;
+            return getLimit();
+        }
+
+        final double step = Math.max(1, Math.log10(limit));
+        final double queueSize = rttNoLoad <= 0 ? 0 : Math.ceil(limit * (1 - (double) rttNoLoad / rttNanos));
+        final double alpha = 3 * step;
+        final double beta = 6 * step;
+
+        double newLimit = limit;
+        if (dropped) {
+            newLimit = limit - step;
+        } else if (inFlight * 2 < limit) {
+            // the host isn't using the limit, there's nothing to learn
+            return getLimit();
+        } else if (queueSize <= step) {
+            newLimit = limit + beta;
+        } else if (queueSize < alpha) {
+            newLimit = limit + step;
+        } else if (queueSize > beta) {
+            newLimit = limit - step;
+        }
+
+        limit = Math.max(1, Math.min(maxLimit, newLimit));
+        return getLimit();
+    }
+
+    private void resetProbe() {
+        probeCountdown = PROBE_MULTIPLIER * (long) Math.max(1, limit);
+    }
+}
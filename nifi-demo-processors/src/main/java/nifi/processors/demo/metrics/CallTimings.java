@@ -0,0 +1,171 @@
+package nifi.processors.demo.metrics;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timestamps of one call, collected from OkHttp's call events. An instance travels with its request as a tag and
+ * {@link #FACTORY} hands it to OkHttp as the call's listener; when the call ends, the timings are recorded in the
+ * {@link LatencyMetrics} of the processor.
+ * <p>
+ * The events of a call are delivered one after the other, either on the calling thread or on a dispatcher thread
+ * whose completion the processor waits for, so the fields need no synchronization.
+ */
+public class CallTimings extends EventListener {
+
+    /**
+     * Uses the timings tagged on the request as the call's listener, calls without them aren't observed.
+     */
+    public static final EventListener.Factory FACTORY = call -> {
+        final CallTimings timings = call.request().tag(CallTimings.class);
+        return timings == null ? EventListener.NONE : timings;
+    };
+
+    public static final String LATENCY_DNS_CONNECT = "invokehttp.latency.dns.connect.ms";
+    public static final String LATENCY_TLS = "invokehttp.latency.tls.ms";
+    public static final String LATENCY_TTFB = "invokehttp.latency.ttfb.ms";
+    public static final String LATENCY_TOTAL = "invokehttp.latency.total.ms";
+
+    private final LatencyMetrics metrics;
+    private final String host;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long connectEnd;
+    private long secureConnectStart;
+    private long secureConnectEnd;
+    private long responseHeadersStart;
+    private long callEnd;
+    private int statusCode;
+
+    public CallTimings(LatencyMetrics metrics, String host) {
+        this.metrics = metrics;
+        this.host = host;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        // the same request can be sent more than once, every call starts from scratch
+        callStart = System.nanoTime();
+        dnsStart = connectStart = connectEnd = secureConnectStart = secureConnectEnd = responseHeadersStart = callEnd = 0;
+        statusCode = 0;
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        if (dnsStart == 0) {
+            dnsStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        if (connectStart == 0) {
+            connectStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        secureConnectEnd = System.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        connectEnd = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (responseHeadersStart == 0) {
+            responseHeadersStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        // after redirects this is the status of the final response
+        statusCode = response.code();
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        callEnd = System.nanoTime();
+        metrics.record(host, statusClass(statusCode), this);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        callEnd = System.nanoTime();
+        metrics.record(host, "failed", this);
+    }
+
+    static String statusClass(int statusCode) {
+        return statusCode < 100 || statusCode > 599 ? "failed" : (statusCode / 100) + "xx";
+    }
+
+    public boolean isStarted() {
+        return callStart != 0;
+    }
+
+    /**
+     * Name resolution and TCP connect, or -1 if the call reused a pooled connection.
+     */
+    public long getDnsConnectNanos() {
+        final long start = dnsStart != 0 ? dnsStart : connectStart;
+        return start == 0 || connectEnd == 0 ? -1 : connectEnd - start;
+    }
+
+    /**
+     * The TLS handshake, or -1 if there was none.
+     */
+    public long getTlsNanos() {
+        return secureConnectStart == 0 || secureConnectEnd == 0 ? -1 : secureConnectEnd - secureConnectStart;
+    }
+
+    /**
+     * From the start of the call until the first byte of the response, or -1 if no response arrived.
+     */
+    public long getTimeToFirstByteNanos() {
+        return responseHeadersStart == 0 ? -1 : responseHeadersStart - callStart;
+    }
+
+    /**
+     * From the start of the call until the response body was consumed. While the body is still being read,
+     * this is the time so far.
+     */
+    public long getTotalNanos() {
+        return (callEnd != 0 ? callEnd : System.nanoTime()) - callStart;
+    }
+
+    public Map<String, String> toAttributes() {
+        final Map<String, String> attributes = new HashMap<>();
+        putMillis(attributes, LATENCY_DNS_CONNECT, getDnsConnectNanos());
+        putMillis(attributes, LATENCY_TLS, getTlsNanos());
+        putMillis(attributes, LATENCY_TTFB, getTimeToFirstByteNanos());
+        putMillis(attributes, LATENCY_TOTAL, getTotalNanos());
+        return attributes;
+    }
+
+    private static void putMillis(Map<String, String> attributes, String name, long nanos) {
+        if (nanos >= 0) {
+            attributes.put(name, String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos)));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package nifi.processors.demo.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.processor.ProcessSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms per target host and status class. Calls record into lock-free HdrHistogram recorders from
+ * any thread; every report interval one of the processor's threads takes the interval histograms and publishes
+ * their percentiles as counters and a bulletin. A target without calls for a whole interval is dropped, and only
+ * so many are kept at once, so that a Remote URL over many hosts doesn't keep histograms for all of them.
+ */
+public class LatencyMetrics {
+
+    public enum Phase {
+        DNS_CONNECT("dns+connect"),
+        TLS("tls"),
+        TTFB("ttfb"),
+        TOTAL("total");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p99", "p999"};
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * The most targets with histograms of their own; calls to hosts beyond that are recorded under {@link #OTHER_HOSTS}.
+     */
+    static final int MAX_TARGETS = 256;
+    static final String OTHER_HOSTS = "other";
+
+    private final ConcurrentMap<String, Target> targets = new ConcurrentHashMap<>();
+    private final AtomicLong nextReportNanos = new AtomicLong(System.nanoTime());
+    private volatile long reportIntervalNanos = TimeUnit.MINUTES.toNanos(1);
+
+    // NiFi counters only add up, so percentiles are published as the difference to the last published value
+    private final Map<String, Long> publishedCounters = new HashMap<>();
+
+    public void setReportInterval(long interval, TimeUnit unit) {
+        reportIntervalNanos = unit.toNanos(interval);
+        nextReportNanos.set(System.nanoTime() + reportIntervalNanos);
+    }
+
+    public void record(String host, String statusClass, CallTimings timings) {
+        Target target = targets.get(host + ' ' + statusClass);
+        if (target == null) {
+            final String targetHost = targets.size() < MAX_TARGETS ? host : OTHER_HOSTS;
+            target = targets.computeIfAbsent(targetHost + ' ' + statusClass, key -> new Target(targetHost, statusClass));
+        }
+        target.record(Phase.DNS_CONNECT, timings.getDnsConnectNanos());
+        target.record(Phase.TLS, timings.getTlsNanos());
+        target.record(Phase.TTFB, timings.getTimeToFirstByteNanos());
+        target.record(Phase.TOTAL, timings.getTotalNanos());
+    }
+
+    /**
+     * Publishes the latencies recorded since the last report if the report interval has passed. Only one of the
+     * threads calling this at the same time does the work, the others return straight away.
+     */
+    public void reportIfDue(ProcessSession session, ComponentLog logger) {
+        final long now = System.nanoTime();
+        final long due = nextReportNanos.get();
+        if (now - due < 0 || !nextReportNanos.compareAndSet(due, now + reportIntervalNanos)) {
+            return;
+        }
+        report(session, logger, now - due + reportIntervalNanos);
+    }
+
+    private synchronized void report(ProcessSession session, ComponentLog logger, long elapsedNanos) {
+        final double elapsedSeconds = Math.max(1d, elapsedNanos / 1_000_000_000d);
+        final List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            final Target target = entry.getValue();
+            final Histogram total = target.interval(Phase.TOTAL);
+            final long calls = total.getTotalCount();
+            if (calls == 0) {
+                // a call recorded since the interval was taken is lost with the target, which is fine for an idle one
+                targets.remove(entry.getKey(), target);
+                for (Phase phase : Phase.values()) {
+                    retractGauges(session, phase, target);
+                }
+                continue;
+            }
+            session.adjustCounter("Calls " + target.name(), calls, false);
+
+            final StringBuilder line = new StringBuilder(target.name())
+                    .append(": ").append(calls).append(" calls, ")
+                    .append(String.format("%.1f", calls / elapsedSeconds)).append("/s");
+            for (Phase phase : Phase.values()) {
+                final Histogram histogram = phase == Phase.TOTAL ? total : target.interval(phase);
+                if (histogram.getTotalCount() == 0) {
+                    retractGauges(session, phase, target);
+                    continue;
+                }
+                line.append("; ").append(phase.getLabel());
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    final long micros = histogram.getValueAtPercentile(PERCENTILES[i]);
+                    publishGauge(session, gaugeName(phase, i, target), micros);
+                    line.append(' ').append(PERCENTILE_LABELS[i]).append('=').append(String.format("%.1f", micros / 1000d));
+                }
+                line.append(" ms");
+            }
+            lines.add(line.toString());
+        }
+
+        if (!lines.isEmpty()) {
+            lines.sort(null);
+            logger.info("Latency over the last {} s: {}", new Object[]{Math.round(elapsedSeconds), String.join(" | ", lines)});
+        }
+    }
+
+    private void publishGauge(ProcessSession session, String name, long value) {
+        final Long previous = publishedCounters.put(name, value);
+        final long delta = value - (previous == null ? 0 : previous);
+        if (delta != 0) {
+            session.adjustCounter(name, delta, false);
+        }
+    }
+
+    /**
+     * Takes the published percentiles of a phase without values back to zero, rather than leave the last ones standing.
+     */
+    private void retractGauges(ProcessSession session, Phase phase, Target target) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            final String name = gaugeName(phase, i, target);
+            final Long previous = publishedCounters.remove(name);
+            if (previous != null && previous != 0) {
+                session.adjustCounter(name, -previous, false);
+            }
+        }
+    }
+
+    private static String gaugeName(Phase phase, int percentile, Target target) {
+        return "Latency " + phase.getLabel() + " " + PERCENTILE_LABELS[percentile] + " (us) " + target.name();
+    }
+
+    int size() {
+        return targets.size();
+    }
+
+    private static final class Target {
+        private final String host;
+        private final String statusClass;
+        private final Recorder[] recorders = new Recorder[Phase.values().length];
+        private final Histogram[] recycled = new Histogram[Phase.values().length];
+
+        private Target(String host, String statusClass) {
+            this.host = host;
+            this.statusClass = statusClass;
+            for (int i = 0; i < recorders.length; i++) {
+                recorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+            }
+        }
+
+        private void record(Phase phase, long nanos) {
+            if (nanos >= 0) {
+                recorders[phase.ordinal()].recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+
+        /**
+         * The values recorded since the previous call, reusing the histogram handed out last time.
+         */
+        private Histogram interval(Phase phase) {
+            final int i = phase.ordinal();
+            recycled[i] = recorders[i].getIntervalHistogram(recycled[i]);
+            return recycled[i];
+        }
+
+        private String name() {
+            return host + " " + statusClass;
+        }
+    }
+}
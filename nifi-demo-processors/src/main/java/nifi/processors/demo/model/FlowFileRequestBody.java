@@ -0,0 +1,217 @@
+package nifi.processors.demo.model;
+
+import nifi.processors.demo.compress.ContentCoding;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.ProcessSession;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streams a FlowFile's content straight from the content repository into the sink's Okio segments.
+ * <p>
+ * By default the content is read with a session callback on every write, so the body can be re-sent on redirects
+ * and retries. A NiFi session must only be used by the thread that owns it, so a body that is going to be written
+ * by an OkHttp dispatcher thread is created one-shot: the owning thread calls {@link #open()} beforehand and
+ * {@link #close()} afterwards, and the body is never written twice.
+ * <p>
+ * With a content coding the content is compressed on its way into the sink, and the body has no known length.
+ */
+public class FlowFileRequestBody extends RequestBody {
+    private final ProcessSession session;
+    private final FlowFile flowFile;
+    private final MediaType contentType;
+    private final boolean chunked;
+    private final long bufferSize;
+    private final ContentCoding coding;
+    private final int compressionLevel;
+    private final boolean oneShot;
+
+    private volatile InputStream stream;
+    private volatile long bytesWritten;
+    private volatile long compressedBytes = -1;
+    private volatile long writeNanos;
+
+    public FlowFileRequestBody(ProcessSession session, FlowFile flowFile, MediaType contentType, boolean chunked, long bufferSize) {
+        this(session, flowFile, contentType, chunked, bufferSize, null, -1, false);
+    }
+
+    /**
+     * @param coding           the coding to compress the content with, or null to send it as it is
+     * @param compressionLevel the compression level, or -1 for the coding's default
+     * @param oneShot          whether the body is written by a dispatcher thread from a stream opened beforehand
+     */
+    public FlowFileRequestBody(ProcessSession session, FlowFile flowFile, MediaType contentType, boolean chunked, long bufferSize,
+                               ContentCoding coding, int compressionLevel, boolean oneShot) {
+        this.session = session;
+        this.flowFile = flowFile;
+        this.contentType = contentType;
+        this.chunked = chunked;
+        this.bufferSize = bufferSize;
+        this.coding = coding;
+        this.compressionLevel = compressionLevel;
+        this.oneShot = oneShot;
+    }
+
+    /**
+     * The FlowFile content a request body streams: the body itself, the content part of a form, or null.
+     */
+    public static FlowFileRequestBody contentOf(RequestBody body) {
+        if (body instanceof FlowFileRequestBody) {
+            return (FlowFileRequestBody) body;
+        }
+        if (body instanceof FormRequestBody) {
+            return ((FormRequestBody) body).getContent();
+        }
+        return null;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return chunked || coding != null ? -1 : flowFile.getSize();
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return oneShot;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        final long startNanos = System.nanoTime();
+        final long[] count = new long[1];
+        final CountingOutputStream compressed = coding == null ? null : new CountingOutputStream(sink.outputStream());
+        final BufferedSink target = compressed == null ? sink : Okio.buffer(Okio.sink(coding.getEncoder().encode(compressed, compressionLevel)));
+        try {
+            final InputStream in = stream;
+            if (in != null) {
+                count[0] = transfer(in, target);
+            } else if (oneShot) {
+                throw new IOException("The content of " + flowFile + " was not opened for writing");
+            } else {
+                session.read(flowFile, rawIn -> count[0] = transfer(rawIn, target));
+            }
+        } finally {
+            if (compressed != null) {
+                // finishes the compressed data, the sink itself stays open
+                target.close();
+            }
+        }
+        bytesWritten = count[0];
+        if (compressed != null) {
+            compressedBytes = compressed.count;
+        }
+        writeNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Reads into the sink's own buffer and only hands complete segments to the socket once a full buffer
+     * has been collected, so there is no intermediate byte[] and no OutputStream adapter.
+     */
+    private long transfer(InputStream in, BufferedSink sink) throws IOException {
+        final Source source = Okio.source(in);
+        final Buffer buffer = sink.getBuffer();
+        long total = 0;
+        long read;
+        while ((read = source.read(buffer, bufferSize)) != -1) {
+            total += read;
+            if (buffer.size() >= bufferSize) {
+                sink.emitCompleteSegments();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Opens the content stream of a one-shot body on the calling thread, which must own the session.
+     */
+    public void open() {
+        if (!oneShot) {
+            throw new IllegalStateException("Only a one-shot body is opened ahead of being written");
+        }
+        if (stream == null) {
+            stream = session.read(flowFile);
+        }
+    }
+
+    /**
+     * Closes the stream opened by {@link #open()}, on the thread that owns the session.
+     */
+    public void close() throws IOException {
+        final InputStream in = stream;
+        stream = null;
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * The coding the content is compressed with, or null.
+     */
+    public ContentCoding getContentCoding() {
+        return coding;
+    }
+
+    /**
+     * The size of the content after compression when it was last written, or -1 if it isn't compressed.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * The rate at which the body was last written, or -1 if it hasn't been.
+     */
+    public long getBytesPerSecond() {
+        final long nanos = writeNanos;
+        if (bytesWritten == 0 || nanos <= 0) {
+            return -1;
+        }
+        return (long) (bytesWritten * 1_000_000_000d / nanos);
+    }
+
+    /**
+     * Counts the compressed bytes on their way into the sink, and leaves the sink open, because it belongs to OkHttp.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package nifi.processors.demo.model;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.processor.ProcessSession;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A multipart/form-data body of a FlowFile: its form fields, then its content as a file part that is streamed from
+ * the content repository like any other {@link FlowFileRequestBody}, so the body is never held in memory.
+ * <p>
+ * OkHttp's own multipart body doesn't know its parts may be one-shot, so it is wrapped to tell OkHttp not to
+ * write it again when the content part is written by a dispatcher thread.
+ */
+public class FormRequestBody extends RequestBody {
+    private final MultipartBody multipart;
+    private final FlowFileRequestBody content;
+
+    private FormRequestBody(MultipartBody multipart, FlowFileRequestBody content) {
+        this.multipart = multipart;
+        this.content = content;
+    }
+
+    /**
+     * @param fields      the form fields, in the order they are to be sent
+     * @param contentName the name of the content's part, or null to send the form fields only
+     * @param oneShot     whether the content is written by a dispatcher thread, see {@link FlowFileRequestBody}
+     */
+    public static FormRequestBody create(ProcessSession session, RequestPlan plan, FlowFile flowFile, Map<String, String> fields, String contentName,
+                                         boolean oneShot) {
+        final MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            builder.addFormDataPart(field.getKey(), field.getValue());
+        }
+        FlowFileRequestBody content = null;
+        if (contentName != null) {
+            content = new FlowFileRequestBody(session, flowFile, plan.contentType(flowFile), plan.isChunked(), plan.getRequestBufferSize(), null, -1, oneShot);
+            final String filename = plan.isFormFilename() ? flowFile.getAttribute(CoreAttributes.FILENAME.key()) : null;
+            builder.addFormDataPart(contentName, filename, content);
+        }
+        return new FormRequestBody(builder.build(), content);
+    }
+
+    /**
+     * The content's part, or null if the form has none.
+     */
+    public FlowFileRequestBody getContent() {
+        return content;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return multipart.contentType();
+    }
+
+    /**
+     * Only known if the content's part has a known length, i.e. unless chunked transfer is used.
+     */
+    @Override
+    public long contentLength() throws IOException {
+        return multipart.contentLength();
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return content != null && content.isOneShot();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        multipart.writeTo(sink);
+    }
+}
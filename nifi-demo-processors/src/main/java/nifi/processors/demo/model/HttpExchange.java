@@ -0,0 +1,286 @@
+package nifi.processors.demo.model;
+
+import nifi.processors.demo.balance.LoadBalancer;
+import nifi.processors.demo.breaker.CircuitBreaker;
+import nifi.processors.demo.cache.SingleFlight;
+import nifi.processors.demo.hedge.Hedger;
+import nifi.processors.demo.limit.ConcurrencyLimiter;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.nifi.flowfile.FlowFile;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A single request/response cycle for one (possibly null) request FlowFile, or for all FlowFiles of a bulk request.
+ * The result is filled in either by the calling thread or by an OkHttp dispatcher thread,
+ * but the session is only ever touched by the thread that runs onTrigger.
+ */
+public class HttpExchange {
+    private final FlowFile requestFlowFile;
+    private final List<FlowFile> requestFlowFiles;
+    private final URL url;
+    private final Request request;
+    private final UUID txId = UUID.randomUUID();
+
+    private String cacheKey;
+    private boolean cachedResponse;
+    private SingleFlight.Flight flight;
+    private ConcurrencyLimiter.Permit permit;
+    private CircuitBreaker.Permit circuitPermit;
+    private String rateLimitKey;
+    private LoadBalancer.Selection selection;
+
+    private volatile Call call;
+    private volatile Hedger.HedgedCall hedgedCall;
+    private volatile long startNanos;
+    private volatile Request answeredRequest;
+    private volatile Response response;
+    private volatile Exception failure;
+
+    public HttpExchange(FlowFile requestFlowFile, URL url, Request request) {
+        this.requestFlowFile = requestFlowFile;
+        this.requestFlowFiles = requestFlowFile == null ? Collections.emptyList() : Collections.singletonList(requestFlowFile);
+        this.url = url;
+        this.request = request;
+    }
+
+    /**
+     * A bulk request, which has no single request FlowFile.
+     */
+    public HttpExchange(List<FlowFile> requestFlowFiles, URL url, Request request) {
+        this.requestFlowFile = null;
+        this.requestFlowFiles = requestFlowFiles;
+        this.url = url;
+        this.request = request;
+    }
+
+    /**
+     * The request FlowFile, or null for a source request or a bulk request.
+     */
+    public FlowFile getRequestFlowFile() {
+        return requestFlowFile;
+    }
+
+    /**
+     * All FlowFiles the request was made for, empty for a source request.
+     */
+    public List<FlowFile> getRequestFlowFiles() {
+        return requestFlowFiles;
+    }
+
+    public boolean isBulk() {
+        return requestFlowFile == null && !requestFlowFiles.isEmpty();
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    public UUID getTxId() {
+        return txId;
+    }
+
+    /**
+     * The response cache key, or null if the request is not eligible for the response cache.
+     */
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    /**
+     * Whether the response was served from the response cache without any network I/O.
+     */
+    public boolean isCachedResponse() {
+        return cachedResponse;
+    }
+
+    public void setCachedResponse(boolean cachedResponse) {
+        this.cachedResponse = cachedResponse;
+    }
+
+    /**
+     * The single flight this exchange leads or follows, or null if it is not coalesced.
+     */
+    public SingleFlight.Flight getFlight() {
+        return flight;
+    }
+
+    public void setFlight(SingleFlight.Flight flight) {
+        this.flight = flight;
+    }
+
+    public ConcurrencyLimiter.Permit getPermit() {
+        return permit;
+    }
+
+    public void setPermit(ConcurrencyLimiter.Permit permit) {
+        this.permit = permit;
+    }
+
+    public CircuitBreaker.Permit getCircuitPermit() {
+        return circuitPermit;
+    }
+
+    public void setCircuitPermit(CircuitBreaker.Permit circuitPermit) {
+        this.circuitPermit = circuitPermit;
+    }
+
+    /**
+     * The key of the rate limit the request was admitted by, or null if requests aren't rate limited.
+     */
+    public String getRateLimitKey() {
+        return rateLimitKey;
+    }
+
+    public void setRateLimitKey(String rateLimitKey) {
+        this.rateLimitKey = rateLimitKey;
+    }
+
+    /**
+     * The endpoint the load balancer picked for the request, or null if requests aren't balanced.
+     */
+    public LoadBalancer.Selection getSelection() {
+        return selection;
+    }
+
+    public void setSelection(LoadBalancer.Selection selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * Records the request of the call that passed on the response or failure, which is the hedge if the hedge won.
+     */
+    public void setAnsweredRequest(Request answeredRequest) {
+        this.answeredRequest = answeredRequest;
+    }
+
+    /**
+     * The URL of the request that answered: the hedge's if it was sent to another endpoint and won, otherwise the URL
+     * of the request itself.
+     */
+    public URL getAnsweredUrl() {
+        final Request answered = answeredRequest;
+        return answered != null && answered.tag(LoadBalancer.Selection.class) != null ? answered.url().url() : url;
+    }
+
+    /**
+     * Releases the endpoint that answered with the outcome of the request: the one of the hedge if it was sent to
+     * another endpoint and won, otherwise the request's own. The other leg is released by {@link #releaseSelections()}.
+     */
+    public void releaseAnsweredSelection(boolean success) {
+        final Request answered = answeredRequest;
+        final LoadBalancer.Selection hedgeSelection = answered == null ? null : answered.tag(LoadBalancer.Selection.class);
+        final LoadBalancer.Selection answeredSelection = hedgeSelection != null ? hedgeSelection : selection;
+        if (answeredSelection != null) {
+            answeredSelection.release(success);
+        }
+    }
+
+    /**
+     * Releases the endpoints of the request and of its hedge without counting an outcome, unless they were released
+     * already.
+     */
+    public void releaseSelections() {
+        if (selection != null) {
+            selection.release();
+        }
+        final Hedger.HedgedCall hedged = hedgedCall;
+        final Request hedge = hedged == null ? null : hedged.getHedgeRequest();
+        final LoadBalancer.Selection hedgeSelection = hedge == null ? null : hedge.tag(LoadBalancer.Selection.class);
+        if (hedgeSelection != null) {
+            hedgeSelection.release();
+        }
+    }
+
+    public Call getCall() {
+        return call;
+    }
+
+    public void setCall(Call call) {
+        this.call = call;
+    }
+
+    public Hedger.HedgedCall getHedgedCall() {
+        return hedgedCall;
+    }
+
+    public void setHedgedCall(Hedger.HedgedCall hedgedCall) {
+        this.hedgedCall = hedgedCall;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public void setStartNanos(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public void setResponse(Response response) {
+        this.response = response;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public void setFailure(Exception failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Closes the request body's content stream, if it was opened for an asynchronous call.
+     * Must be called on the thread that owns the session.
+     */
+    public void closeRequestBody() throws IOException {
+        final FlowFileRequestBody content = FlowFileRequestBody.contentOf(request.body());
+        if (content != null) {
+            content.close();
+        }
+    }
+
+    /**
+     * Cancels the call if it is still running and releases any response that was not consumed.
+     */
+    public void abandon() {
+        if (permit != null) {
+            permit.onIgnore();
+        }
+        if (circuitPermit != null) {
+            circuitPermit.onIgnore();
+        }
+        if (call != null) {
+            call.cancel();
+        }
+        if (hedgedCall != null) {
+            hedgedCall.cancel();
+        }
+        releaseSelections();
+        if (response != null) {
+            response.close();
+        }
+        try {
+            closeRequestBody();
+        } catch (final IOException ignored) {
+            // the session is about to be rolled back anyway
+        }
+    }
+}
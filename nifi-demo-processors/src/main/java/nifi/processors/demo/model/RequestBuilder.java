@@ -1,18 +1,12 @@
 package nifi.processors.demo.model;
 
-import nifi.processors.demo.properties.Descriptions;
-import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okio.BufferedSink;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.nifi.flowfile.FlowFile;
 import org.apache.nifi.logging.ComponentLog;
-import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
 
-import java.io.IOException;
 import java.net.URL;
 import java.security.Principal;
 import java.util.Collection;
@@ -32,26 +26,15 @@ public class RequestBuilder {
     public final static String REMOTE_DN = "invokehttp.remote.dn";
     public final static String EXCEPTION_CLASS = "invokehttp.java.exception.class";
     public final static String EXCEPTION_MESSAGE = "invokehttp.java.exception.message";
-    public static RequestBody getRequestBodyToSend(final ProcessSession session, final ProcessContext context, final FlowFile requestFlowFile, boolean useChunked) {
-        if(context.getProperty(Descriptions.PROP_SEND_BODY).asBoolean()) {
-            return new RequestBody() {
-                @Override
-                public MediaType contentType() {
-                    String contentType = context.getProperty(Descriptions.PROP_CONTENT_TYPE).evaluateAttributeExpressions(requestFlowFile).getValue();
-                    contentType = StringUtils.isBlank(contentType) ? Descriptions.DEFAULT_CONTENT_TYPE : contentType;
-                    return MediaType.parse(contentType);
-                }
-
-                @Override
-                public void writeTo(BufferedSink sink) throws IOException {
-                    session.exportTo(requestFlowFile, sink.outputStream());
-                }
-
-                @Override
-                public long contentLength(){
-                    return useChunked ? -1 : requestFlowFile.getSize();
-                }
-            };
+    /**
+     * @param oneShot whether the content is written by a dispatcher thread, see {@link FlowFileRequestBody}
+     */
+    public static RequestBody getRequestBodyToSend(final ProcessSession session, final RequestPlan plan, final FlowFile requestFlowFile, final boolean oneShot) {
+        if (plan.isForm()) {
+            return FormRequestBody.create(session, plan, requestFlowFile, plan.formFields(requestFlowFile), plan.formContentName(requestFlowFile), oneShot);
+        } else if(plan.isSendBody()) {
+            return new FlowFileRequestBody(session, requestFlowFile, plan.contentType(requestFlowFile), plan.isChunked(), plan.getRequestBufferSize(),
+                    plan.requestCompression(requestFlowFile), plan.getRequestCompressionLevel(), oneShot);
         } else {
             return RequestBody.create(null, new byte[0]);
         }
@@ -79,7 +62,7 @@ public class RequestBuilder {
             map.put(key, value);
         });
 
-        if (responseHttp.request().isHttps()) {
+        if (responseHttp.request().isHttps() && responseHttp.handshake() != null) {
             Principal principal = responseHttp.handshake().peerPrincipal();
 
             if (principal != null) {
@@ -0,0 +1,342 @@
+package nifi.processors.demo.model;
+
+import nifi.processors.demo.compress.ContentCoding;
+import nifi.processors.demo.properties.Descriptions;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.nifi.components.PropertyValue;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.DataUnit;
+import org.apache.nifi.processor.ProcessContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+/**
+ * Everything about a request that doesn't depend on the FlowFile, resolved once when the processor is scheduled.
+ * Only properties that actually contain Expression Language are evaluated per FlowFile.
+ */
+public final class RequestPlan {
+
+    public enum Method {
+        GET, POST, PUT, PATCH, HEAD, DELETE;
+
+        /**
+         * Returns the method for the given name, or null if it is not one of the methods with special handling.
+         */
+        public static Method of(String name) {
+            for (Method method : values()) {
+                if (method.name().equals(name)) {
+                    return method;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int MAX_CACHED_MEDIA_TYPES = 256;
+
+    private final PropertyValue methodProperty;
+    private final String staticMethod;
+    private final PropertyValue contentTypeProperty;
+    private final MediaType staticContentType;
+    private final ConcurrentMap<String, MediaType> mediaTypes = new ConcurrentHashMap<>();
+
+    private final Headers constantHeaders;
+    private final List<String> dynamicHeaderNames;
+    private final Pattern attributesToSend;
+    private final PropertyValue formBodyName;
+    private final boolean formFilename;
+    private final Pattern formAttributes;
+    private final Map<String, PropertyValue> formFields;
+
+    private final boolean sendBody;
+    private final boolean chunked;
+    private final long requestBufferSize;
+    private final boolean putToAttribute;
+    private final int maxAttributeSize;
+    private final boolean addHeadersToRequest;
+    private final boolean outputResponseRegardless;
+    private final boolean ignoreResponseContent;
+    private final boolean penalizeNoRetry;
+    private final boolean useEtag;
+    private final boolean recordLatency;
+    private final boolean latencyAttributes;
+    private final boolean honorRateLimitHeaders;
+    private final boolean retry;
+    private final ContentCoding requestCompression;
+    private final int requestCompressionLevel;
+    private final long requestCompressionMinSize;
+    private final List<ContentCoding> acceptEncodings;
+
+    private RequestPlan(ProcessContext context, Set<String> dynamicPropertyNames, Map<String, String> excludedHeaders) {
+        methodProperty = context.getProperty(Descriptions.PROP_METHOD);
+        staticMethod = methodProperty.isExpressionLanguagePresent() ? null : trimToEmpty(methodProperty.evaluateAttributeExpressions().getValue()).toUpperCase();
+
+        contentTypeProperty = context.getProperty(Descriptions.PROP_CONTENT_TYPE);
+        staticContentType = contentTypeProperty.isExpressionLanguagePresent() ? null : parseContentType(contentTypeProperty.evaluateAttributeExpressions().getValue());
+
+        final Headers.Builder headers = new Headers.Builder();
+        final String authUser = trimToEmpty(context.getProperty(Descriptions.PROP_BASIC_AUTH_USERNAME).getValue());
+
+        // If the username/password properties are set then check if digest auth is being used
+        if (!authUser.isEmpty() && !context.getProperty(Descriptions.PROP_DIGEST_AUTH).asBoolean()) {
+            final String authPass = trimToEmpty(context.getProperty(Descriptions.PROP_BASIC_AUTH_PASSWORD).getValue());
+            headers.set("UserName", authUser);
+            headers.set("PassWord", authPass);
+        }
+
+        // dynamic properties without Expression Language are the same for every request
+        final List<String> expressionHeaderNames = new ArrayList<>();
+        final Map<String, PropertyValue> fields = new TreeMap<>();
+        for (String headerKey : dynamicPropertyNames) {
+            if (excludedHeaders.containsKey(headerKey)) {
+                continue;
+            }
+            if (headerKey.startsWith(Descriptions.FORM_FIELD_PREFIX)) {
+                fields.put(headerKey.substring(Descriptions.FORM_FIELD_PREFIX.length()), context.getProperty(headerKey));
+                continue;
+            }
+            final PropertyValue headerValue = context.getProperty(headerKey);
+            if (headerValue.isExpressionLanguagePresent()) {
+                expressionHeaderNames.add(headerKey);
+                continue;
+            }
+            final String constantValue = headerValue.evaluateAttributeExpressions().getValue();
+            if (constantValue != null) {
+                headers.add(headerKey, constantValue);
+            }
+        }
+        // asking for encodings ourselves turns off OkHttp's transparent gzip, the processor decodes them instead
+        final String acceptEncoding = context.getProperty(Descriptions.PROP_ACCEPT_ENCODING).getValue();
+        if (StringUtils.isBlank(acceptEncoding)) {
+            acceptEncodings = Collections.emptyList();
+        } else {
+            final List<ContentCoding> codings = new ArrayList<>();
+            for (String token : acceptEncoding.split(",")) {
+                codings.add(ContentCoding.of(token));
+            }
+            acceptEncodings = Collections.unmodifiableList(codings);
+            headers.set("Accept-Encoding", codings.stream().map(ContentCoding::getToken).collect(Collectors.joining(", ")));
+        }
+        constantHeaders = headers.build();
+        dynamicHeaderNames = Collections.unmodifiableList(expressionHeaderNames);
+
+        final String attributesToSendRegex = context.getProperty(Descriptions.PROP_ATTRIBUTES_TO_SEND).getValue();
+        attributesToSend = StringUtils.isBlank(attributesToSendRegex) ? null : Pattern.compile(attributesToSendRegex);
+
+        formBodyName = context.getProperty(Descriptions.PROP_FORM_BODY_NAME).isSet() ? context.getProperty(Descriptions.PROP_FORM_BODY_NAME) : null;
+        formFilename = context.getProperty(Descriptions.PROP_FORM_FILENAME).asBoolean();
+        final String formAttributesRegex = context.getProperty(Descriptions.PROP_FORM_ATTRIBUTES).getValue();
+        formAttributes = StringUtils.isBlank(formAttributesRegex) ? null : Pattern.compile(formAttributesRegex);
+        formFields = Collections.unmodifiableMap(fields);
+
+        sendBody = context.getProperty(Descriptions.PROP_SEND_BODY).asBoolean();
+        chunked = context.getProperty(Descriptions.PROP_USE_CHUNKED_ENCODING).asBoolean();
+        requestBufferSize = context.getProperty(Descriptions.PROP_REQUEST_BUFFER_SIZE).asDataSize(DataUnit.B).longValue();
+        putToAttribute = context.getProperty(Descriptions.PROP_PUT_OUTPUT_IN_ATTRIBUTE).isSet();
+        maxAttributeSize = context.getProperty(Descriptions.PROP_PUT_ATTRIBUTE_MAX_LENGTH).asInteger();
+        addHeadersToRequest = context.getProperty(Descriptions.PROP_ADD_HEADERS_TO_REQUEST).asBoolean();
+        outputResponseRegardless = context.getProperty(Descriptions.PROP_OUTPUT_RESPONSE_REGARDLESS).asBoolean();
+        ignoreResponseContent = context.getProperty(Descriptions.IGNORE_RESPONSE_CONTENT).asBoolean();
+        penalizeNoRetry = context.getProperty(Descriptions.PROP_PENALIZE_NO_RETRY).asBoolean();
+        useEtag = context.getProperty(Descriptions.PROP_USE_ETAG).asBoolean();
+        recordLatency = context.getProperty(Descriptions.PROP_RECORD_LATENCY).asBoolean();
+        latencyAttributes = recordLatency && context.getProperty(Descriptions.PROP_LATENCY_ATTRIBUTES).asBoolean();
+        honorRateLimitHeaders = context.getProperty(Descriptions.PROP_HONOR_RATE_LIMIT_HEADERS).asBoolean();
+        retry = context.getProperty(Descriptions.PROP_RETRY_MAX_ATTEMPTS).asInteger() > 1;
+        final ContentCoding compression = ContentCoding.of(context.getProperty(Descriptions.PROP_REQUEST_COMPRESSION).getValue());
+        if (compression != null && !compression.isEncodable()) {
+            throw new IllegalArgumentException("Request bodies can't be compressed with " + compression.getToken());
+        }
+        requestCompression = compression;
+        requestCompressionLevel = context.getProperty(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL).isSet()
+                ? context.getProperty(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL).asInteger() : -1;
+        requestCompressionMinSize = context.getProperty(Descriptions.PROP_REQUEST_COMPRESSION_MIN_SIZE).asDataSize(DataUnit.B).longValue();
+    }
+
+    public static RequestPlan compile(ProcessContext context, Set<String> dynamicPropertyNames, Map<String, String> excludedHeaders) {
+        return new RequestPlan(context, dynamicPropertyNames, excludedHeaders);
+    }
+
+    /**
+     * The upper-cased request method for the FlowFile.
+     */
+    public String method(FlowFile flowFile) {
+        if (staticMethod != null) {
+            return staticMethod;
+        }
+        return trimToEmpty(methodProperty.evaluateAttributeExpressions(flowFile).getValue()).toUpperCase();
+    }
+
+    public MediaType contentType(FlowFile flowFile) {
+        if (staticContentType != null) {
+            return staticContentType;
+        }
+        final String contentType = contentTypeProperty.evaluateAttributeExpressions(flowFile).getValue();
+        final String key = StringUtils.isBlank(contentType) ? Descriptions.DEFAULT_CONTENT_TYPE : contentType;
+        final MediaType cached = mediaTypes.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final MediaType parsed = MediaType.parse(key);
+        if (parsed != null && mediaTypes.size() < MAX_CACHED_MEDIA_TYPES) {
+            mediaTypes.putIfAbsent(key, parsed);
+        }
+        return parsed;
+    }
+
+    private static MediaType parseContentType(String contentType) {
+        return MediaType.parse(StringUtils.isBlank(contentType) ? Descriptions.DEFAULT_CONTENT_TYPE : contentType);
+    }
+
+    /**
+     * Authentication headers and dynamic property headers whose values have no Expression Language.
+     */
+    public Headers getConstantHeaders() {
+        return constantHeaders;
+    }
+
+    /**
+     * Dynamic properties whose header values have to be evaluated against each FlowFile.
+     */
+    public List<String> getDynamicHeaderNames() {
+        return dynamicHeaderNames;
+    }
+
+    public Pattern getAttributesToSend() {
+        return attributesToSend;
+    }
+
+    /**
+     * Whether request bodies are sent as multipart/form-data.
+     */
+    public boolean isForm() {
+        return formBodyName != null;
+    }
+
+    /**
+     * The name of the FlowFile content's part of a form, or null if the content isn't sent.
+     */
+    public String formContentName(FlowFile flowFile) {
+        if (!sendBody) {
+            return null;
+        }
+        final String name = formBodyName.evaluateAttributeExpressions(flowFile).getValue();
+        return StringUtils.isBlank(name) ? null : name;
+    }
+
+    public boolean isFormFilename() {
+        return formFilename;
+    }
+
+    /**
+     * The form fields of the FlowFile: the dynamic properties for form fields, then the attributes to send as form fields.
+     */
+    public Map<String, String> formFields(FlowFile flowFile) {
+        final Map<String, String> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, PropertyValue> field : formFields.entrySet()) {
+            final String value = field.getValue().evaluateAttributeExpressions(flowFile).getValue();
+            if (value != null) {
+                fields.put(field.getKey(), value);
+            }
+        }
+        if (formAttributes != null) {
+            for (Map.Entry<String, String> attribute : new TreeMap<>(flowFile.getAttributes()).entrySet()) {
+                if (!fields.containsKey(attribute.getKey()) && formAttributes.matcher(attribute.getKey()).matches()) {
+                    fields.put(attribute.getKey(), attribute.getValue());
+                }
+            }
+        }
+        return fields;
+    }
+
+    public boolean isSendBody() {
+        return sendBody;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    public long getRequestBufferSize() {
+        return requestBufferSize;
+    }
+
+    public boolean isPutToAttribute() {
+        return putToAttribute;
+    }
+
+    public int getMaxAttributeSize() {
+        return maxAttributeSize;
+    }
+
+    public boolean isAddHeadersToRequest() {
+        return addHeadersToRequest;
+    }
+
+    public boolean isOutputResponseRegardless() {
+        return outputResponseRegardless;
+    }
+
+    public boolean isIgnoreResponseContent() {
+        return ignoreResponseContent;
+    }
+
+    public boolean isPenalizeNoRetry() {
+        return penalizeNoRetry;
+    }
+
+    public boolean isUseEtag() {
+        return useEtag;
+    }
+
+    public boolean isRecordLatency() {
+        return recordLatency;
+    }
+
+    public boolean isLatencyAttributes() {
+        return latencyAttributes;
+    }
+
+    public boolean isHonorRateLimitHeaders() {
+        return honorRateLimitHeaders;
+    }
+
+    /**
+     * Whether requests may be retried within the processor.
+     */
+    public boolean isRetry() {
+        return retry;
+    }
+
+    /**
+     * The coding request bodies of the FlowFile are compressed with, or null if they are sent as they are.
+     */
+    public ContentCoding requestCompression(FlowFile flowFile) {
+        return requestCompression != null && flowFile.getSize() >= requestCompressionMinSize ? requestCompression : null;
+    }
+
+    public int getRequestCompressionLevel() {
+        return requestCompressionLevel;
+    }
+
+    /**
+     * The response encodings the processor asked for and decodes itself, empty if OkHttp handles gzip.
+     */
+    public List<ContentCoding> getAcceptEncodings() {
+        return acceptEncodings;
+    }
+}
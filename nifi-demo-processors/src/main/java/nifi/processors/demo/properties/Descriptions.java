@@ -1,14 +1,21 @@
 package nifi.processors.demo.properties;
 
+import nifi.processors.demo.bulk.JsonPathValidator;
+import org.apache.nifi.components.AllowableValue;
 import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.expression.AttributeExpression;
 import org.apache.nifi.expression.ExpressionLanguageScope;
 import org.apache.nifi.flowfile.attributes.CoreAttributes;
 import org.apache.nifi.processor.util.StandardValidators;
+import org.apache.nifi.record.path.validation.RecordPathValidator;
+import org.apache.nifi.serialization.RecordReaderFactory;
+import org.apache.nifi.serialization.RecordSetWriterFactory;
+import org.apache.nifi.ssl.SSLContextService;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class Descriptions {
@@ -202,6 +209,15 @@ public class Descriptions {
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
 
+    public static final PropertyDescriptor PROP_ETAG_CACHE_DIRECTORY = new PropertyDescriptor.Builder()
+            .name("etag-cache-directory")
+            .description("The directory in which the ETag cache stores responses. It must not be shared with any other processor. "
+                    + "If not set, a directory named after the processor's identifier is created under the JVM's temporary directory.")
+            .displayName("ETag Cache Directory")
+            .required(false)
+            .addValidator(StandardValidators.NON_BLANK_VALIDATOR)
+            .build();
+
     public static final PropertyDescriptor IGNORE_RESPONSE_CONTENT = new PropertyDescriptor.Builder()
             .name("ignore-response-content")
             .description("If true, the processor will not write the response's content into the flow file.")
@@ -211,6 +227,866 @@ public class Descriptions {
             .allowableValues("true", "false")
             .build();
 
+    public static final PropertyDescriptor PROP_BATCH_SIZE = new PropertyDescriptor.Builder()
+            .name("batch-size")
+            .description("The maximum number of FlowFiles to pull from the incoming queue in a single trigger. When greater than 1, the HTTP calls "
+                    + "for the batch are sent asynchronously and every result is routed within the same session commit.")
+            .displayName("Batch Size")
+            .required(true)
+            .defaultValue("1")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_MAX_IN_FLIGHT = new PropertyDescriptor.Builder()
+            .name("max-in-flight-requests")
+            .description("When 'Batch Size' is greater than 1, the maximum number of requests from a single trigger that may be outstanding at once. "
+                    + "Responses are processed as they arrive and the next request of the batch is sent in its place.")
+            .displayName("Max In-Flight Requests")
+            .required(true)
+            .defaultValue("16")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_MAX_IDLE_CONNECTIONS = new PropertyDescriptor.Builder()
+            .name("max-idle-connections")
+            .description("The maximum number of idle connections to keep in the connection pool.")
+            .displayName("Max Idle Connections")
+            .required(true)
+            .defaultValue("5")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_KEEP_ALIVE_DURATION = new PropertyDescriptor.Builder()
+            .name("keep-alive-duration")
+            .description("How long an idle connection is kept in the connection pool before it is closed.")
+            .displayName("Keep Alive Duration")
+            .required(true)
+            .defaultValue("5 mins")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_MAX_REQUESTS = new PropertyDescriptor.Builder()
+            .name("max-requests")
+            .description("The maximum number of asynchronous requests the dispatcher runs at once. If not set, it is derived from "
+                    + "'Max In-Flight Requests' and the number of concurrent tasks.")
+            .displayName("Max Requests")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_MAX_REQUESTS_PER_HOST = new PropertyDescriptor.Builder()
+            .name("max-requests-per-host")
+            .description("The maximum number of asynchronous requests the dispatcher runs at once against a single host. If not set, it is derived from "
+                    + "'Max In-Flight Requests' and the number of concurrent tasks.")
+            .displayName("Max Requests Per Host")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_SHARE_CONNECTION_POOL = new PropertyDescriptor.Builder()
+            .name("share-connection-pool")
+            .description("If true, every processor configured with the same connection pool and dispatcher settings shares a single "
+                    + "connection pool and dispatcher, so sockets and TLS sessions to the same hosts are reused across processors.")
+            .displayName("Share Connection Pool")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_USE_RESPONSE_CACHE = new PropertyDescriptor.Builder()
+            .name("use-response-cache")
+            .description("Enable an in-memory cache of successful GET and HEAD responses. A cached response is used for matching requests "
+                    + "until its time to live expires, without any network I/O.")
+            .displayName("Use Response Cache")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_RESPONSE_CACHE_TTL = new PropertyDescriptor.Builder()
+            .name("response-cache-ttl")
+            .description("How long a response is kept in the response cache.")
+            .displayName("Response Cache TTL")
+            .required(true)
+            .defaultValue("1 min")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RESPONSE_CACHE_MAX_ENTRIES = new PropertyDescriptor.Builder()
+            .name("response-cache-max-entries")
+            .description("The maximum number of responses held in the response cache. The least recently used response is evicted first.")
+            .displayName("Response Cache Max Entries")
+            .required(true)
+            .defaultValue("1000")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RESPONSE_CACHE_MAX_SIZE = new PropertyDescriptor.Builder()
+            .name("response-cache-max-size")
+            .description("The maximum total size of the response bodies held in the response cache.")
+            .displayName("Response Cache Max Size")
+            .required(true)
+            .defaultValue("10 MB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RESPONSE_CACHE_MAX_ENTRY_SIZE = new PropertyDescriptor.Builder()
+            .name("response-cache-max-entry-size")
+            .description("The largest response body held in the response cache. A body whose Content-Length is larger is not buffered at all, "
+                    + "one of unknown length only up to this size. Values above 'Response Cache Max Size' are capped at it.")
+            .displayName("Response Cache Max Entry Size")
+            .required(true)
+            .defaultValue("1 MB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RESPONSE_CACHE_KEY_HEADERS = new PropertyDescriptor.Builder()
+            .name("response-cache-key-headers")
+            .description("A comma-separated list of request header names whose values are part of the response cache key, in addition to the "
+                    + "HTTP method and the URL.")
+            .displayName("Response Cache Key Headers")
+            .required(false)
+            .addValidator(StandardValidators.NON_BLANK_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_COALESCE_REQUESTS = new PropertyDescriptor.Builder()
+            .name("coalesce-requests")
+            .description("If true, identical GET and HEAD requests (same URL and headers) that are in flight at the same time share a single call. "
+                    + "When a call has been joined, its response body is buffered in memory and copied to every waiting FlowFile, each of which "
+                    + "keeps its own transaction id and provenance events. If the body is larger than 'Coalesce Max Response Size', "
+                    + "the waiting requests are sent on their own instead.")
+            .displayName("Coalesce Identical Requests")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_COALESCE_MAX_SIZE = new PropertyDescriptor.Builder()
+            .name("coalesce-max-size")
+            .description("The largest response body that is buffered in memory to be shared with coalesced requests. A body whose "
+                    + "Content-Length is larger is not buffered at all, one of unknown length only up to this size.")
+            .displayName("Coalesce Max Response Size")
+            .required(true)
+            .defaultValue("1 MB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final AllowableValue HTTP_1_1 = new AllowableValue("HTTP_1_1", "HTTP/1.1",
+            "Only use HTTP/1.1. Concurrent requests to a host each need their own connection.");
+    public static final AllowableValue HTTP_2 = new AllowableValue("HTTP_2", "HTTP/2",
+            "Negotiate HTTP/2 over TLS using ALPN, falling back to HTTP/1.1 for servers or cleartext URLs that don't support it.");
+    public static final AllowableValue H2_PRIOR_KNOWLEDGE = new AllowableValue("H2_PRIOR_KNOWLEDGE", "HTTP/2 Prior Knowledge",
+            "Speak cleartext HTTP/2 (h2c) without any upgrade negotiation. The server must support it; HTTPS URLs are not supported in this mode.");
+
+    public static final PropertyDescriptor PROP_HTTP_PROTOCOLS = new PropertyDescriptor.Builder()
+            .name("http-protocols")
+            .description("The HTTP protocol versions the client may use. With HTTP/2, concurrent requests to a host are multiplexed over a single "
+                    + "connection. With HTTP/2 Prior Knowledge every host is multiplexed, so unless 'Max Requests Per Host' is set the per-host "
+                    + "limit of the dispatcher is the same as 'Max Requests'. With HTTP/2, cleartext hosts and hosts that don't negotiate it "
+                    + "fall back to HTTP/1.1, so the per-host limit stays as it is for HTTP/1.1.")
+            .displayName("HTTP Protocols")
+            .required(true)
+            .defaultValue(HTTP_2.getValue())
+            .allowableValues(HTTP_1_1, HTTP_2, H2_PRIOR_KNOWLEDGE)
+            .build();
+
+    public static final PropertyDescriptor PROP_REQUEST_BUFFER_SIZE = new PropertyDescriptor.Builder()
+            .name("request-buffer-size")
+            .description("How much of the FlowFile content is collected in the socket buffer before it is written out when sending a request body. "
+                    + "Larger values mean fewer, larger writes for big uploads.")
+            .displayName("Request Body Buffer Size")
+            .required(true)
+            .defaultValue("64 KB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_LATENCY = new PropertyDescriptor.Builder()
+            .name("record-latency")
+            .description("If true, the DNS and connect, TLS handshake, time to first byte and total time of every call are recorded in "
+                    + "latency histograms per target host and status class. The percentiles are published periodically as counters and bulletins. "
+                    + "A host without calls for a whole report interval is dropped, and beyond 256 hosts the others are recorded together as 'other'.")
+            .displayName("Record Latency")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_LATENCY_REPORT_INTERVAL = new PropertyDescriptor.Builder()
+            .name("latency-report-interval")
+            .description("How often the p50, p99 and p99.9 latencies recorded since the last report are published. The bulletins are "
+                    + "logged at INFO level, so the bulletin level of the processor has to be INFO to see them.")
+            .displayName("Latency Report Interval")
+            .required(true)
+            .defaultValue("1 min")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_LATENCY_ATTRIBUTES = new PropertyDescriptor.Builder()
+            .name("latency-attributes")
+            .description("If true and latency is recorded, the latencies of each call are written to the FlowFile as "
+                    + "invokehttp.latency.* attributes in milliseconds. Connect and TLS times are only present when a new connection was made.")
+            .displayName("Add Latency Attributes")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final AllowableValue LIMIT_NONE = new AllowableValue("none", "None",
+            "Don't limit the requests per host beyond the dispatcher limits.");
+    public static final AllowableValue LIMIT_AIMD = new AllowableValue("aimd", "AIMD",
+            "Grow the limit by one for every successful request and cut it by 10% for every timeout, failure, 429 or 503.");
+    public static final AllowableValue LIMIT_VEGAS = new AllowableValue("vegas", "Vegas",
+            "Adjust the limit to the queueing delay the host adds on top of its lowest observed round trip time, and shrink it on timeouts, failures, 429 and 503.");
+
+    public static final PropertyDescriptor PROP_CONCURRENCY_LIMIT = new PropertyDescriptor.Builder()
+            .name("concurrency-limit-algorithm")
+            .description("Adaptively limits the requests in flight to each host. FlowFiles which would exceed the limit of their host are "
+                    + "put back on the incoming queue and the processor yields if nothing could be sent.")
+            .displayName("Adaptive Concurrency Limit")
+            .required(true)
+            .defaultValue(LIMIT_NONE.getValue())
+            .allowableValues(LIMIT_NONE, LIMIT_AIMD, LIMIT_VEGAS)
+            .build();
+
+    public static final PropertyDescriptor PROP_CONCURRENCY_LIMIT_INITIAL = new PropertyDescriptor.Builder()
+            .name("concurrency-limit-initial")
+            .description("The number of requests in flight each host is allowed before the adaptive limit has learned anything.")
+            .displayName("Initial Concurrency Limit")
+            .required(true)
+            .defaultValue("20")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_CONCURRENCY_LIMIT_MAX = new PropertyDescriptor.Builder()
+            .name("concurrency-limit-max")
+            .description("The adaptive limit never allows more requests in flight to a host than this.")
+            .displayName("Maximum Concurrency Limit")
+            .required(true)
+            .defaultValue("200")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final AllowableValue CIRCUIT_BREAKER_DISABLED = new AllowableValue("disabled", "Disabled",
+            "Always send the request.");
+    public static final AllowableValue CIRCUIT_BREAKER_RETRY = new AllowableValue("retry", "Route to Retry",
+            "While the circuit of a host is open, its FlowFiles are penalized and routed to 'Retry'.");
+    public static final AllowableValue CIRCUIT_BREAKER_CIRCUIT_OPEN = new AllowableValue("circuit-open", "Route to Circuit Open",
+            "While the circuit of a host is open, its FlowFiles are routed to the 'Circuit Open' relationship.");
+
+    public static final PropertyDescriptor PROP_CIRCUIT_BREAKER = new PropertyDescriptor.Builder()
+            .name("circuit-breaker")
+            .description("Stops sending requests to a host for a while once too many of its latest requests failed with a connection failure, "
+                    + "timeout or 5xx status. FlowFiles for the host are routed straight away with the invokehttp.circuit.state attribute, "
+                    + "and the processor yields if none of its FlowFiles could be sent.")
+            .displayName("Circuit Breaker")
+            .required(true)
+            .defaultValue(CIRCUIT_BREAKER_DISABLED.getValue())
+            .allowableValues(CIRCUIT_BREAKER_DISABLED, CIRCUIT_BREAKER_RETRY, CIRCUIT_BREAKER_CIRCUIT_OPEN)
+            .build();
+
+    public static final PropertyDescriptor PROP_CIRCUIT_BREAKER_WINDOW_SIZE = new PropertyDescriptor.Builder()
+            .name("circuit-breaker-window-size")
+            .description("The number of most recent requests to a host the failure rate is calculated over.")
+            .displayName("Circuit Breaker Window Size")
+            .required(true)
+            .defaultValue("20")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_CIRCUIT_BREAKER_MINIMUM_REQUESTS = new PropertyDescriptor.Builder()
+            .name("circuit-breaker-minimum-requests")
+            .description("The circuit of a host can't open before this many requests to it have completed.")
+            .displayName("Circuit Breaker Minimum Requests")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_CIRCUIT_BREAKER_FAILURE_RATE = new PropertyDescriptor.Builder()
+            .name("circuit-breaker-failure-rate")
+            .description("The percentage of failed requests in the window at which the circuit opens.")
+            .displayName("Circuit Breaker Failure Rate")
+            .required(true)
+            .defaultValue("50")
+            .addValidator(StandardValidators.createLongValidator(1, 100, true))
+            .build();
+
+    public static final PropertyDescriptor PROP_CIRCUIT_BREAKER_OPEN_DURATION = new PropertyDescriptor.Builder()
+            .name("circuit-breaker-open-duration")
+            .description("How long an open circuit rejects all requests before it lets probe requests through.")
+            .displayName("Circuit Breaker Open Duration")
+            .required(true)
+            .defaultValue("30 sec")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_CIRCUIT_BREAKER_PROBES = new PropertyDescriptor.Builder()
+            .name("circuit-breaker-probes")
+            .description("The number of probe requests that have to succeed to close a half-open circuit. One failed probe opens it again.")
+            .displayName("Circuit Breaker Probe Requests")
+            .required(true)
+            .defaultValue("3")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RATE_LIMIT = new PropertyDescriptor.Builder()
+            .name("rate-limit")
+            .description("The maximum number of requests per second for each rate limit key. FlowFiles over the limit are put back on the "
+                    + "incoming queue, and the processor yields if none of its FlowFiles could be sent. If not set, requests are only "
+                    + "throttled when the server asks for it and 'Honor Rate Limit Headers' is true.")
+            .displayName("Rate Limit")
+            .required(false)
+            .addValidator(new NumberRangeValidator(0, Double.POSITIVE_INFINITY))
+            .build();
+
+    public static final PropertyDescriptor PROP_RATE_LIMIT_BURST = new PropertyDescriptor.Builder()
+            .name("rate-limit-burst")
+            .description("The number of requests a rate limit key that has been idle may send at once, on top of the steady rate.")
+            .displayName("Rate Limit Burst")
+            .required(true)
+            .defaultValue("1")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RATE_LIMIT_KEY = new PropertyDescriptor.Builder()
+            .name("rate-limit-key")
+            .description("Requests with the same key share a rate limit, e.g. the attribute that holds the API key. "
+                    + "If not set or if it evaluates to an empty value, the host of the Remote URL is the key.")
+            .displayName("Rate Limit Key")
+            .required(false)
+            .expressionLanguageSupported(ExpressionLanguageScope.FLOWFILE_ATTRIBUTES)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_HONOR_RATE_LIMIT_HEADERS = new PropertyDescriptor.Builder()
+            .name("honor-rate-limit-headers")
+            .description("If true, a Retry-After header on a 429 or 503 response, or an exhausted X-RateLimit-Remaining or RateLimit-Remaining "
+                    + "with the matching reset header, pauses all requests with the same rate limit key until then. "
+                    + "429 responses are then routed to 'Retry' instead of 'No Retry'.")
+            .displayName("Honor Rate Limit Headers")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_RETRY_MAX_ATTEMPTS = new PropertyDescriptor.Builder()
+            .name("retry-max-attempts")
+            .description("How often a request is attempted before its result is routed, including the first attempt. With 1, nothing is retried "
+                    + "within the processor. Request bodies sent with a Batch Size greater than 1 or on virtual threads are streamed once and can't be "
+                    + "retried, so requests with a body must then be attempted once.")
+            .displayName("Retry Max Attempts")
+            .required(true)
+            .defaultValue("1")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RETRY_INITIAL_BACKOFF = new PropertyDescriptor.Builder()
+            .name("retry-initial-backoff")
+            .description("The longest wait before the first retry. Every further retry doubles it, and the actual wait is a random time up to that.")
+            .displayName("Retry Initial Backoff")
+            .required(true)
+            .defaultValue("100 millis")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RETRY_MAX_BACKOFF = new PropertyDescriptor.Builder()
+            .name("retry-max-backoff")
+            .description("The longest wait before any retry.")
+            .displayName("Retry Max Backoff")
+            .required(true)
+            .defaultValue("2 sec")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RETRY_STATUS_CODES = new PropertyDescriptor.Builder()
+            .name("retry-status-codes")
+            .description("A comma separated list of the response status codes that are retried.")
+            .displayName("Retryable Status Codes")
+            .required(true)
+            .defaultValue("502,503,504")
+            .addValidator(StandardValidators.createRegexMatchingValidator(Pattern.compile("\\s*\\d{3}(\\s*,\\s*\\d{3})*\\s*")))
+            .build();
+
+    public static final PropertyDescriptor PROP_RETRY_EXCEPTIONS = new PropertyDescriptor.Builder()
+            .name("retry-exceptions")
+            .description("A comma separated list of the exception classes that are retried. Subclasses are retried too.")
+            .displayName("Retryable Exceptions")
+            .required(true)
+            .defaultValue("java.net.ConnectException,java.net.SocketException,java.net.SocketTimeoutException,okhttp3.internal.http2.StreamResetException")
+            .addValidator(StandardValidators.NON_BLANK_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RETRY_NON_IDEMPOTENT = new PropertyDescriptor.Builder()
+            .name("retry-non-idempotent")
+            .description("If true, POST and PATCH requests are retried as well. Only enable this if the remote service can handle "
+                    + "receiving the same request twice.")
+            .displayName("Retry Non-Idempotent Methods")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_HEDGE_DELAY = new PropertyDescriptor.Builder()
+            .name("hedge-delay")
+            .description("If a GET or HEAD request hasn't been answered after this long, an identical second request is sent and whichever "
+                    + "response arrives first is used; the other call is cancelled. If 'Hedge Percentile' is set as well, this is the delay "
+                    + "until enough response times have been observed.")
+            .displayName("Hedge Delay")
+            .required(false)
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_HEDGE_PERCENTILE = new PropertyDescriptor.Builder()
+            .name("hedge-percentile")
+            .description("If set, GET and HEAD requests are hedged once they take longer than this percentile of the recently observed "
+                    + "response times, e.g. 95 to hedge about one in twenty requests.")
+            .displayName("Hedge Percentile")
+            .required(false)
+            .addValidator(new NumberRangeValidator(0, 100))
+            .build();
+
+    public static final AllowableValue BALANCE_ROUND_ROBIN = new AllowableValue("round-robin", "Round Robin",
+            "Send requests to the available endpoints in turn.");
+    public static final AllowableValue BALANCE_LEAST_OUTSTANDING = new AllowableValue("least-outstanding", "Least Outstanding Requests",
+            "Send each request to the available endpoint with the fewest requests in flight.");
+    public static final AllowableValue BALANCE_P2C = new AllowableValue("power-of-two-choices", "Power of Two Choices",
+            "Pick two available endpoints at random and send the request to the one with fewer requests in flight.");
+
+    public static final AllowableValue RESOLUTION_STATIC = new AllowableValue("static", "Static",
+            "Every configured endpoint URL is one endpoint.");
+    public static final AllowableValue RESOLUTION_DNS = new AllowableValue("dns", "DNS",
+            "Every address the host of a configured endpoint URL resolves to is one endpoint, and the host names are resolved again "
+                    + "every Health Check Interval. Requests keep the host name in their URL and only connect to the chosen address, "
+                    + "so the Host header, HTTP/2 authority and TLS hostname verification are those of the configured URL.");
+
+    public static final PropertyDescriptor PROP_ENDPOINTS = new PropertyDescriptor.Builder()
+            .name("endpoints")
+            .description("Comma-separated base URLs of the replicas requests are balanced across, e.g. http://a:8080,http://b:8080. "
+                    + "The path and query of the Remote URL are appended to the chosen endpoint, and its scheme and host are replaced. "
+                    + "If not set, requests go to the Remote URL.")
+            .displayName("Endpoints")
+            .required(false)
+            .addValidator(StandardValidators.createListValidator(true, true, StandardValidators.URL_VALIDATOR))
+            .build();
+
+    public static final PropertyDescriptor PROP_LOAD_BALANCING = new PropertyDescriptor.Builder()
+            .name("load-balancing-strategy")
+            .description("How the endpoint for a request is picked.")
+            .displayName("Load Balancing Strategy")
+            .required(true)
+            .defaultValue(BALANCE_P2C.getValue())
+            .allowableValues(BALANCE_ROUND_ROBIN, BALANCE_LEAST_OUTSTANDING, BALANCE_P2C)
+            .build();
+
+    public static final PropertyDescriptor PROP_ENDPOINT_RESOLUTION = new PropertyDescriptor.Builder()
+            .name("endpoint-resolution")
+            .description("Whether the endpoints are the configured URLs or the addresses their host names resolve to.")
+            .displayName("Endpoint Resolution")
+            .required(true)
+            .defaultValue(RESOLUTION_STATIC.getValue())
+            .allowableValues(RESOLUTION_STATIC, RESOLUTION_DNS)
+            .build();
+
+    public static final PropertyDescriptor PROP_OUTLIER_CONSECUTIVE_FAILURES = new PropertyDescriptor.Builder()
+            .name("outlier-consecutive-failures")
+            .description("An endpoint that fails this many requests in a row, with an exception or a 5xx response, is ejected "
+                    + "and gets no requests until the Outlier Ejection Time has passed.")
+            .displayName("Outlier Consecutive Failures")
+            .required(true)
+            .defaultValue("5")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_OUTLIER_EJECTION_TIME = new PropertyDescriptor.Builder()
+            .name("outlier-ejection-time")
+            .description("How long an outlier is ejected the first time. An endpoint that is ejected again is ejected for a multiple of this.")
+            .displayName("Outlier Ejection Time")
+            .required(true)
+            .defaultValue("30 sec")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_HEALTH_CHECK_PATH = new PropertyDescriptor.Builder()
+            .name("health-check-path")
+            .description("If set, a GET request for this path is sent to every endpoint each Health Check Interval, and endpoints "
+                    + "that don't answer with a 2xx status within 5 seconds, or the interval if shorter, get no requests until they do. "
+                    + "Health checks are never retried and don't count towards latency metrics.")
+            .displayName("Health Check Path")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_HEALTH_CHECK_INTERVAL = new PropertyDescriptor.Builder()
+            .name("health-check-interval")
+            .description("How often the endpoints are health checked and, with DNS resolution, resolved again.")
+            .displayName("Health Check Interval")
+            .required(true)
+            .defaultValue("10 sec")
+            .addValidator(StandardValidators.createTimePeriodValidator(1, TimeUnit.SECONDS, Long.MAX_VALUE, TimeUnit.SECONDS))
+            .build();
+
+    public static final PropertyDescriptor PROP_DNS_CACHE = new PropertyDescriptor.Builder()
+            .name("use-dns-cache")
+            .description("Cache host name lookups in the processor instead of relying on the JVM's DNS cache. Addresses that are "
+                    + "getting old are looked up again in the background while the cached ones are still used, so connections "
+                    + "rarely wait for DNS.")
+            .displayName("Use DNS Cache")
+            .required(true)
+            .defaultValue("false")
+            .allowableValues("true", "false")
+            .build();
+
+    public static final PropertyDescriptor PROP_DNS_CACHE_MIN_TTL = new PropertyDescriptor.Builder()
+            .name("dns-cache-min-ttl")
+            .description("How long resolved addresses are used without looking the host up again.")
+            .displayName("DNS Cache Min TTL")
+            .required(true)
+            .defaultValue("30 sec")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_DNS_CACHE_MAX_TTL = new PropertyDescriptor.Builder()
+            .name("dns-cache-max-ttl")
+            .description("How long resolved addresses may be used at all. Between the Min TTL and this, every use triggers a lookup in "
+                    + "the background, and the addresses are kept if that lookup fails. After this, the connection waits for a new lookup.")
+            .displayName("DNS Cache Max TTL")
+            .required(true)
+            .defaultValue("5 min")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_DNS_CACHE_NEGATIVE_TTL = new PropertyDescriptor.Builder()
+            .name("dns-cache-negative-ttl")
+            .description("How long a host name that could not be resolved fails straight away before it is looked up again.")
+            .displayName("DNS Cache Negative TTL")
+            .required(true)
+            .defaultValue("10 sec")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_DNS_CACHE_MAX_ENTRIES = new PropertyDescriptor.Builder()
+            .name("dns-cache-max-entries")
+            .description("The maximum number of host names in the DNS cache. The oldest lookup is dropped to make room for a new host.")
+            .displayName("DNS Cache Max Entries")
+            .required(true)
+            .defaultValue("1000")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_SSL_CONTEXT_SERVICE = new PropertyDescriptor.Builder()
+            .name("ssl-context-service")
+            .description("The SSL Context Service used to provide the client certificate and the trusted certificates for HTTPS "
+                    + "requests. If not set, the JVM's default trust store is used and no client certificate is sent.")
+            .displayName("SSL Context Service")
+            .required(false)
+            .identifiesControllerService(SSLContextService.class)
+            .build();
+
+    public static final PropertyDescriptor PROP_TLS_PROTOCOLS = new PropertyDescriptor.Builder()
+            .name("tls-protocols")
+            .description("Comma-separated TLS versions that may be negotiated, e.g. TLSv1.3,TLSv1.2. If not set, OkHttp's modern defaults apply.")
+            .displayName("TLS Protocols")
+            .required(false)
+            .addValidator(StandardValidators.createRegexMatchingValidator(
+                    Pattern.compile("^\\s*TLSv1(\\.[123])?(\\s*,\\s*TLSv1(\\.[123])?)*\\s*$")))
+            .build();
+
+    public static final PropertyDescriptor PROP_TLS_CIPHER_SUITES = new PropertyDescriptor.Builder()
+            .name("tls-cipher-suites")
+            .description("Comma-separated cipher suites that may be negotiated, by their Java names, e.g. TLS_AES_128_GCM_SHA256. "
+                    + "If not set, OkHttp's modern defaults apply.")
+            .displayName("TLS Cipher Suites")
+            .required(false)
+            .addValidator(StandardValidators.createRegexMatchingValidator(
+                    Pattern.compile("^\\s*\\w+(\\s*,\\s*\\w+)*\\s*$")))
+            .build();
+
+    public static final PropertyDescriptor PROP_TLS_SESSION_CACHE_SIZE = new PropertyDescriptor.Builder()
+            .name("tls-session-cache-size")
+            .description("The number of TLS sessions kept for resumption. New connections to a host with a cached session resume it "
+                    + "with an abbreviated handshake instead of a full one. Processors using the same SSL Context Service and "
+                    + "session settings share the cache. 0 means no limit.")
+            .displayName("TLS Session Cache Size")
+            .required(true)
+            .defaultValue("1000")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_TLS_SESSION_TIMEOUT = new PropertyDescriptor.Builder()
+            .name("tls-session-timeout")
+            .description("How long a cached TLS session may be resumed.")
+            .displayName("TLS Session Timeout")
+            .required(true)
+            .defaultValue("24 hours")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final AllowableValue COMPRESSION_NONE = new AllowableValue("none", "None",
+            "Send request bodies as they are.");
+    public static final AllowableValue COMPRESSION_GZIP = new AllowableValue("gzip", "gzip",
+            "Compress request bodies with gzip.");
+    public static final AllowableValue COMPRESSION_ZSTD = new AllowableValue("zstd", "Zstandard",
+            "Compress request bodies with Zstandard, which is faster than gzip at a similar ratio. The server has to support it.");
+
+    public static final PropertyDescriptor PROP_REQUEST_COMPRESSION = new PropertyDescriptor.Builder()
+            .name("request-compression")
+            .description("Compress request bodies while they are sent, and tell the server with a Content-Encoding header. "
+                    + "Compressed bodies are always sent with chunked transfer encoding.")
+            .displayName("Request Compression")
+            .required(true)
+            .defaultValue(COMPRESSION_NONE.getValue())
+            .allowableValues(COMPRESSION_NONE, COMPRESSION_GZIP, COMPRESSION_ZSTD)
+            .build();
+
+    public static final PropertyDescriptor PROP_REQUEST_COMPRESSION_LEVEL = new PropertyDescriptor.Builder()
+            .name("request-compression-level")
+            .description("The compression level, 1 to 9 for gzip and 1 to 22 for Zstandard. Higher levels compress better and cost "
+                    + "more CPU. If not set, the default level of the compression is used.")
+            .displayName("Request Compression Level")
+            .required(false)
+            .addValidator(StandardValidators.createLongValidator(1, 22, true))
+            .build();
+
+    public static final PropertyDescriptor PROP_REQUEST_COMPRESSION_MIN_SIZE = new PropertyDescriptor.Builder()
+            .name("request-compression-min-size")
+            .description("Request bodies smaller than this are sent uncompressed, since compressing them saves little.")
+            .displayName("Request Compression Min Size")
+            .required(true)
+            .defaultValue("1 KB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_ACCEPT_ENCODING = new PropertyDescriptor.Builder()
+            .name("accept-encoding")
+            .description("Comma-separated response encodings to ask for, out of gzip, zstd and br, in order of preference. Responses in "
+                    + "one of them are decoded while they are written to the response FlowFile. If not set, OkHttp asks for gzip and "
+                    + "decodes it without reporting the sizes.")
+            .displayName("Accept Encoding")
+            .required(false)
+            .addValidator(StandardValidators.createRegexMatchingValidator(
+                    Pattern.compile("^\\s*(gzip|zstd|br)(\\s*,\\s*(gzip|zstd|br))*\\s*$")))
+            .build();
+
+    public static final AllowableValue EXECUTION_PLATFORM_THREADS = new AllowableValue("platform-threads", "Platform Threads",
+            "A single request is sent by the processor's own thread, batches by OkHttp dispatcher threads, one per request in flight.");
+    public static final AllowableValue EXECUTION_VIRTUAL_THREADS = new AllowableValue("virtual-threads", "Virtual Threads",
+            "Every request is sent by a virtual thread of the OkHttp dispatcher, while the processor's thread waits for the "
+                    + "results of its batch, so thousands of requests can be in flight without thousands of platform threads. "
+                    + "Needs Java 21 or later, older JVMs fall back to platform threads.");
+
+    public static final PropertyDescriptor PROP_EXECUTION_MODE = new PropertyDescriptor.Builder()
+            .name("execution-mode")
+            .description("Which threads block on the network while requests are in flight. With virtual threads, use Batch Size and "
+                    + "Max In-Flight Requests to raise the number of concurrent requests rather than Concurrent Tasks.")
+            .displayName("Execution Mode")
+            .required(true)
+            .defaultValue(EXECUTION_PLATFORM_THREADS.getValue())
+            .allowableValues(EXECUTION_PLATFORM_THREADS, EXECUTION_VIRTUAL_THREADS)
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_READER = new PropertyDescriptor.Builder()
+            .name("record-reader")
+            .description("If set, every record of an incoming FlowFile is sent as its own request, with up to 'Max In-Flight Requests' "
+                    + "of them outstanding at once. The records are written with the result of their request to one FlowFile on "
+                    + "Response, the records whose request failed to one on Failure, and the incoming FlowFile goes to Original. "
+                    + "Can't be combined with a Rate Limit or an Adaptive Concurrency Limit.")
+            .displayName("Record Reader")
+            .required(false)
+            .identifiesControllerService(RecordReaderFactory.class)
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_WRITER = new PropertyDescriptor.Builder()
+            .name("record-writer")
+            .description("Writes the records with the results of their requests. Required with a Record Reader.")
+            .displayName("Record Writer")
+            .required(false)
+            .identifiesControllerService(RecordSetWriterFactory.class)
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_URL_PATH = new PropertyDescriptor.Builder()
+            .name("record-url-path")
+            .description("RecordPath to the URL of a record's request. Relative URLs are resolved against the Remote URL. "
+                    + "If not set, or the field is empty, the request goes to the Remote URL.")
+            .displayName("Record URL Path")
+            .required(false)
+            .addValidator(new RecordPathValidator())
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_METHOD_PATH = new PropertyDescriptor.Builder()
+            .name("record-method-path")
+            .description("RecordPath to the method of a record's request. If not set, or the field is empty, the HTTP Method is used.")
+            .displayName("Record Method Path")
+            .required(false)
+            .addValidator(new RecordPathValidator())
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_HEADERS_PATH = new PropertyDescriptor.Builder()
+            .name("record-headers-path")
+            .description("RecordPath to a map or record whose entries are sent as headers of a record's request, "
+                    + "in addition to the headers from dynamic properties and attributes.")
+            .displayName("Record Headers Path")
+            .required(false)
+            .addValidator(new RecordPathValidator())
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_BODY_PATH = new PropertyDescriptor.Builder()
+            .name("record-body-path")
+            .description("RecordPath to the string or bytes sent as the body of a record's request, with the Content-Type. "
+                    + "If not set, POST, PUT and PATCH requests have an empty body.")
+            .displayName("Record Body Path")
+            .required(false)
+            .addValidator(new RecordPathValidator())
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_RESPONSE_READER = new PropertyDescriptor.Builder()
+            .name("record-response-reader")
+            .description("Parses the bodies of successful responses into records, which are added to the result as an array. "
+                    + "If not set, the body is added as a string. A response without a body adds none, and one that can't be parsed "
+                    + "fails its record.")
+            .displayName("Record Response Reader")
+            .required(false)
+            .identifiesControllerService(RecordReaderFactory.class)
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_RESPONSE_HEADERS = new PropertyDescriptor.Builder()
+            .name("record-response-headers")
+            .description("Comma-separated names of the response headers added to the result of each record.")
+            .displayName("Record Response Headers")
+            .required(false)
+            .addValidator(StandardValidators.NON_BLANK_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_RECORD_RESULT_FIELD = new PropertyDescriptor.Builder()
+            .name("record-result-field")
+            .description("The field added to each record for the result of its request: the URL, status code and message, the "
+                    + "selected response headers, the response body and, if the request failed, the error.")
+            .displayName("Record Result Field")
+            .required(true)
+            .defaultValue("http")
+            .addValidator(StandardValidators.NON_BLANK_VALIDATOR)
+            .build();
+
+    public static final AllowableValue BULK_NONE = new AllowableValue("none", "None",
+            "Every FlowFile is sent as a request of its own.");
+    public static final AllowableValue BULK_JSON_ARRAY = new AllowableValue("json-array", "JSON Array",
+            "The contents of the FlowFiles are sent as the elements of one JSON array.");
+    public static final AllowableValue BULK_NDJSON = new AllowableValue("ndjson", "NDJSON",
+            "The contents of the FlowFiles are sent as newline-delimited JSON, one line each.");
+    public static final AllowableValue BULK_MULTIPART = new AllowableValue("multipart", "Multipart",
+            "The contents of the FlowFiles are sent as the parts of one multipart/form-data body, named after their index in the batch.");
+
+    public static final PropertyDescriptor PROP_BULK_FORMAT = new PropertyDescriptor.Builder()
+            .name("bulk-format")
+            .description("Packs the FlowFiles of a batch into the body of a single request to a bulk endpoint. The response is split into "
+                    + "items, one per FlowFile, and each FlowFile is routed by the status of its item, with the item as its response. "
+                    + "Takes the place of 'Batch Size'.")
+            .displayName("Bulk Format")
+            .required(true)
+            .defaultValue(BULK_NONE.getValue())
+            .allowableValues(BULK_NONE, BULK_JSON_ARRAY, BULK_NDJSON, BULK_MULTIPART)
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_MAX_FLOWFILES = new PropertyDescriptor.Builder()
+            .name("bulk-max-flowfiles")
+            .description("The most FlowFiles packed into one bulk request.")
+            .displayName("Bulk Max FlowFiles")
+            .required(true)
+            .defaultValue("100")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_MAX_SIZE = new PropertyDescriptor.Builder()
+            .name("bulk-max-size")
+            .description("The most content packed into one bulk request. A larger FlowFile is sent on its own.")
+            .displayName("Bulk Max Size")
+            .required(true)
+            .defaultValue("1 MB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_MAX_RESPONSE_SIZE = new PropertyDescriptor.Builder()
+            .name("bulk-max-response-size")
+            .description("The largest response of a bulk request that is read into memory to be split into items. If the response "
+                    + "is larger, all FlowFiles of the request are routed to failure.")
+            .displayName("Bulk Max Response Size")
+            .required(true)
+            .defaultValue("10 MB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_MAX_WAIT = new PropertyDescriptor.Builder()
+            .name("bulk-max-wait")
+            .description("How long to wait for more FlowFiles to arrive before a bulk request that isn't full is sent.")
+            .displayName("Bulk Max Wait")
+            .required(true)
+            .defaultValue("100 ms")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_ITEMS_PATH = new PropertyDescriptor.Builder()
+            .name("bulk-items-path")
+            .description("JSONPath to the array of items in the response of a bulk request, e.g. $.items. NDJSON responses have "
+                    + "one item per line instead.")
+            .displayName("Bulk Items Path")
+            .required(true)
+            .defaultValue("$")
+            .addValidator(new JsonPathValidator())
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_ID_PATH = new PropertyDescriptor.Builder()
+            .name("bulk-id-path")
+            .description("JSONPath to an ID that both the JSON content of each FlowFile and its item in the response contain. If not set, "
+                    + "the items are correlated with the FlowFiles by position, and the response must have one item per FlowFile.")
+            .displayName("Bulk ID Path")
+            .required(false)
+            .addValidator(new JsonPathValidator())
+            .build();
+
+    public static final PropertyDescriptor PROP_BULK_STATUS_PATH = new PropertyDescriptor.Builder()
+            .name("bulk-status-path")
+            .description("JSONPath to the status code of an item, e.g. $.*.status. If not set, or an item has none, "
+                    + "the status code of the response applies.")
+            .displayName("Bulk Status Path")
+            .required(false)
+            .addValidator(new JsonPathValidator())
+            .build();
+
+    /**
+     * Dynamic properties with this prefix are form fields of multipart/form-data requests rather than headers.
+     */
+    public static final String FORM_FIELD_PREFIX = "post:form:";
+
+    public static final PropertyDescriptor PROP_FORM_BODY_NAME = new PropertyDescriptor.Builder()
+            .name("form-body-form-name")
+            .description("When set, POST/PUT/PATCH requests are sent as multipart/form-data, with the FlowFile content as the "
+                    + "file part of this name, preceded by a form field for each dynamic property named " + FORM_FIELD_PREFIX + "<field name> "
+                    + "and for each attribute matching 'Request Multipart Form-Data Attributes'. The content is streamed from the "
+                    + "content repository, and its part is sent with the Content-Type property's value and without 'Request Compression'. "
+                    + "If 'Send Message Body' is false, only the form fields are sent.")
+            .displayName("Request Multipart Form-Data Name")
+            .required(false)
+            .expressionLanguageSupported(ExpressionLanguageScope.FLOWFILE_ATTRIBUTES)
+            .addValidator(StandardValidators.createAttributeExpressionLanguageValidator(AttributeExpression.ResultType.STRING))
+            .build();
+
+    public static final PropertyDescriptor PROP_FORM_FILENAME = new PropertyDescriptor.Builder()
+            .name("set-form-filename")
+            .description("Whether the file part of a multipart/form-data request has the FlowFile's filename attribute as its filename.")
+            .displayName("Request Multipart Form-Data Filename Enabled")
+            .defaultValue("true")
+            .allowableValues("true", "false")
+            .required(false)
+            .build();
+
+    public static final PropertyDescriptor PROP_FORM_ATTRIBUTES = new PropertyDescriptor.Builder()
+            .name("form-attributes-to-send")
+            .description("Regular expression that defines which attributes to send as form fields of a multipart/form-data request, "
+                    + "named after the attribute. If not defined, no attributes are sent as form fields.")
+            .displayName("Request Multipart Form-Data Attributes")
+            .required(false)
+            .addValidator(StandardValidators.REGULAR_EXPRESSION_VALIDATOR)
+            .build();
+
     public static final List<PropertyDescriptor> DESCRIPTORS = Collections.unmodifiableList(Arrays.asList(
             PROP_METHOD,
             PROP_URL,
@@ -231,5 +1107,89 @@ public class Descriptions {
             PROP_PENALIZE_NO_RETRY,
             PROP_USE_ETAG,
             PROP_ETAG_MAX_CACHE_SIZE,
-            IGNORE_RESPONSE_CONTENT));
+            PROP_ETAG_CACHE_DIRECTORY,
+            IGNORE_RESPONSE_CONTENT,
+            PROP_BATCH_SIZE,
+            PROP_MAX_IN_FLIGHT,
+            PROP_MAX_IDLE_CONNECTIONS,
+            PROP_KEEP_ALIVE_DURATION,
+            PROP_MAX_REQUESTS,
+            PROP_MAX_REQUESTS_PER_HOST,
+            PROP_SHARE_CONNECTION_POOL,
+            PROP_USE_RESPONSE_CACHE,
+            PROP_RESPONSE_CACHE_TTL,
+            PROP_RESPONSE_CACHE_MAX_ENTRIES,
+            PROP_RESPONSE_CACHE_MAX_SIZE,
+            PROP_RESPONSE_CACHE_MAX_ENTRY_SIZE,
+            PROP_RESPONSE_CACHE_KEY_HEADERS,
+            PROP_COALESCE_REQUESTS,
+            PROP_COALESCE_MAX_SIZE,
+            PROP_HTTP_PROTOCOLS,
+            PROP_REQUEST_BUFFER_SIZE,
+            PROP_RECORD_LATENCY,
+            PROP_LATENCY_REPORT_INTERVAL,
+            PROP_LATENCY_ATTRIBUTES,
+            PROP_CONCURRENCY_LIMIT,
+            PROP_CONCURRENCY_LIMIT_INITIAL,
+            PROP_CONCURRENCY_LIMIT_MAX,
+            PROP_CIRCUIT_BREAKER,
+            PROP_CIRCUIT_BREAKER_WINDOW_SIZE,
+            PROP_CIRCUIT_BREAKER_MINIMUM_REQUESTS,
+            PROP_CIRCUIT_BREAKER_FAILURE_RATE,
+            PROP_CIRCUIT_BREAKER_OPEN_DURATION,
+            PROP_CIRCUIT_BREAKER_PROBES,
+            PROP_RATE_LIMIT,
+            PROP_RATE_LIMIT_BURST,
+            PROP_RATE_LIMIT_KEY,
+            PROP_HONOR_RATE_LIMIT_HEADERS,
+            PROP_RETRY_MAX_ATTEMPTS,
+            PROP_RETRY_INITIAL_BACKOFF,
+            PROP_RETRY_MAX_BACKOFF,
+            PROP_RETRY_STATUS_CODES,
+            PROP_RETRY_EXCEPTIONS,
+            PROP_RETRY_NON_IDEMPOTENT,
+            PROP_HEDGE_DELAY,
+            PROP_HEDGE_PERCENTILE,
+            PROP_ENDPOINTS,
+            PROP_LOAD_BALANCING,
+            PROP_ENDPOINT_RESOLUTION,
+            PROP_OUTLIER_CONSECUTIVE_FAILURES,
+            PROP_OUTLIER_EJECTION_TIME,
+            PROP_HEALTH_CHECK_PATH,
+            PROP_HEALTH_CHECK_INTERVAL,
+            PROP_DNS_CACHE,
+            PROP_DNS_CACHE_MIN_TTL,
+            PROP_DNS_CACHE_MAX_TTL,
+            PROP_DNS_CACHE_NEGATIVE_TTL,
+            PROP_DNS_CACHE_MAX_ENTRIES,
+            PROP_SSL_CONTEXT_SERVICE,
+            PROP_TLS_PROTOCOLS,
+            PROP_TLS_CIPHER_SUITES,
+            PROP_TLS_SESSION_CACHE_SIZE,
+            PROP_TLS_SESSION_TIMEOUT,
+            PROP_REQUEST_COMPRESSION,
+            PROP_REQUEST_COMPRESSION_LEVEL,
+            PROP_REQUEST_COMPRESSION_MIN_SIZE,
+            PROP_ACCEPT_ENCODING,
+            PROP_EXECUTION_MODE,
+            PROP_RECORD_READER,
+            PROP_RECORD_WRITER,
+            PROP_RECORD_URL_PATH,
+            PROP_RECORD_METHOD_PATH,
+            PROP_RECORD_HEADERS_PATH,
+            PROP_RECORD_BODY_PATH,
+            PROP_RECORD_RESPONSE_READER,
+            PROP_RECORD_RESPONSE_HEADERS,
+            PROP_RECORD_RESULT_FIELD,
+            PROP_BULK_FORMAT,
+            PROP_BULK_MAX_FLOWFILES,
+            PROP_BULK_MAX_SIZE,
+            PROP_BULK_MAX_RESPONSE_SIZE,
+            PROP_BULK_MAX_WAIT,
+            PROP_BULK_ITEMS_PATH,
+            PROP_BULK_ID_PATH,
+            PROP_BULK_STATUS_PATH,
+            PROP_FORM_BODY_NAME,
+            PROP_FORM_FILENAME,
+            PROP_FORM_ATTRIBUTES));
 }
@@ -0,0 +1,46 @@
+package nifi.processors.demo.properties;
+
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.components.Validator;
+
+/**
+ * Checks that a property value is a finite number greater than a lower bound and at most an upper bound.
+ */
+public class NumberRangeValidator implements Validator {
+
+    private final double exclusiveMin;
+    private final double inclusiveMax;
+
+    public NumberRangeValidator(double exclusiveMin, double inclusiveMax) {
+        this.exclusiveMin = exclusiveMin;
+        this.inclusiveMax = inclusiveMax;
+    }
+
+    @Override
+    public ValidationResult validate(String subject, String input, ValidationContext context) {
+        String explanation = null;
+        try {
+            final double value = Double.parseDouble(input);
+            if (!Double.isFinite(value)) {
+                explanation = "not a finite number";
+            } else if (!(value > exclusiveMin && value <= inclusiveMax)) {
+                explanation = inclusiveMax == Double.POSITIVE_INFINITY
+                        ? "must be greater than " + format(exclusiveMin)
+                        : "must be greater than " + format(exclusiveMin) + " and at most " + format(inclusiveMax);
+            }
+        } catch (final NumberFormatException | NullPointerException e) {
+            explanation = "not a number";
+        }
+        return new ValidationResult.Builder()
+                .subject(subject)
+                .input(input)
+                .valid(explanation == null)
+                .explanation(explanation)
+                .build();
+    }
+
+    private static String format(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+}
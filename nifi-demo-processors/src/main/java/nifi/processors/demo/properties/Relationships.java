@@ -39,6 +39,15 @@ public class Relationships {
                     + "It will have new attributes detailing the request.")
             .build();
 
+    public static final Relationship REL_CIRCUIT_OPEN = new Relationship.Builder()
+            .name("Circuit Open")
+            .description("The original FlowFile will be routed here without sending a request while the circuit breaker of its host is open. "
+                    + "Only available if the 'Circuit Breaker' property routes to this relationship.")
+            .build();
+
     public static final Set<Relationship> RELATIONSHIPS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
             REL_SUCCESS_REQ, REL_RESPONSE, REL_RETRY, REL_NO_RETRY, REL_FAILURE)));
+
+    public static final Set<Relationship> RELATIONSHIPS_WITH_CIRCUIT_OPEN = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            REL_SUCCESS_REQ, REL_RESPONSE, REL_RETRY, REL_NO_RETRY, REL_FAILURE, REL_CIRCUIT_OPEN)));
 }
@@ -0,0 +1,432 @@
+package nifi.processors.demo.record;
+
+import nifi.processors.demo.balance.Endpoint;
+import nifi.processors.demo.balance.LoadBalancer;
+import nifi.processors.demo.breaker.CircuitBreaker;
+import nifi.processors.demo.compress.ContentCoding;
+import nifi.processors.demo.compress.DecodedResponseBody;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.exception.ProcessException;
+import org.apache.nifi.schema.access.SchemaNotFoundException;
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.RecordReaderFactory;
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.RecordSetWriterFactory;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Sends one request per record of a FlowFile. Up to "Max In-Flight Requests" of them are outstanding on the client's
+ * dispatcher at once, and their results are written in the order of the records, as they arrive, so only the
+ * records in flight are held in memory.
+ * <p>
+ * Records whose request got a 2xx response are written to one FlowFile, all others to another, each with the result
+ * of its request in the result field. Each request goes through the load balancer and the circuit breaker; the
+ * gates that decide per FlowFile whether to send it at all don't apply to records, so the processor isn't valid with
+ * a Rate Limit or an Adaptive Concurrency Limit and a Record Reader.
+ */
+public final class RecordInvoker {
+    /**
+     * The most records without a response body that wait for the schema of a body, with a response reader that
+     * infers it. Beyond that, the succeeded records are written with an empty body schema.
+     */
+    static final int MAX_AWAITING_SCHEMA = 1000;
+
+    private final RecordReaderFactory readerFactory;
+    private final RecordSetWriterFactory writerFactory;
+    private final RecordReaderFactory responseReaderFactory;
+    private final RecordRequests requests;
+    private final String resultField;
+    private final List<String> responseHeaders;
+    private final List<ContentCoding> acceptEncodings;
+    private final int maxInFlight;
+    private final LoadBalancer balancer;
+    private final CircuitBreaker breaker;
+    private final ComponentLog logger;
+
+    /**
+     * @param responseReaderFactory parses successful response bodies, or null to add them as strings
+     * @param balancer              the load balancer, or null
+     * @param breaker               the circuit breaker, or null
+     */
+    public RecordInvoker(RecordReaderFactory readerFactory, RecordSetWriterFactory writerFactory, RecordReaderFactory responseReaderFactory,
+                         RecordRequests requests, String resultField, List<String> responseHeaders, List<ContentCoding> acceptEncodings,
+                         int maxInFlight, LoadBalancer balancer, CircuitBreaker breaker, ComponentLog logger) {
+        this.readerFactory = readerFactory;
+        this.writerFactory = writerFactory;
+        this.responseReaderFactory = responseReaderFactory;
+        this.requests = requests;
+        this.resultField = resultField;
+        this.responseHeaders = responseHeaders;
+        this.acceptEncodings = acceptEncodings;
+        this.maxInFlight = maxInFlight;
+        this.balancer = balancer;
+        this.breaker = breaker;
+        this.logger = logger;
+    }
+
+    /**
+     * Sends the requests of all records of the FlowFile and writes their results. If the FlowFile can't be read or
+     * the results can't be written, the FlowFiles created so far are removed and the exception is thrown.
+     *
+     * @param baseUrl     the Remote URL of the FlowFile
+     * @param method      the HTTP Method of the FlowFile
+     * @param headers     the headers of every request of the FlowFile
+     * @param contentType the content type of request bodies
+     */
+    public Result invoke(OkHttpClient client, ProcessSession session, FlowFile flowFile, URL baseUrl, String method, Headers headers,
+                         MediaType contentType) throws IOException, MalformedRecordException, SchemaNotFoundException {
+        final Output succeeded = new Output(session, flowFile, responseReaderFactory == null ? null : responseSchema(flowFile));
+        final Output failed = new Output(session, flowFile, null);
+        final Deque<Pending> window = new ArrayDeque<>(maxInFlight);
+
+        try (final InputStream in = session.read(flowFile);
+             final RecordReader reader = readerFactory.createRecordReader(flowFile, in, logger)) {
+            final RecordSchema inputSchema = reader.getSchema();
+            Record record = reader.nextRecord();
+            while (record != null || !window.isEmpty()) {
+                while (record != null && window.size() < maxInFlight) {
+                    window.add(send(client, record, baseUrl, method, headers, contentType));
+                    record = reader.nextRecord();
+                }
+
+                final Pending head = window.poll();
+                write(head.record, inputSchema, head.result.get(), flowFile, succeeded, failed);
+            }
+            return new Result(succeeded.finish(), failed.finish());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(window, succeeded, failed);
+            throw new ProcessException("Interrupted while waiting for HTTP responses", e);
+        } catch (final ExecutionException e) {
+            abandon(window, succeeded, failed);
+            throw new ProcessException(e.getCause());
+        } catch (final IOException | MalformedRecordException | SchemaNotFoundException | RuntimeException e) {
+            abandon(window, succeeded, failed);
+            throw e;
+        }
+    }
+
+    private Pending send(OkHttpClient client, Record record, URL baseUrl, String method, Headers headers, MediaType contentType) {
+        final Pending pending = new Pending(record);
+        LoadBalancer.Selection selection = null;
+        Request request;
+        try {
+            request = requests.build(record, baseUrl, method, headers, contentType);
+            if (balancer != null) {
+                selection = balancer.select();
+                request = request.newBuilder()
+                        .url(selection.getEndpoint().resolve(request.url().url()))
+                        .tag(Endpoint.class, selection.getEndpoint())
+                        .build();
+            }
+        } catch (final Exception e) {
+            if (selection != null) {
+                selection.release();
+            }
+            pending.result.complete(RecordResult.failed(null, e.getClass().getName() + ": " + e.getMessage()));
+            return pending;
+        }
+
+        final String url = request.url().toString();
+        final CircuitBreaker.Permit permit = breaker == null ? null : breaker.tryAcquire(request.url().host());
+        if (breaker != null && permit == null) {
+            if (selection != null) {
+                selection.release();
+            }
+            pending.result.complete(RecordResult.failed(url, "Circuit open for " + request.url().host()));
+            return pending;
+        }
+
+        final LoadBalancer.Selection chosen = selection;
+        pending.call = LoadBalancer.newCall(client, request);
+        pending.call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                release(permit, chosen, false);
+                pending.result.complete(RecordResult.failed(url, e.getClass().getName() + ": " + e.getMessage()));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                release(permit, chosen, response.code() / 100 != 5);
+                final Response decoded = acceptEncodings.isEmpty() ? response : DecodedResponseBody.decode(response, acceptEncodings);
+                try (final Response closing = decoded) {
+                    pending.result.complete(RecordResult.of(closing, responseHeaders));
+                } catch (final IOException | RuntimeException e) {
+                    pending.result.complete(RecordResult.failed(url, e.getClass().getName() + ": " + e.getMessage()));
+                }
+            }
+        });
+        return pending;
+    }
+
+    private static void release(CircuitBreaker.Permit permit, LoadBalancer.Selection selection, boolean success) {
+        if (permit != null) {
+            if (success) {
+                permit.onSuccess();
+            } else {
+                permit.onFailure();
+            }
+        }
+        if (selection != null) {
+            selection.release(success);
+        }
+    }
+
+    private void write(Record record, RecordSchema inputSchema, RecordResult result, FlowFile flowFile, Output succeeded, Output failed)
+            throws IOException, SchemaNotFoundException {
+        if (!result.isSuccess() || responseReaderFactory == null) {
+            final Output output = result.isSuccess() ? succeeded : failed;
+            output.write(record, inputSchema, null, result, result.getBodyAsString());
+            return;
+        }
+        if (result.getBody() == null || result.getBody().length == 0) {
+            // e.g. a 204: no records, but the body stays an array of records, which the output may not have a schema for yet
+            succeeded.writeWithoutBody(record, inputSchema, result);
+            return;
+        }
+
+        final List<Record> parsed = new ArrayList<>();
+        final RecordSchema bodySchema;
+        try (final RecordReader reader = responseReaderFactory.createRecordReader(flowFile.getAttributes(), new ByteArrayInputStream(result.getBody()), logger)) {
+            bodySchema = reader.getSchema();
+            Record bodyRecord;
+            while ((bodyRecord = reader.nextRecord()) != null) {
+                parsed.add(bodyRecord);
+            }
+        } catch (final MalformedRecordException | SchemaNotFoundException | IOException e) {
+            final RecordResult unparsed = result.withError("Failed to parse the response: " + e.getMessage());
+            failed.write(record, inputSchema, null, unparsed, unparsed.getBodyAsString());
+            return;
+        }
+        if (!succeeded.fits(bodySchema)) {
+            final RecordResult unfit = result.withError("The response has fields, but the succeeded records were written with an empty "
+                    + "body schema after " + MAX_AWAITING_SCHEMA + " responses without a body");
+            failed.write(record, inputSchema, null, unfit, unfit.getBodyAsString());
+            return;
+        }
+        succeeded.write(record, inputSchema, bodySchema, result, parsed.toArray());
+    }
+
+    /**
+     * The schema the response reader has for the FlowFile before seeing any content, e.g. one it is given by name or
+     * text, or an empty schema if it can only infer one from content.
+     */
+    private RecordSchema responseSchema(FlowFile flowFile) {
+        try (final RecordReader reader = responseReaderFactory.createRecordReader(flowFile.getAttributes(), new ByteArrayInputStream(new byte[0]), logger)) {
+            return reader.getSchema();
+        } catch (final MalformedRecordException | SchemaNotFoundException | IOException | RuntimeException e) {
+            logger.debug("The Record Response Reader has no schema for {} without content", new Object[]{flowFile}, e);
+            return new SimpleRecordSchema(Collections.emptyList());
+        }
+    }
+
+    private static void abandon(Deque<Pending> window, Output succeeded, Output failed) {
+        for (Pending pending : window) {
+            if (pending.call != null) {
+                pending.call.cancel();
+            }
+        }
+        succeeded.remove();
+        failed.remove();
+    }
+
+    /**
+     * The outcome of one FlowFile's records.
+     */
+    public static final class Result {
+        private final FlowFile succeeded;
+        private final FlowFile failed;
+
+        private Result(FlowFile succeeded, FlowFile failed) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+        }
+
+        /**
+         * The records whose request got a 2xx response, or null if there were none.
+         */
+        public FlowFile getSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * The records whose request failed or got any other response, or null if there were none.
+         */
+        public FlowFile getFailed() {
+            return failed;
+        }
+    }
+
+    private static final class Pending {
+        private final Record record;
+        private final CompletableFuture<RecordResult> result = new CompletableFuture<>();
+        private volatile Call call;
+
+        private Pending(Record record) {
+            this.record = record;
+        }
+    }
+
+    private static final class AwaitingSchema {
+        private final Record record;
+        private final RecordSchema inputSchema;
+        private final RecordResult result;
+
+        private AwaitingSchema(Record record, RecordSchema inputSchema, RecordResult result) {
+            this.record = record;
+            this.inputSchema = inputSchema;
+            this.result = result;
+        }
+    }
+
+    /**
+     * A FlowFile of enriched records, created with its writer when the first record is written to it, since the
+     * schema of a parsed response body is only known then. Records without a body that come first wait for it, if
+     * the response reader has no schema before it sees a body.
+     */
+    private final class Output {
+        private final ProcessSession session;
+        private final FlowFile parent;
+        private final RecordSchema emptyBodySchema;
+        private final List<AwaitingSchema> awaiting = new ArrayList<>();
+        private FlowFile flowFile;
+        private OutputStream out;
+        private RecordSetWriter writer;
+        private RecordSchema bodySchema;
+        private RecordSchema resultSchema;
+        private RecordSchema enrichedSchema;
+
+        /**
+         * @param emptyBodySchema the schema the response reader has without a body, or null if bodies are strings
+         */
+        private Output(ProcessSession session, FlowFile parent, RecordSchema emptyBodySchema) {
+            this.session = session;
+            this.parent = parent;
+            this.emptyBodySchema = emptyBodySchema;
+        }
+
+        /**
+         * @param bodySchema the schema of the records of a parsed body, or null for a string body; only used by
+         *                   the first record written
+         */
+        void write(Record record, RecordSchema inputSchema, RecordSchema bodySchema, RecordResult result, Object bodyValue)
+                throws IOException, SchemaNotFoundException {
+            if (writer == null) {
+                start(inputSchema, bodySchema);
+            }
+            writer.write(result.enrich(record, enrichedSchema, resultField, resultSchema, bodyValue));
+        }
+
+        /**
+         * Writes a record whose response has no body, or has it wait for the schema of a body.
+         */
+        void writeWithoutBody(Record record, RecordSchema inputSchema, RecordResult result) throws IOException, SchemaNotFoundException {
+            if (writer != null || !emptyBodySchema.getFields().isEmpty()) {
+                write(record, inputSchema, emptyBodySchema, result, null);
+                return;
+            }
+            awaiting.add(new AwaitingSchema(record, inputSchema, result));
+            if (awaiting.size() >= MAX_AWAITING_SCHEMA) {
+                start(inputSchema, emptyBodySchema);
+            }
+        }
+
+        /**
+         * Whether records of a body with the schema can be written: not if the writer was started with an empty body
+         * schema for records that couldn't wait any longer.
+         */
+        boolean fits(RecordSchema schema) {
+            return writer == null || !bodySchema.getFields().isEmpty() || schema.getFields().isEmpty();
+        }
+
+        private void start(RecordSchema inputSchema, RecordSchema bodySchema) throws IOException, SchemaNotFoundException {
+            this.bodySchema = bodySchema;
+            resultSchema = RecordResult.schema(bodySchema);
+            enrichedSchema = RecordResult.enrichedSchema(inputSchema, resultField, resultSchema);
+            flowFile = session.create(parent);
+            out = session.write(flowFile);
+            writer = writerFactory.createWriter(logger, writerFactory.getSchema(parent.getAttributes(), enrichedSchema), out);
+            writer.beginRecordSet();
+            for (AwaitingSchema waiting : awaiting) {
+                writer.write(waiting.result.enrich(waiting.record, enrichedSchema, resultField, resultSchema, null));
+            }
+            awaiting.clear();
+        }
+
+        /**
+         * Completes the record set and returns the FlowFile with its record count and MIME type, or null if nothing
+         * was written to it.
+         */
+        FlowFile finish() throws IOException, SchemaNotFoundException {
+            if (writer == null && !awaiting.isEmpty()) {
+                start(awaiting.get(0).inputSchema, emptyBodySchema);
+            }
+            if (writer == null) {
+                return null;
+            }
+            final WriteResult writeResult;
+            final String mimeType;
+            try {
+                writeResult = writer.finishRecordSet();
+                mimeType = writer.getMimeType();
+            } finally {
+                closeQuietly();
+            }
+            final Map<String, String> attributes = new HashMap<>(writeResult.getAttributes());
+            attributes.put("record.count", String.valueOf(writeResult.getRecordCount()));
+            attributes.put(CoreAttributes.MIME_TYPE.key(), mimeType);
+            return session.putAllAttributes(flowFile, attributes);
+        }
+
+        void remove() {
+            awaiting.clear();
+            if (flowFile != null) {
+                closeQuietly();
+                session.remove(flowFile);
+                flowFile = null;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                out.close();
+            } catch (final IOException e) {
+                logger.warn("Failed to close the record writer", e);
+            }
+            writer = null;
+        }
+    }
+}
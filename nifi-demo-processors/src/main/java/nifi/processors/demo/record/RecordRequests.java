@@ -0,0 +1,124 @@
+package nifi.processors.demo.record;
+
+import nifi.processors.demo.model.RequestPlan;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.nifi.record.path.FieldValue;
+import org.apache.nifi.record.path.RecordPath;
+import org.apache.nifi.serialization.record.Record;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Builds the request of a record from its fields, selected by RecordPaths compiled once when the processor is
+ * scheduled. Whatever a record doesn't specify comes from the FlowFile's request properties.
+ */
+public final class RecordRequests {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final RecordPath urlPath;
+    private final RecordPath methodPath;
+    private final RecordPath headersPath;
+    private final RecordPath bodyPath;
+
+    /**
+     * Each path may be null, in which case the request properties apply.
+     */
+    public RecordRequests(String urlPath, String methodPath, String headersPath, String bodyPath) {
+        this.urlPath = compile(urlPath);
+        this.methodPath = compile(methodPath);
+        this.headersPath = compile(headersPath);
+        this.bodyPath = compile(bodyPath);
+    }
+
+    private static RecordPath compile(String path) {
+        return StringUtils.isBlank(path) ? null : RecordPath.compile(path);
+    }
+
+    /**
+     * @param baseUrl     the Remote URL of the FlowFile, which relative URLs of records are resolved against
+     * @param method      the HTTP Method of the FlowFile
+     * @param headers     the headers every request of the FlowFile has
+     * @param contentType the content type of request bodies
+     * @throws IllegalArgumentException if a field of the record has a value that can't be used
+     */
+    public Request build(Record record, URL baseUrl, String method, Headers headers, MediaType contentType) throws MalformedURLException {
+        final Object url = value(urlPath, record);
+        final Object recordMethod = value(methodPath, record);
+        final Request.Builder builder = new Request.Builder()
+                .url(url == null || url.toString().isEmpty() ? baseUrl : new URL(baseUrl, url.toString()))
+                .headers(headers);
+
+        final Object recordHeaders = value(headersPath, record);
+        final Map<?, ?> headerMap = recordHeaders instanceof Record ? ((Record) recordHeaders).toMap() : asMap(recordHeaders);
+        for (Map.Entry<?, ?> header : headerMap.entrySet()) {
+            if (header.getValue() != null) {
+                builder.header(header.getKey().toString(), header.getValue().toString());
+            }
+        }
+
+        final String requestMethod = recordMethod == null || recordMethod.toString().trim().isEmpty()
+                ? method : recordMethod.toString().trim().toUpperCase();
+        final RequestPlan.Method knownMethod = RequestPlan.Method.of(requestMethod);
+        if (knownMethod == RequestPlan.Method.GET || knownMethod == RequestPlan.Method.HEAD) {
+            return builder.method(requestMethod, null).build();
+        }
+        final byte[] body = body(value(bodyPath, record), contentType);
+        if (body == null && knownMethod != RequestPlan.Method.POST && knownMethod != RequestPlan.Method.PUT && knownMethod != RequestPlan.Method.PATCH) {
+            return builder.method(requestMethod, null).build();
+        }
+        return builder.method(requestMethod, RequestBody.create(body == null ? EMPTY : body, contentType)).build();
+    }
+
+    private static Object value(RecordPath path, Record record) {
+        if (path == null) {
+            return null;
+        }
+        return path.evaluate(record).getSelectedFields().findFirst().map(FieldValue::getValue).orElse(null);
+    }
+
+    private static Map<?, ?> asMap(Object value) {
+        if (value == null) {
+            return Collections.emptyMap();
+        }
+        if (value instanceof Map) {
+            return (Map<?, ?>) value;
+        }
+        throw new IllegalArgumentException("Headers field must be a map or a record, not " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * Record readers hand out bytes either as byte[] or as an array of Byte objects, strings are encoded with the
+     * charset of the content type.
+     */
+    private static byte[] body(Object value, MediaType contentType) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            final byte[] bytes = new byte[array.length];
+            for (int i = 0; i < array.length; i++) {
+                if (!(array[i] instanceof Byte)) {
+                    throw new IllegalArgumentException("Body field must be a string or bytes, not an array of " + array[i]);
+                }
+                bytes[i] = (Byte) array[i];
+            }
+            return bytes;
+        }
+        if (value instanceof CharSequence) {
+            return value.toString().getBytes(contentType == null ? StandardCharsets.UTF_8 : contentType.charset(StandardCharsets.UTF_8));
+        }
+        throw new IllegalArgumentException("Body field must be a string or bytes, not " + value.getClass().getSimpleName());
+    }
+}
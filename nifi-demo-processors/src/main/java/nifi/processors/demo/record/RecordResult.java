@@ -0,0 +1,155 @@
+package nifi.processors.demo.record;
+
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.record.DataType;
+import org.apache.nifi.serialization.record.MapRecord;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a record's request, and how it is added to the record: as a nested record in the result field.
+ */
+public final class RecordResult {
+    public static final String URL = "url";
+    public static final String STATUS_CODE = "status_code";
+    public static final String STATUS_MESSAGE = "status_message";
+    public static final String HEADERS = "headers";
+    public static final String BODY = "body";
+    public static final String ERROR = "error";
+
+    private final String url;
+    private final int statusCode;
+    private final String statusMessage;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final MediaType contentType;
+    private final String error;
+
+    private RecordResult(String url, int statusCode, String statusMessage, Map<String, String> headers, byte[] body, MediaType contentType, String error) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.headers = headers;
+        this.body = body;
+        this.contentType = contentType;
+        this.error = error;
+    }
+
+    /**
+     * A request that failed before it got a response, or was never sent.
+     */
+    public static RecordResult failed(String url, String error) {
+        return new RecordResult(url, -1, null, Collections.emptyMap(), null, null, error);
+    }
+
+    /**
+     * Reads the whole response, keeping only the named headers.
+     */
+    public static RecordResult of(Response response, Collection<String> headerNames) throws IOException {
+        final Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : headerNames) {
+            final String value = response.header(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        final ResponseBody responseBody = response.body();
+        final byte[] body = responseBody == null ? null : responseBody.bytes();
+        return new RecordResult(response.request().url().toString(), response.code(), response.message(), headers, body,
+                responseBody == null ? null : responseBody.contentType(), null);
+    }
+
+    /**
+     * The same response, failed after all, e.g. because its body couldn't be parsed.
+     */
+    public RecordResult withError(String error) {
+        return new RecordResult(url, statusCode, statusMessage, headers, body, contentType, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null && statusCode / 100 == 2;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The response body, or null if there is none.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyAsString() {
+        return body == null ? null : new String(body, contentType == null ? StandardCharsets.UTF_8 : contentType.charset(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The schema of the result field, with the body as a string, or as an array of records of the given schema.
+     */
+    public static RecordSchema schema(RecordSchema bodySchema) {
+        final DataType bodyType = bodySchema == null
+                ? RecordFieldType.STRING.getDataType()
+                : RecordFieldType.ARRAY.getArrayDataType(RecordFieldType.RECORD.getRecordDataType(bodySchema));
+        final List<RecordField> fields = new ArrayList<>();
+        fields.add(new RecordField(URL, RecordFieldType.STRING.getDataType(), true));
+        fields.add(new RecordField(STATUS_CODE, RecordFieldType.INT.getDataType(), true));
+        fields.add(new RecordField(STATUS_MESSAGE, RecordFieldType.STRING.getDataType(), true));
+        fields.add(new RecordField(HEADERS, RecordFieldType.MAP.getMapDataType(RecordFieldType.STRING.getDataType()), true));
+        fields.add(new RecordField(BODY, bodyType, true));
+        fields.add(new RecordField(ERROR, RecordFieldType.STRING.getDataType(), true));
+        return new SimpleRecordSchema(fields);
+    }
+
+    /**
+     * The schema of the input records with the result field added, or replaced if they already have one.
+     */
+    public static RecordSchema enrichedSchema(RecordSchema input, String resultField, RecordSchema resultSchema) {
+        final List<RecordField> fields = new ArrayList<>(input.getFieldCount() + 1);
+        for (RecordField field : input.getFields()) {
+            if (!field.getFieldName().equals(resultField)) {
+                fields.add(field);
+            }
+        }
+        fields.add(new RecordField(resultField, RecordFieldType.RECORD.getRecordDataType(resultSchema), true));
+        return new SimpleRecordSchema(fields);
+    }
+
+    /**
+     * The record with this result in its result field.
+     *
+     * @param bodyValue the body as it is to appear in the result, a string or an array of records
+     */
+    public Record enrich(Record record, RecordSchema enrichedSchema, String resultField, RecordSchema resultSchema, Object bodyValue) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put(URL, url);
+        result.put(STATUS_CODE, statusCode < 0 ? null : statusCode);
+        result.put(STATUS_MESSAGE, statusMessage);
+        result.put(HEADERS, headers);
+        result.put(BODY, bodyValue);
+        result.put(ERROR, error);
+
+        final Map<String, Object> values = new LinkedHashMap<>(record.toMap());
+        values.put(resultField, new MapRecord(resultSchema, result));
+        return new MapRecord(enrichedSchema, values);
+    }
+}
@@ -0,0 +1,72 @@
+package nifi.processors.demo.retry;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries transient failures inside the call, so that they resolve without the FlowFile going back through the
+ * flow. The wait between attempts happens on the thread that runs the call: the calling thread for a single request,
+ * a dispatcher thread for batches.
+ * <p>
+ * The number of retries is counted in the {@link Attempts} tagged on the request, if any.
+ */
+public class RetryInterceptor implements Interceptor {
+
+    private final RetryPolicy policy;
+
+    public RetryInterceptor(RetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        final Attempts attempts = request.tag(Attempts.class);
+
+        for (int attempt = 1; ; attempt++) {
+            Response response = null;
+            IOException failure = null;
+            try {
+                response = chain.proceed(request);
+            } catch (final IOException e) {
+                failure = e;
+            }
+
+            if (chain.call().isCanceled() || !policy.shouldRetry(request, attempt, response, failure)) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+
+            if (response != null) {
+                response.close();
+            }
+            if (attempts != null) {
+                attempts.retries = attempt;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(policy.backoffNanos(attempt));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry " + request.url());
+            }
+        }
+    }
+
+    /**
+     * How often a request has been retried so far.
+     */
+    public static final class Attempts {
+        private volatile int retries;
+
+        public int getRetries() {
+            return retries;
+        }
+    }
+}
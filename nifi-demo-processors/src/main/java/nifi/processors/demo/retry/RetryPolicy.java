@@ -0,0 +1,86 @@
+package nifi.processors.demo.retry;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed attempt is tried again and how long to wait before it. Backoff is exponential with full
+ * jitter: the n-th retry waits a random time between zero and initialBackoff * 2^(n-1), capped at maxBackoff.
+ */
+public class RetryPolicy {
+
+    private static final Set<String> IDEMPOTENT_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "GET", "HEAD", "PUT", "DELETE", "OPTIONS", "TRACE")));
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Set<Integer> retryableStatusCodes;
+    private final Set<String> retryableExceptions;
+    private final boolean retryNonIdempotent;
+
+    public RetryPolicy(int maxAttempts, long initialBackoffNanos, long maxBackoffNanos, Collection<Integer> retryableStatusCodes,
+                       Collection<String> retryableExceptions, boolean retryNonIdempotent) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.retryableStatusCodes = new HashSet<>(retryableStatusCodes);
+        this.retryableExceptions = new HashSet<>(retryableExceptions);
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Whether the request may be sent again after the given attempt, which either produced a response or failed.
+     *
+     * @param attempt the number of the attempt that just completed, starting at 1
+     */
+    public boolean shouldRetry(Request request, int attempt, Response response, Exception failure) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        if (!retryNonIdempotent && !IDEMPOTENT_METHODS.contains(request.method())) {
+            return false;
+        }
+        // a body streamed from an already opened FlowFile stream can't be sent twice
+        if (request.body() != null && request.body().isOneShot()) {
+            return false;
+        }
+        if (failure != null) {
+            return isRetryable(failure);
+        }
+        return response != null && retryableStatusCodes.contains(response.code());
+    }
+
+    /**
+     * Exceptions match by the name of their class or any of its superclasses, so that e.g. java.net.SocketException
+     * also covers connection resets.
+     */
+    private boolean isRetryable(Exception failure) {
+        for (Class<?> type = failure.getClass(); type != null; type = type.getSuperclass()) {
+            if (retryableExceptions.contains(type.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * How long to wait before the given retry, starting at 1.
+     */
+    public long backoffNanos(int retry) {
+        final int shift = Math.min(retry - 1, 30);
+        final long ceiling = initialBackoffNanos > maxBackoffNanos >> shift ? maxBackoffNanos : initialBackoffNanos << shift;
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
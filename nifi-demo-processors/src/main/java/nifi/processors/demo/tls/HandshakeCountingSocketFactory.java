@@ -0,0 +1,107 @@
+package nifi.processors.demo.tls;
+
+import org.apache.nifi.processor.ProcessSession;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the full and the resumed TLS handshakes per host of the sockets it creates. A handshake counts as resumed
+ * if it ended up with a session that is older than the socket, which is how the JSSE provider reports resumption.
+ */
+public class HandshakeCountingSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory delegate;
+    private final ConcurrentMap<String, Counts> hosts = new ConcurrentHashMap<>();
+
+    public HandshakeCountingSocketFactory(SSLSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return track(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return track(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return track(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return track(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return track(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return track(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket track(Socket socket) {
+        if (socket instanceof SSLSocket) {
+            final long createdAtMillis = System.currentTimeMillis();
+            ((SSLSocket) socket).addHandshakeCompletedListener(event -> record(event.getSession(), createdAtMillis));
+        }
+        return socket;
+    }
+
+    void record(SSLSession session, long socketCreatedAtMillis) {
+        final String host = session.getPeerHost() == null ? "unknown" : session.getPeerHost();
+        final Counts counts = hosts.computeIfAbsent(host, h -> new Counts());
+        if (session.getCreationTime() < socketCreatedAtMillis) {
+            counts.resumed.incrementAndGet();
+        } else {
+            counts.full.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds the handshakes since the last call to the processor's counters.
+     */
+    public void publish(ProcessSession session) {
+        for (Map.Entry<String, Counts> entry : hosts.entrySet()) {
+            final long full = entry.getValue().full.getAndSet(0);
+            if (full != 0) {
+                session.adjustCounter("TLS Full Handshakes " + entry.getKey(), full, false);
+            }
+            final long resumed = entry.getValue().resumed.getAndSet(0);
+            if (resumed != 0) {
+                session.adjustCounter("TLS Resumed Handshakes " + entry.getKey(), resumed, false);
+            }
+        }
+    }
+
+    private static final class Counts {
+        private final AtomicLong full = new AtomicLong();
+        private final AtomicLong resumed = new AtomicLong();
+    }
+}
@@ -0,0 +1,141 @@
+package nifi.processors.demo.tls;
+
+import org.apache.nifi.ssl.SSLContextService;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Hands out TLS contexts created from an {@link SSLContextService}. Processors asking for the same {@link Settings}
+ * share one context, and with it its cache of TLS sessions, so a new connection from any of them can resume a session
+ * instead of doing a full handshake. The context is dropped once the last of them releases it, which is also what
+ * happens before the service can be changed.
+ */
+public final class SharedTlsContexts {
+
+    private static final Map<Settings, Lease> LEASES = new HashMap<>();
+
+    private SharedTlsContexts() {
+    }
+
+    public static synchronized Lease acquire(Settings settings, SSLContextService service) throws IOException, GeneralSecurityException {
+        Lease lease = LEASES.get(settings);
+        if (lease == null) {
+            lease = new Lease(settings, service.createSSLContext(SSLContextService.ClientAuth.NONE), trustManager(service));
+            LEASES.put(settings, lease);
+        }
+        lease.references++;
+        return lease;
+    }
+
+    public static synchronized void release(Lease lease) {
+        if (--lease.references > 0) {
+            return;
+        }
+        LEASES.remove(lease.settings, lease);
+    }
+
+    static synchronized int size() {
+        return LEASES.size();
+    }
+
+    /**
+     * OkHttp needs the trust manager on its own to clean up certificate chains, so it is created from the
+     * service's trust store the same way the service does.
+     */
+    private static X509TrustManager trustManager(SSLContextService service) throws IOException, GeneralSecurityException {
+        final TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        if (service.isTrustStoreConfigured()) {
+            final KeyStore trustStore = KeyStore.getInstance(service.getTrustStoreType());
+            final String password = service.getTrustStorePassword();
+            try (InputStream in = new FileInputStream(service.getTrustStoreFile())) {
+                trustStore.load(in, password == null ? null : password.toCharArray());
+            }
+            factory.init(trustStore);
+        } else {
+            factory.init((KeyStore) null);
+        }
+        for (TrustManager trustManager : factory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new GeneralSecurityException("No X509TrustManager for the trust store of " + service.getIdentifier());
+    }
+
+    public static final class Lease {
+        private final Settings settings;
+        private final HandshakeCountingSocketFactory socketFactory;
+        private final X509TrustManager trustManager;
+        private int references;
+
+        private Lease(Settings settings, SSLContext sslContext, X509TrustManager trustManager) {
+            this.settings = settings;
+            final SSLSessionContext sessions = sslContext.getClientSessionContext();
+            sessions.setSessionCacheSize(settings.sessionCacheSize);
+            sessions.setSessionTimeout(settings.sessionTimeoutSeconds);
+            this.socketFactory = new HandshakeCountingSocketFactory(sslContext.getSocketFactory());
+            this.trustManager = trustManager;
+        }
+
+        /**
+         * The socket factory of the shared context. Its handshake counts include the handshakes of every processor
+         * sharing it.
+         */
+        public HandshakeCountingSocketFactory getSocketFactory() {
+            return socketFactory;
+        }
+
+        public X509TrustManager getTrustManager() {
+            return trustManager;
+        }
+    }
+
+    public static final class Settings {
+        private final String serviceIdentifier;
+        private final int sessionCacheSize;
+        private final int sessionTimeoutSeconds;
+
+        public Settings(String serviceIdentifier, int sessionCacheSize, int sessionTimeoutSeconds) {
+            this.serviceIdentifier = serviceIdentifier;
+            this.sessionCacheSize = sessionCacheSize;
+            this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Settings)) {
+                return false;
+            }
+            Settings that = (Settings) o;
+            return serviceIdentifier.equals(that.serviceIdentifier)
+                    && sessionCacheSize == that.sessionCacheSize
+                    && sessionTimeoutSeconds == that.sessionTimeoutSeconds;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceIdentifier, sessionCacheSize, sessionTimeoutSeconds);
+        }
+
+        @Override
+        public String toString() {
+            return "Settings[serviceIdentifier=" + serviceIdentifier + ", sessionCacheSize=" + sessionCacheSize
+                    + ", sessionTimeoutSeconds=" + sessionTimeoutSeconds + "]";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package nifi.processors.demo.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-thread reusable buffers for response bodies that are put into attributes. Each thread keeps one
+ * {@link SoftLimitBoundedByteArrayOutputStream}, grown to the largest limit it has been asked for, along with
+ * the decoders and char buffer used to turn its content into the attribute value.
+ */
+public class AttributeBufferPool {
+
+    private final ThreadLocal<AttributeBuffer> buffers = ThreadLocal.withInitial(AttributeBuffer::new);
+
+    /**
+     * Returns the calling thread's buffer reset to the given limit. If the thread's buffer is already in use an
+     * unpooled one is returned instead. The buffer must be released on the same thread.
+     */
+    public AttributeBuffer acquire(int limit) {
+        AttributeBuffer buffer = buffers.get();
+        if (buffer.inUse) {
+            buffer = new AttributeBuffer();
+        }
+        buffer.prepare(limit);
+        buffer.inUse = true;
+        return buffer;
+    }
+
+    public static final class AttributeBuffer {
+        private final Map<Charset, CharsetDecoder> decoders = new HashMap<>();
+        private SoftLimitBoundedByteArrayOutputStream stream;
+        private CharBuffer chars;
+        private boolean hit;
+        private boolean inUse;
+
+        private void prepare(int limit) {
+            if (stream != null && stream.getBuffer().length >= limit) {
+                stream.reset(limit);
+                hit = true;
+            } else {
+                stream = new SoftLimitBoundedByteArrayOutputStream(limit);
+                hit = false;
+            }
+        }
+
+        public SoftLimitBoundedByteArrayOutputStream getStream() {
+            return stream;
+        }
+
+        /**
+         * Whether the last acquire reused an existing buffer rather than allocating one.
+         */
+        public boolean isHit() {
+            return hit;
+        }
+
+        /**
+         * Decodes the buffered bytes, replacing malformed input the same way {@code new String(bytes, charset)} does.
+         */
+        public String decode(Charset charset) {
+            final CharsetDecoder decoder = decoders.computeIfAbsent(charset, c -> c.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+            decoder.reset();
+
+            final int maxChars = (int) Math.ceil(stream.size() * (double) decoder.maxCharsPerByte());
+            if (chars == null || chars.capacity() < maxChars) {
+                chars = CharBuffer.allocate(maxChars);
+            } else {
+                chars.clear();
+            }
+
+            decoder.decode(ByteBuffer.wrap(stream.getBuffer(), 0, stream.size()), chars, true);
+            decoder.flush(chars);
+            chars.flip();
+            return chars.toString();
+        }
+
+        public void release() {
+            inUse = false;
+        }
+    }
+}
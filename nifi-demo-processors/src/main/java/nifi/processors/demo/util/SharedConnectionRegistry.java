@@ -0,0 +1,135 @@
+package nifi.processors.demo.util;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out {@link ConnectionPool} / {@link Dispatcher} pairs. Processors asking for the same {@link Settings}
+ * share one pair, which is shut down once the last of them releases it.
+ */
+public final class SharedConnectionRegistry {
+
+    private static final Map<Settings, Lease> LEASES = new HashMap<>();
+
+    private SharedConnectionRegistry() {
+    }
+
+    public static synchronized Lease acquire(Settings settings) {
+        Lease lease = LEASES.computeIfAbsent(settings, Lease::new);
+        lease.references++;
+        return lease;
+    }
+
+    /**
+     * Creates a pool and dispatcher owned by a single caller, which is never handed to anyone else.
+     */
+    public static Lease createPrivate(Settings settings) {
+        Lease lease = new Lease(settings);
+        lease.references = 1;
+        return lease;
+    }
+
+    public static synchronized void release(Lease lease) {
+        if (--lease.references > 0) {
+            return;
+        }
+        LEASES.remove(lease.settings, lease);
+        lease.shutdown();
+    }
+
+    static synchronized int size() {
+        return LEASES.size();
+    }
+
+    public static final class Lease {
+        private final Settings settings;
+        private final ConnectionPool connectionPool;
+        private final Dispatcher dispatcher;
+        private final boolean virtualThreads;
+        private int references;
+
+        private Lease(Settings settings) {
+            this.settings = settings;
+            this.connectionPool = new ConnectionPool(settings.maxIdleConnections, settings.keepAliveMillis, TimeUnit.MILLISECONDS);
+            final ExecutorService virtualThreads = settings.virtualThreads ? VirtualThreads.newExecutor("InvokeHTTP call ") : null;
+            this.dispatcher = virtualThreads == null ? new Dispatcher() : new Dispatcher(virtualThreads);
+            this.virtualThreads = virtualThreads != null;
+            this.dispatcher.setMaxRequests(settings.maxRequests);
+            this.dispatcher.setMaxRequestsPerHost(settings.maxRequestsPerHost);
+        }
+
+        public ConnectionPool getConnectionPool() {
+            return connectionPool;
+        }
+
+        public Dispatcher getDispatcher() {
+            return dispatcher;
+        }
+
+        /**
+         * Whether the dispatcher runs calls on virtual threads. False if they were asked for but the JVM has none.
+         */
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        private void shutdown() {
+            dispatcher.cancelAll();
+            dispatcher.executorService().shutdown();
+            connectionPool.evictAll();
+        }
+    }
+
+    public static final class Settings {
+        private final int maxIdleConnections;
+        private final long keepAliveMillis;
+        private final int maxRequests;
+        private final int maxRequestsPerHost;
+        private final boolean virtualThreads;
+
+        public Settings(int maxIdleConnections, long keepAliveMillis, int maxRequests, int maxRequestsPerHost) {
+            this(maxIdleConnections, keepAliveMillis, maxRequests, maxRequestsPerHost, false);
+        }
+
+        public Settings(int maxIdleConnections, long keepAliveMillis, int maxRequests, int maxRequestsPerHost, boolean virtualThreads) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMillis = keepAliveMillis;
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            this.virtualThreads = virtualThreads;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Settings)) {
+                return false;
+            }
+            Settings that = (Settings) o;
+            return maxIdleConnections == that.maxIdleConnections
+                    && keepAliveMillis == that.keepAliveMillis
+                    && maxRequests == that.maxRequests
+                    && maxRequestsPerHost == that.maxRequestsPerHost
+                    && virtualThreads == that.virtualThreads;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxIdleConnections, keepAliveMillis, maxRequests, maxRequestsPerHost, virtualThreads);
+        }
+
+        @Override
+        public String toString() {
+            return "Settings[maxIdleConnections=" + maxIdleConnections + ", keepAliveMillis=" + keepAliveMillis
+                    + ", maxRequests=" + maxRequests + ", maxRequestsPerHost=" + maxRequestsPerHost + ", virtualThreads=" + virtualThreads + "]";
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package nifi.processors.demo.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public class SoftLimitBoundedByteArrayOutputStream extends OutputStream {
@@ -50,6 +51,19 @@ public class SoftLimitBoundedByteArrayOutputStream extends OutputStream {
         count += len;
     }
 
+    /**
+     * Reads from the stream straight into the buffer until the limit is reached or the stream ends.
+     * Returns the number of bytes read.
+     */
+    public int readFrom(InputStream in) throws IOException {
+        final int start = count;
+        int n;
+        while (count < limit && (n = in.read(buffer, count, limit - count)) != -1) {
+            count += n;
+        }
+        return count - start;
+    }
+
     public void reset(int newlim) {
         if (newlim > buffer.length) {
             throw new IndexOutOfBoundsException("Limit exceeds buffer size");
@@ -16,19 +16,89 @@
  */
 package nifi.processors.demo;
 
+import nifi.processors.demo.properties.Descriptions;
+import nifi.processors.demo.properties.Relationships;
+import nifi.processors.demo.record.RecordResult;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.reporting.InitializationException;
+import org.apache.nifi.schema.access.SchemaNotFoundException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.record.DataType;
+import org.apache.nifi.serialization.record.MockRecordParser;
+import org.apache.nifi.serialization.record.MockRecordWriter;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.apache.nifi.serialization.record.type.ArrayDataType;
+import org.apache.nifi.serialization.record.type.RecordDataType;
+import org.apache.nifi.util.MockFlowFile;
 import org.apache.nifi.util.TestRunner;
 import org.apache.nifi.util.TestRunners;
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 
 public class MyProcessorTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private TestRunner testRunner;
+    private MockWebServer server;
 
     @Before
-    public void init() {
+    public void init() throws IOException {
         testRunner = TestRunners.newTestRunner(MyProcessor.class);
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * Answers /<status> with that status, and /disconnect by dropping the connection.
+     */
+    private void respondByPath() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                final String path = request.getPath().substring(1);
+                if ("disconnect".equals(path)) {
+                    return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+                }
+                return new MockResponse().setResponseCode(Integer.parseInt(path)).setBody(path);
+            }
+        });
+    }
+
+    private void enqueue(String path) {
+        testRunner.enqueue("", Collections.singletonMap("path", path));
     }
 
     @Test
@@ -36,4 +106,565 @@ public class MyProcessorTest {
 
     }
 
+    @Test
+    public void testBatchIsSentInOneTrigger() {
+        respondByPath();
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString() + "${path}");
+        testRunner.setProperty(Descriptions.PROP_BATCH_SIZE, "5");
+        for (int i = 0; i < 5; i++) {
+            enqueue("200");
+        }
+
+        testRunner.run(1);
+
+        assertEquals(5, server.getRequestCount());
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 5);
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 5);
+        for (MockFlowFile response : testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE)) {
+            response.assertAttributeEquals(MyProcessor.STATUS_CODE, "200");
+            response.assertContentEquals("200");
+        }
+    }
+
+    @Test
+    public void testMixedResultsOfOneBatchAreRoutedIndependently() {
+        respondByPath();
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString() + "${path}");
+        testRunner.setProperty(Descriptions.PROP_BATCH_SIZE, "10");
+        enqueue("200");
+        enqueue("503");
+        enqueue("404");
+        enqueue("disconnect");
+        enqueue("201");
+
+        testRunner.run(1);
+
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 2);
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 2);
+        testRunner.assertTransferCount(Relationships.REL_RETRY, 1);
+        testRunner.assertTransferCount(Relationships.REL_NO_RETRY, 1);
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 1);
+        testRunner.getFlowFilesForRelationship(Relationships.REL_RETRY).get(0).assertAttributeEquals("path", "503");
+        testRunner.getFlowFilesForRelationship(Relationships.REL_NO_RETRY).get(0).assertAttributeEquals("path", "404");
+        testRunner.getFlowFilesForRelationship(Relationships.REL_FAILURE).get(0).assertAttributeEquals("path", "disconnect");
+    }
+
+    @Test
+    public void testMaxInFlightBoundsOutstandingRequests() {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                TimeUnit.MILLISECONDS.sleep(50);
+                inFlight.decrementAndGet();
+                return new MockResponse().setResponseCode(200);
+            }
+        });
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_BATCH_SIZE, "12");
+        testRunner.setProperty(Descriptions.PROP_MAX_IN_FLIGHT, "3");
+        for (int i = 0; i < 12; i++) {
+            testRunner.enqueue("");
+        }
+
+        testRunner.run(1);
+
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 12);
+        assertTrue("at most 3 requests in flight, saw " + maxInFlight.get(), maxInFlight.get() <= 3);
+        assertTrue("requests of the batch overlap", maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void testChangedResourceIsNotAConditionalHit() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setHeader("Cache-Control", "no-cache").setBody("one"));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"").setHeader("Cache-Control", "no-cache").setBody("two"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v2\""));
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/resource").toString());
+        testRunner.setProperty(Descriptions.PROP_USE_ETAG, "true");
+        testRunner.setProperty(Descriptions.PROP_ETAG_CACHE_DIRECTORY, folder.newFolder().getAbsolutePath());
+        for (int i = 0; i < 3; i++) {
+            testRunner.enqueue("");
+        }
+
+        testRunner.run(1, false, true);
+        testRunner.run(1, false, false);
+        testRunner.run(1, true, false);
+
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v2\"", server.takeRequest().getHeader("If-None-Match"));
+
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 3);
+        final List<MockFlowFile> responses = testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE);
+        responses.get(0).assertAttributeEquals(MyProcessor.CACHE_HIT, "false");
+        responses.get(1).assertAttributeEquals(MyProcessor.CACHE_HIT, "false");
+        responses.get(1).assertContentEquals("two");
+        responses.get(2).assertAttributeEquals(MyProcessor.CACHE_HIT, "true");
+        responses.get(2).assertContentEquals("two");
+        assertEquals(Long.valueOf(2), testRunner.getCounterValue("ETag Cache Network Requests"));
+        assertEquals(Long.valueOf(1), testRunner.getCounterValue("ETag Cache Conditional Hits"));
+        assertNull(testRunner.getCounterValue("ETag Cache Hits"));
+    }
+
+    @Test
+    public void testRetriesOfBatchedBodiesAreRejected() {
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_METHOD, "PUT");
+        testRunner.setProperty(Descriptions.PROP_RETRY_MAX_ATTEMPTS, "3");
+        testRunner.assertValid();
+
+        testRunner.setProperty(Descriptions.PROP_BATCH_SIZE, "10");
+        testRunner.assertNotValid();
+
+        testRunner.setProperty(Descriptions.PROP_SEND_BODY, "false");
+        testRunner.assertValid();
+
+        // POST isn't retried at all unless non-idempotent methods are
+        testRunner.setProperty(Descriptions.PROP_SEND_BODY, "true");
+        testRunner.setProperty(Descriptions.PROP_METHOD, "POST");
+        testRunner.assertValid();
+        testRunner.setProperty(Descriptions.PROP_RETRY_NON_IDEMPOTENT, "true");
+        testRunner.assertNotValid();
+    }
+
+    @Test
+    public void testRecordsCantBeRateOrConcurrencyLimited() throws Exception {
+        readRecords(new MockRecordParser(), new MockRecordWriter(null, false));
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.assertValid();
+
+        testRunner.setProperty(Descriptions.PROP_RATE_LIMIT, "10");
+        testRunner.assertNotValid();
+        testRunner.removeProperty(Descriptions.PROP_RATE_LIMIT);
+        testRunner.assertValid();
+
+        testRunner.setProperty(Descriptions.PROP_CONCURRENCY_LIMIT, Descriptions.LIMIT_AIMD.getValue());
+        testRunner.assertNotValid();
+    }
+
+    @Test
+    public void testHedgeToOtherEndpointReportsItsUrl() throws Exception {
+        final MockWebServer other = new MockWebServer();
+        other.start();
+        try {
+            server.enqueue(new MockResponse().setHeadersDelay(5, TimeUnit.SECONDS).setBody("slow"));
+            other.enqueue(new MockResponse().setBody("fast"));
+            testRunner.setProperty(Descriptions.PROP_URL, server.url("/item").toString());
+            testRunner.setProperty(Descriptions.PROP_ENDPOINTS, server.url("/").toString() + "," + other.url("/").toString());
+            testRunner.setProperty(Descriptions.PROP_LOAD_BALANCING, Descriptions.BALANCE_ROUND_ROBIN.getValue());
+            testRunner.setProperty(Descriptions.PROP_HEDGE_DELAY, "100 millis");
+            testRunner.enqueue("");
+
+            testRunner.run(1);
+
+            testRunner.assertTransferCount(Relationships.REL_RESPONSE, 1);
+            final MockFlowFile response = testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE).get(0);
+            response.assertContentEquals("fast");
+            response.assertAttributeEquals(MyProcessor.REQUEST_URL, other.url("/item").toString());
+            testRunner.getFlowFilesForRelationship(Relationships.REL_SUCCESS_REQ).get(0)
+                    .assertAttributeEquals(MyProcessor.REQUEST_URL, other.url("/item").toString());
+            assertEquals(Long.valueOf(1), testRunner.getCounterValue("Hedge Wins"));
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompressionLevelIsValidatedPerCoding() {
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL, "19");
+        // the level has no effect without compression
+        testRunner.assertValid();
+
+        testRunner.setProperty(Descriptions.PROP_REQUEST_COMPRESSION, Descriptions.COMPRESSION_GZIP.getValue());
+        testRunner.assertNotValid();
+        testRunner.setProperty(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL, "9");
+        testRunner.assertValid();
+
+        testRunner.setProperty(Descriptions.PROP_REQUEST_COMPRESSION, Descriptions.COMPRESSION_ZSTD.getValue());
+        testRunner.setProperty(Descriptions.PROP_REQUEST_COMPRESSION_LEVEL, "22");
+        testRunner.assertValid();
+    }
+
+    @Test
+    public void testHealthCheckIntervalMustBePositive() {
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_ENDPOINTS, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_HEALTH_CHECK_PATH, "/health");
+        testRunner.setProperty(Descriptions.PROP_HEALTH_CHECK_INTERVAL, "0 sec");
+        testRunner.assertNotValid();
+
+        testRunner.setProperty(Descriptions.PROP_HEALTH_CHECK_INTERVAL, "1 sec");
+        testRunner.assertValid();
+    }
+
+    @Test
+    public void testTlsSettingsAreValidated() {
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_TLS_PROTOCOLS, "TLSv1.3, TLSv1.2");
+        testRunner.setProperty(Descriptions.PROP_TLS_CIPHER_SUITES, "TLS_AES_128_GCM_SHA256,TLS_AES_256_GCM_SHA384");
+        testRunner.assertValid();
+
+        testRunner.setProperty(Descriptions.PROP_TLS_PROTOCOLS, "TLSv1.2,SSLv3");
+        testRunner.assertNotValid();
+        testRunner.setProperty(Descriptions.PROP_TLS_PROTOCOLS, "TLSv1.2");
+
+        testRunner.setProperty(Descriptions.PROP_TLS_CIPHER_SUITES, " , ");
+        testRunner.assertNotValid();
+    }
+
+    private void sendInBulk(String format) {
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/bulk").toString());
+        testRunner.setProperty(Descriptions.PROP_METHOD, "POST");
+        testRunner.setProperty(Descriptions.PROP_BULK_FORMAT, format);
+        testRunner.setProperty(Descriptions.PROP_BULK_MAX_WAIT, "0 sec");
+    }
+
+    @Test
+    public void testBulkItemsAreRoutedByTheirStatus() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json")
+                .setBody("{\"items\":[{\"status\":201},{\"status\":503},{\"status\":400}]}"));
+        sendInBulk(Descriptions.BULK_JSON_ARRAY.getValue());
+        testRunner.setProperty(Descriptions.PROP_BULK_ITEMS_PATH, "$.items");
+        testRunner.setProperty(Descriptions.PROP_BULK_STATUS_PATH, "$.status");
+        testRunner.enqueue("{\"n\":1}");
+        testRunner.enqueue("{\"n\":2}");
+        testRunner.enqueue("{\"n\":3}");
+
+        testRunner.run(1);
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals("[{\"n\":1},{\"n\":2},{\"n\":3}]", server.takeRequest().getBody().readUtf8());
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 1);
+        testRunner.assertTransferCount(Relationships.REL_RETRY, 1);
+        testRunner.assertTransferCount(Relationships.REL_NO_RETRY, 1);
+
+        final MockFlowFile response = testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE).get(0);
+        response.assertContentEquals("{\"status\":201}");
+        final MockFlowFile retry = testRunner.getFlowFilesForRelationship(Relationships.REL_RETRY).get(0);
+        retry.assertAttributeEquals(MyProcessor.BULK_INDEX, "1");
+        retry.assertAttributeEquals(MyProcessor.BULK_SIZE, "3");
+        retry.assertAttributeEquals(MyProcessor.STATUS_CODE, "503");
+        testRunner.getFlowFilesForRelationship(Relationships.REL_NO_RETRY).get(0).assertAttributeEquals(MyProcessor.BULK_INDEX, "2");
+    }
+
+    @Test
+    public void testBulkItemsAreCorrelatedById() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/x-ndjson")
+                .setBody("{\"id\":\"b\",\"status\":409}\n{\"id\":\"a\",\"status\":200}\n"));
+        sendInBulk(Descriptions.BULK_NDJSON.getValue());
+        testRunner.setProperty(Descriptions.PROP_BULK_ID_PATH, "$.id");
+        testRunner.setProperty(Descriptions.PROP_BULK_STATUS_PATH, "$.status");
+        testRunner.enqueue("{\"id\":\"a\"}");
+        testRunner.enqueue("{\"id\":\"b\"}\n");
+        testRunner.enqueue("{\"id\":\"c\"}");
+
+        testRunner.run(1);
+
+        assertEquals("{\"id\":\"a\"}\n{\"id\":\"b\"}\n{\"id\":\"c\"}\n", server.takeRequest().getBody().readUtf8());
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 1);
+        testRunner.getFlowFilesForRelationship(Relationships.REL_SUCCESS_REQ).get(0).assertAttributeEquals(MyProcessor.BULK_INDEX, "0");
+        testRunner.assertTransferCount(Relationships.REL_NO_RETRY, 1);
+        testRunner.getFlowFilesForRelationship(Relationships.REL_NO_RETRY).get(0).assertAttributeEquals(MyProcessor.BULK_INDEX, "1");
+        // the response has no item for the third FlowFile
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 1);
+        testRunner.getFlowFilesForRelationship(Relationships.REL_FAILURE).get(0).assertAttributeEquals(MyProcessor.BULK_INDEX, "2");
+    }
+
+    @Test
+    public void testBulkBatchIsBoundedByMaxFlowFiles() {
+        respondByPath();
+        sendInBulk(Descriptions.BULK_MULTIPART.getValue());
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/503").toString());
+        testRunner.setProperty(Descriptions.PROP_BULK_MAX_FLOWFILES, "2");
+        for (int i = 0; i < 3; i++) {
+            testRunner.enqueue("part " + i);
+        }
+
+        testRunner.run(1);
+
+        // a failed bulk request applies to all of its FlowFiles
+        assertEquals(1, server.getRequestCount());
+        testRunner.assertTransferCount(Relationships.REL_RETRY, 2);
+        testRunner.assertQueueNotEmpty();
+        for (MockFlowFile retry : testRunner.getFlowFilesForRelationship(Relationships.REL_RETRY)) {
+            retry.assertAttributeEquals(MyProcessor.STATUS_CODE, "503");
+            retry.assertAttributeEquals(MyProcessor.BULK_SIZE, "2");
+        }
+    }
+
+    @Test
+    public void testEmptyFlowFileIsNotFramedIntoBulkRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("[{\"ok\":true}]"));
+        sendInBulk(Descriptions.BULK_JSON_ARRAY.getValue());
+        testRunner.enqueue("");
+        testRunner.enqueue("{\"n\":1}");
+
+        testRunner.run(1);
+
+        assertEquals("[{\"n\":1}]", server.takeRequest().getBody().readUtf8());
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 1);
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 1);
+    }
+
+    @Test
+    public void testBulkResponseOverMaxSizeRoutesAllToFailure() {
+        server.enqueue(new MockResponse().setBody("[{\"ok\":true},{\"ok\":true}]"));
+        sendInBulk(Descriptions.BULK_JSON_ARRAY.getValue());
+        testRunner.setProperty(Descriptions.PROP_BULK_MAX_RESPONSE_SIZE, "10 B");
+        testRunner.enqueue("1");
+        testRunner.enqueue("2");
+
+        testRunner.run(1);
+
+        testRunner.assertAllFlowFilesTransferred(Relationships.REL_FAILURE, 2);
+        for (MockFlowFile failure : testRunner.getFlowFilesForRelationship(Relationships.REL_FAILURE)) {
+            assertTrue(failure.getAttribute(MyProcessor.EXCEPTION_MESSAGE).contains("can't be split"));
+        }
+    }
+
+    private void readRecords(MockRecordParser reader, MockRecordWriter writer) throws InitializationException {
+        testRunner.addControllerService("reader", reader);
+        testRunner.enableControllerService(reader);
+        testRunner.addControllerService("writer", writer);
+        testRunner.enableControllerService(writer);
+        testRunner.setProperty(Descriptions.PROP_RECORD_READER, "reader");
+        testRunner.setProperty(Descriptions.PROP_RECORD_WRITER, "writer");
+    }
+
+    private static String[] lines(MockFlowFile flowFile) {
+        return new String(flowFile.toByteArray(), StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    public void testRecordResultsAreWrittenInOrderAndSplitBySuccess() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                final String status = request.getRequestUrl().pathSegments().get(0);
+                final MockResponse response = new MockResponse().setResponseCode(Integer.parseInt(status)).setBody(status);
+                return request.getRequestUrl().queryParameter("slow") == null ? response : response.setHeadersDelay(300, TimeUnit.MILLISECONDS);
+            }
+        });
+        final MockRecordParser reader = new MockRecordParser();
+        reader.addSchemaField("id", RecordFieldType.STRING);
+        reader.addSchemaField("path", RecordFieldType.STRING);
+        // the first response arrives after the others, which still have to be written after it
+        reader.addRecord("a", "200?slow=true");
+        reader.addRecord("b", "404");
+        reader.addRecord("c", "200");
+        reader.addRecord("d", "503");
+        readRecords(reader, new MockRecordWriter(null, false));
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_RECORD_URL_PATH, "/path");
+        testRunner.setProperty(Descriptions.PROP_MAX_IN_FLIGHT, "2");
+        testRunner.enqueue("");
+
+        testRunner.run(1);
+
+        assertEquals(4, server.getRequestCount());
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 1);
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 1);
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 1);
+
+        final MockFlowFile succeeded = testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE).get(0);
+        succeeded.assertAttributeEquals("record.count", "2");
+        final String[] succeededLines = lines(succeeded);
+        assertTrue(succeededLines[0].startsWith("a,") && succeededLines[0].contains("status_code=200"));
+        assertTrue(succeededLines[1].startsWith("c,") && succeededLines[1].contains("status_code=200"));
+        final MockFlowFile failed = testRunner.getFlowFilesForRelationship(Relationships.REL_FAILURE).get(0);
+        failed.assertAttributeEquals("record.count", "2");
+        final String[] failedLines = lines(failed);
+        assertTrue(failedLines[0].startsWith("b,") && failedLines[0].contains("status_code=404"));
+        assertTrue(failedLines[1].startsWith("d,") && failedLines[1].contains("status_code=503"));
+    }
+
+    @Test
+    public void testRecordFieldsBuildTheRequest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(201));
+        server.enqueue(new MockResponse());
+        final MockRecordParser reader = new MockRecordParser();
+        reader.addSchemaField("url", RecordFieldType.STRING);
+        reader.addSchemaField("method", RecordFieldType.STRING);
+        reader.addSchemaField("body", RecordFieldType.STRING);
+        reader.addSchemaField(new RecordField("headers", RecordFieldType.MAP.getMapDataType(RecordFieldType.STRING.getDataType())));
+        reader.addRecord("items/1", "put", "{\"n\":1}", Collections.singletonMap("X-Item", "1"));
+        // a record that specifies nothing is sent with the request properties
+        reader.addRecord(null, null, null, null);
+        readRecords(reader, new MockRecordWriter(null, false));
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/base/").toString());
+        testRunner.setProperty(Descriptions.PROP_RECORD_URL_PATH, "/url");
+        testRunner.setProperty(Descriptions.PROP_RECORD_METHOD_PATH, "/method");
+        testRunner.setProperty(Descriptions.PROP_RECORD_BODY_PATH, "/body");
+        testRunner.setProperty(Descriptions.PROP_RECORD_HEADERS_PATH, "/headers");
+        testRunner.setProperty(Descriptions.PROP_MAX_IN_FLIGHT, "1");
+        testRunner.enqueue("");
+
+        testRunner.run(1);
+
+        final RecordedRequest put = server.takeRequest();
+        assertEquals("PUT", put.getMethod());
+        assertEquals("/base/items/1", put.getPath());
+        assertEquals("1", put.getHeader("X-Item"));
+        assertEquals("{\"n\":1}", put.getBody().readUtf8());
+        final RecordedRequest get = server.takeRequest();
+        assertEquals("GET", get.getMethod());
+        assertEquals("/base/", get.getPath());
+        assertNull(get.getHeader("X-Item"));
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 1);
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 0);
+    }
+
+    @Test
+    public void testResponseWithoutBodyKeepsTheBodyAnArrayOfRecords() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setBody("x"));
+        final MockRecordParser reader = new MockRecordParser();
+        reader.addSchemaField("id", RecordFieldType.STRING);
+        reader.addRecord("a");
+        reader.addRecord("b");
+        final List<RecordSchema> schemas = new ArrayList<>();
+        readRecords(reader, new MockRecordWriter(null, false) {
+            @Override
+            public RecordSchema getSchema(Map<String, String> variables, RecordSchema readSchema) throws SchemaNotFoundException, IOException {
+                schemas.add(readSchema);
+                return super.getSchema(variables, readSchema);
+            }
+        });
+        final MockRecordParser responseReader = new MockRecordParser();
+        responseReader.addSchemaField("name", RecordFieldType.STRING);
+        responseReader.addRecord("x");
+        testRunner.addControllerService("response-reader", responseReader);
+        testRunner.enableControllerService(responseReader);
+        testRunner.setProperty(Descriptions.PROP_RECORD_RESPONSE_READER, "response-reader");
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_MAX_IN_FLIGHT, "1");
+        testRunner.enqueue("");
+
+        testRunner.run(1);
+
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 0);
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 1);
+        final String[] lines = lines(testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE).get(0));
+        assertTrue(lines[0].contains("status_code=204") && lines[0].contains("body=null"));
+        assertTrue(lines[1].contains("status_code=200"));
+
+        // the first response has no body, but the records of the second one still fit the schema
+        assertEquals(1, schemas.size());
+        final RecordSchema resultSchema = ((RecordDataType) schemas.get(0).getDataType("http").get()).getChildSchema();
+        final DataType bodyType = resultSchema.getDataType(RecordResult.BODY).get();
+        assertEquals(RecordFieldType.ARRAY, bodyType.getFieldType());
+        assertEquals("name", ((RecordDataType) ((ArrayDataType) bodyType).getElementType()).getChildSchema().getFieldNames().get(0));
+    }
+
+    @Test
+    public void testResponsesWithoutBodyWaitForAnInferredBodySchema() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setBody("x"));
+        final MockRecordParser reader = new MockRecordParser();
+        reader.addSchemaField("id", RecordFieldType.STRING);
+        reader.addRecord("a");
+        reader.addRecord("b");
+        final List<RecordSchema> schemas = new ArrayList<>();
+        readRecords(reader, new MockRecordWriter(null, false) {
+            @Override
+            public RecordSchema getSchema(Map<String, String> variables, RecordSchema readSchema) throws SchemaNotFoundException, IOException {
+                schemas.add(readSchema);
+                return super.getSchema(variables, readSchema);
+            }
+        });
+        // infers the schema from the content, so an empty body has no fields
+        final MockRecordParser noFields = new MockRecordParser();
+        final MockRecordParser responseReader = new MockRecordParser() {
+            @Override
+            public RecordReader createRecordReader(Map<String, String> variables, InputStream in, ComponentLog logger)
+                    throws IOException, SchemaNotFoundException {
+                return in.available() == 0 ? noFields.createRecordReader(variables, in, logger) : super.createRecordReader(variables, in, logger);
+            }
+        };
+        responseReader.addSchemaField("name", RecordFieldType.STRING);
+        responseReader.addRecord("x");
+        testRunner.addControllerService("response-reader", responseReader);
+        testRunner.enableControllerService(responseReader);
+        testRunner.setProperty(Descriptions.PROP_RECORD_RESPONSE_READER, "response-reader");
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/").toString());
+        testRunner.setProperty(Descriptions.PROP_MAX_IN_FLIGHT, "1");
+        testRunner.enqueue("");
+
+        testRunner.run(1);
+
+        testRunner.assertTransferCount(Relationships.REL_FAILURE, 0);
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 1);
+        final String[] lines = lines(testRunner.getFlowFilesForRelationship(Relationships.REL_RESPONSE).get(0));
+        assertTrue(lines[0].contains("status_code=204") && lines[0].contains("body=null"));
+        assertTrue(lines[1].contains("status_code=200") && !lines[1].contains("body=null"));
+
+        assertEquals(1, schemas.size());
+        final RecordSchema resultSchema = ((RecordDataType) schemas.get(0).getDataType("http").get()).getChildSchema();
+        final DataType bodyType = resultSchema.getDataType(RecordResult.BODY).get();
+        assertEquals("name", ((RecordDataType) ((ArrayDataType) bodyType).getElementType()).getChildSchema().getFieldNames().get(0));
+    }
+
+    private RecordedRequest sendForm(boolean filename) throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+        testRunner.setProperty(Descriptions.PROP_URL, server.url("/upload").toString());
+        testRunner.setProperty(Descriptions.PROP_METHOD, "POST");
+        testRunner.setProperty(Descriptions.PROP_FORM_BODY_NAME, "file");
+        testRunner.setProperty(Descriptions.PROP_FORM_FILENAME, String.valueOf(filename));
+        testRunner.setProperty(Descriptions.PROP_FORM_ATTRIBUTES, "meta\\..*");
+        testRunner.setProperty(Descriptions.FORM_FIELD_PREFIX + "color", "${color}");
+        testRunner.setProperty(Descriptions.FORM_FIELD_PREFIX + "fixed", "value");
+        testRunner.setProperty("X-Trace", "${trace}");
+
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put("color", "blue");
+        attributes.put("trace", "t-1");
+        attributes.put("filename", "data.txt");
+        attributes.put("meta.b", "2");
+        attributes.put("meta.a", "1");
+        attributes.put("other", "x");
+        testRunner.enqueue("payload", attributes);
+
+        testRunner.run(1);
+
+        testRunner.assertTransferCount(Relationships.REL_SUCCESS_REQ, 1);
+        testRunner.assertTransferCount(Relationships.REL_RESPONSE, 1);
+        return server.takeRequest();
+    }
+
+    @Test
+    public void testFormFieldsPrecedeStreamedContent() throws Exception {
+        final RecordedRequest request = sendForm(true);
+
+        assertTrue(request.getHeader("Content-Type").startsWith("multipart/form-data; boundary="));
+        // dynamic properties that aren't form fields are still sent as headers, the form fields aren't
+        assertEquals("t-1", request.getHeader("X-Trace"));
+        assertNull(request.getHeader(Descriptions.FORM_FIELD_PREFIX + "color"));
+
+        final String body = request.getBody().readUtf8();
+        final int color = body.indexOf("name=\"color\"");
+        final int fixed = body.indexOf("name=\"fixed\"");
+        final int metaA = body.indexOf("name=\"meta.a\"");
+        final int metaB = body.indexOf("name=\"meta.b\"");
+        final int file = body.indexOf("name=\"file\"; filename=\"data.txt\"");
+        assertTrue(color >= 0 && color < fixed && fixed < metaA && metaA < metaB && metaB < file);
+        assertTrue(body.indexOf("blue", color) < fixed);
+        assertTrue(body.indexOf("payload", file) > file);
+        assertEquals(-1, body.indexOf("name=\"other\""));
+        assertEquals(-1, body.indexOf("name=\"trace\""));
+    }
+
+    @Test
+    public void testFormFilenameCanBeLeftOut() throws Exception {
+        final RecordedRequest request = sendForm(false);
+
+        final String body = request.getBody().readUtf8();
+        assertTrue(body.contains("name=\"file\"\r\n"));
+        assertEquals(-1, body.indexOf("filename="));
+        assertTrue(body.contains("payload"));
+        assertEquals("t-1", request.getHeader("X-Trace"));
+    }
+
 }
@@ -0,0 +1,171 @@
+package nifi.processors.demo.balance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LoadBalancerTest {
+
+    private static LoadBalancer balancer(LoadBalancer.Strategy strategy, String endpoints) throws Exception {
+        return new LoadBalancer(LoadBalancer.parse(endpoints), false, null, strategy, 2, TimeUnit.MINUTES.toNanos(1));
+    }
+
+    @Test
+    public void testResolvesPathOnEndpoint() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.ROUND_ROBIN, "http://a:8080/base/");
+        final Endpoint endpoint = balancer.select().getEndpoint();
+        assertEquals("http://a:8080/base/items?id=1", endpoint.resolve(new URL("https://remote/items?id=1")).toExternalForm());
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.ROUND_ROBIN, "http://a, http://b,http://c");
+        assertEquals("a", balancer.select().getEndpoint().getBase().getHost());
+        assertEquals("b", balancer.select().getEndpoint().getBase().getHost());
+        assertEquals("c", balancer.select().getEndpoint().getBase().getHost());
+        assertEquals("a", balancer.select().getEndpoint().getBase().getHost());
+    }
+
+    @Test
+    public void testLeastOutstanding() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.LEAST_OUTSTANDING, "http://a,http://b");
+        final LoadBalancer.Selection first = balancer.select();
+        final LoadBalancer.Selection second = balancer.select();
+        assertNotSame(first.getEndpoint(), second.getEndpoint());
+
+        first.release(true);
+        first.release(true);
+        assertEquals(first.getEndpoint(), balancer.select().getEndpoint());
+        assertEquals(1, second.getEndpoint().getOutstanding());
+    }
+
+    @Test
+    public void testEjectsOutliers() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.ROUND_ROBIN, "http://a,http://b");
+        final Endpoint a = balancer.getEndpoints().get(0);
+
+        // failures only count when they are consecutive
+        a.onResult(false, 2, TimeUnit.MINUTES.toNanos(1));
+        a.onResult(true, 2, TimeUnit.MINUTES.toNanos(1));
+        a.onResult(false, 2, TimeUnit.MINUTES.toNanos(1));
+        assertTrue(a.isAvailable(System.nanoTime()));
+
+        a.onResult(false, 2, TimeUnit.MINUTES.toNanos(1));
+        assertFalse(a.isAvailable(System.nanoTime()));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("b", balancer.select().getEndpoint().getBase().getHost());
+        }
+        assertNull(balancer.selectOther(balancer.getEndpoints().get(1)));
+    }
+
+    @Test
+    public void testSelectionRecordsOutcome() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.ROUND_ROBIN, "http://a");
+        final Endpoint a = balancer.getEndpoints().get(0);
+        balancer.select().release(false);
+        // abandoned requests don't count
+        balancer.select().release();
+        assertTrue(a.isAvailable(System.nanoTime()));
+        balancer.select().release(false);
+        assertFalse(a.isAvailable(System.nanoTime()));
+        assertEquals(0, a.getOutstanding());
+    }
+
+    @Test
+    public void testOtherSelectionIsOutstanding() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.LEAST_OUTSTANDING, "http://a,http://b");
+        final LoadBalancer.Selection first = balancer.select();
+        final LoadBalancer.Selection other = balancer.selectOther(first.getEndpoint());
+        assertNotEquals(first.getEndpoint().getBase().getHost(), other.getEndpoint().getBase().getHost());
+        assertEquals(1, other.getEndpoint().getOutstanding());
+
+        // a hedge that lost is released without counting towards ejection
+        other.release();
+        assertEquals(0, other.getEndpoint().getOutstanding());
+        first.release(true);
+        assertEquals(0, first.getEndpoint().getOutstanding());
+    }
+
+    @Test
+    public void testFallsBackToAllEndpoints() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.POWER_OF_TWO_CHOICES, "http://a");
+        balancer.getEndpoints().get(0).setHealthy(false);
+        assertEquals("a", balancer.select().getEndpoint().getBase().getHost());
+    }
+
+    @Test
+    public void testResolvesAddresses() throws Exception {
+        final LoadBalancer balancer = new LoadBalancer(LoadBalancer.parse("http://service:8080/api"), true,
+                hostname -> Arrays.asList(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("10.0.0.2")),
+                LoadBalancer.Strategy.ROUND_ROBIN, 5, 0);
+        final Endpoint endpoint = balancer.select().getEndpoint();
+        // the host name stays in the URL, the endpoint's client connects to its address
+        assertEquals("http://service:8080/api/items", endpoint.resolve("/items").toExternalForm());
+        assertEquals("10.0.0.1", endpoint.getAddress().getHostAddress());
+        assertEquals("10.0.0.2", balancer.selectOther(endpoint).getEndpoint().getAddress().getHostAddress());
+    }
+
+    @Test
+    public void testPinnedClientConnectsToEndpointAddress() throws Exception {
+        final LoadBalancer balancer = new LoadBalancer(LoadBalancer.parse("http://service:8080/api"), true,
+                hostname -> "service".equals(hostname)
+                        ? Arrays.asList(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("10.0.0.2"))
+                        : Collections.singletonList(InetAddress.getByName("10.0.0.9")),
+                LoadBalancer.Strategy.ROUND_ROBIN, 5, 0);
+        final OkHttpClient client = new OkHttpClient();
+        final Endpoint first = balancer.getEndpoints().get(0);
+        final Endpoint second = balancer.getEndpoints().get(1);
+
+        final OkHttpClient pinned = first.client(client);
+        assertSame(pinned, first.client(client));
+        assertSame(client.connectionPool(), pinned.connectionPool());
+        assertEquals(Collections.singletonList(InetAddress.getByName("10.0.0.1")), pinned.dns().lookup("service"));
+        assertEquals(Collections.singletonList(InetAddress.getByName("10.0.0.2")), second.client(client).dns().lookup("service"));
+        // other hosts, e.g. of redirects, resolve as usual
+        assertEquals(Collections.singletonList(InetAddress.getByName("10.0.0.9")), pinned.dns().lookup("elsewhere"));
+
+        final Request request = new Request.Builder().url(first.resolve("/items")).tag(Endpoint.class, first).build();
+        assertSame(request, LoadBalancer.newCall(client, request).request());
+    }
+
+    @Test
+    public void testHealthCheckClientIsBare() {
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> chain.proceed(chain.request()))
+                .readTimeout(1, TimeUnit.MINUTES)
+                .build();
+
+        final OkHttpClient check = LoadBalancer.healthCheckClient(client, TimeUnit.SECONDS.toNanos(2));
+        assertTrue(check.interceptors().isEmpty());
+        assertNull(check.cache());
+        assertEquals(2000, check.readTimeoutMillis());
+        assertEquals(2000, check.callTimeoutMillis());
+        assertSame(client.connectionPool(), check.connectionPool());
+        assertEquals(1, client.interceptors().size());
+
+        assertEquals(5000, LoadBalancer.healthCheckClient(client, TimeUnit.MINUTES.toNanos(1)).connectTimeoutMillis());
+    }
+
+    @Test
+    public void testStaticEndpointUsesClientAsItIs() throws Exception {
+        final LoadBalancer balancer = balancer(LoadBalancer.Strategy.ROUND_ROBIN, "http://a");
+        final OkHttpClient client = new OkHttpClient();
+        assertSame(client, balancer.getEndpoints().get(0).client(client));
+        assertNull(balancer.getEndpoints().get(0).getAddress());
+    }
+}
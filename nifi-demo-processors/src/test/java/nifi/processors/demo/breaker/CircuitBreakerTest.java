@@ -0,0 +1,69 @@
+package nifi.processors.demo.breaker;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CircuitBreakerTest {
+
+    private static void fail(CircuitBreaker breaker, String host, int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.tryAcquire(host).onFailure();
+        }
+    }
+
+    @Test
+    public void testOpensAtFailureRate() {
+        final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, TimeUnit.MINUTES.toNanos(1), 1);
+
+        // not enough requests yet
+        fail(breaker, "down", 3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("down"));
+
+        breaker.tryAcquire("down").onSuccess();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState("down"));
+        assertNull(breaker.tryAcquire("down"));
+
+        // other hosts are unaffected
+        assertNotNull(breaker.tryAcquire("up"));
+    }
+
+    @Test
+    public void testHalfOpenProbes() {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 2, 100, 0, 2);
+        fail(breaker, "host", 2);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState("host"));
+
+        // the open duration is over straight away, only two probes are let through
+        final CircuitBreaker.Permit first = breaker.tryAcquire("host");
+        final CircuitBreaker.Permit second = breaker.tryAcquire("host");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, first.getState());
+        assertNotNull(second);
+        assertNull(breaker.tryAcquire("host"));
+
+        // a probe that was never sent makes room for another
+        second.onIgnore();
+        final CircuitBreaker.Permit third = breaker.tryAcquire("host");
+        assertNotNull(third);
+
+        first.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("host"));
+        third.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("host"));
+    }
+
+    @Test
+    public void testFailedProbeReopens() {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 2, 100, 0, 1);
+        fail(breaker, "host", 2);
+
+        final CircuitBreaker.Permit probe = breaker.tryAcquire("host");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, probe.getState());
+        probe.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState("host"));
+    }
+}
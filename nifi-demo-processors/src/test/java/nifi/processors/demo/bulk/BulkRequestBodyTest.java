@@ -0,0 +1,92 @@
+package nifi.processors.demo.bulk;
+
+import nifi.processors.demo.MyProcessor;
+import nifi.processors.demo.model.RequestPlan;
+import nifi.processors.demo.properties.Descriptions;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BulkRequestBodyTest {
+
+    private TestRunner runner;
+    private ProcessSession session;
+    private RequestPlan plan;
+
+    @Before
+    public void init() {
+        runner = TestRunners.newTestRunner(MyProcessor.class);
+        runner.setProperty(Descriptions.PROP_URL, "http://localhost/");
+        plan = RequestPlan.compile(runner.getProcessContext(), Collections.emptySet(), Collections.emptyMap());
+    }
+
+    private List<FlowFile> flowFiles(String... contents) {
+        for (String content : contents) {
+            runner.enqueue(content);
+        }
+        session = runner.getProcessSessionFactory().createSession();
+        return session.get(contents.length);
+    }
+
+    private static String write(RequestBody body) throws IOException {
+        final Buffer sink = new Buffer();
+        body.writeTo(sink);
+        return sink.readUtf8();
+    }
+
+    @Test
+    public void testJsonArrayFramesEveryContent() throws IOException {
+        final List<FlowFile> flowFiles = flowFiles("{\"a\":1}", "{\"b\":2}");
+        final RequestBody body = BulkRequestBody.create(session, plan, flowFiles, BulkFormat.JSON_ARRAY);
+        final String json = write(body);
+        assertEquals("[{\"a\":1},{\"b\":2}]", json);
+        assertEquals(json.length(), body.contentLength());
+        assertEquals(json, write(body));
+    }
+
+    @Test
+    public void testJsonArrayLeavesOutEmptyContents() throws IOException {
+        final List<FlowFile> flowFiles = flowFiles("", "1", "", "2", "");
+        final RequestBody body = BulkRequestBody.create(session, plan, flowFiles, BulkFormat.JSON_ARRAY);
+        final String json = write(body);
+        assertEquals("[1,2]", json);
+        assertEquals(json.length(), body.contentLength());
+    }
+
+    @Test
+    public void testJsonArrayOfOnlyEmptyContentsIsEmpty() throws IOException {
+        final List<FlowFile> flowFiles = flowFiles("");
+        final RequestBody body = BulkRequestBody.create(session, plan, flowFiles, BulkFormat.JSON_ARRAY);
+        assertEquals("[]", write(body));
+        assertEquals(2, body.contentLength());
+    }
+
+    @Test
+    public void testNdjsonEndsEveryLine() throws IOException {
+        final List<FlowFile> flowFiles = flowFiles("{\"a\":1}\n", "", "{\"b\":2}");
+        final RequestBody body = BulkRequestBody.create(session, plan, flowFiles, BulkFormat.NDJSON);
+        assertEquals("{\"a\":1}\n{\"b\":2}\n", write(body));
+        assertEquals(-1, body.contentLength());
+    }
+
+    @Test
+    public void testOnlyMultipartFramesEmptyContents() {
+        final FlowFile empty = flowFiles("").get(0);
+        assertFalse(BulkRequestBody.canFrame(empty, BulkFormat.JSON_ARRAY));
+        assertFalse(BulkRequestBody.canFrame(empty, BulkFormat.NDJSON));
+        assertTrue(BulkRequestBody.canFrame(empty, BulkFormat.MULTIPART));
+    }
+}
@@ -0,0 +1,76 @@
+package nifi.processors.demo.bulk;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BulkResponseTest {
+
+    @Test
+    public void testItemsAreCorrelatedByPosition() {
+        final BulkResponse bulk = new BulkResponse("$.items", null, "$.*.status", Long.MAX_VALUE);
+        final List<Object> items = bulk.correlate(bulk.items(
+                "{\"errors\":true,\"items\":[{\"index\":{\"status\":201}},{\"index\":{\"status\":409}}]}",
+                MediaType.parse("application/json")), 2, null);
+
+        assertEquals(201, bulk.status(items.get(0), 200));
+        assertEquals(409, bulk.status(items.get(1), 200));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingItemsFailByPosition() {
+        final BulkResponse bulk = new BulkResponse("$", null, null, Long.MAX_VALUE);
+        bulk.correlate(bulk.items("[{\"ok\":true}]", MediaType.parse("application/json")), 2, null);
+    }
+
+    @Test
+    public void testItemsAreCorrelatedById() {
+        final BulkResponse bulk = new BulkResponse("$", "$.id", "$.status", Long.MAX_VALUE);
+        final List<String> ids = Arrays.asList(
+                bulk.id(BulkResponse.parse("{\"id\":\"b\",\"value\":2}")),
+                bulk.id(BulkResponse.parse("{\"id\":\"a\",\"value\":1}")),
+                bulk.id(BulkResponse.parse("{\"value\":3}")));
+        final List<Object> items = bulk.correlate(bulk.items(
+                "{\"id\":\"a\",\"status\":200}\n{\"id\":\"b\",\"status\":500}\n",
+                MediaType.parse("application/x-ndjson")), 3, ids);
+
+        assertEquals(500, bulk.status(items.get(0), 200));
+        assertEquals(200, bulk.status(items.get(1), 500));
+        assertNull(items.get(2));
+    }
+
+    @Test
+    public void testItemWithoutStatusHasTheResponseStatus() {
+        final BulkResponse bulk = new BulkResponse("$", null, "$.status", Long.MAX_VALUE);
+        final List<Object> items = bulk.items("[{\"id\":1}]", null);
+        assertEquals(Collections.singletonList(items.get(0)), bulk.correlate(items, 1, null));
+        assertEquals(207, bulk.status(items.get(0), 207));
+    }
+
+    @Test
+    public void testResponseUpToTheMaxSizeIsRead() throws IOException {
+        final BulkResponse bulk = new BulkResponse("$", null, null, 7);
+        assertEquals("[1,2,3]", bulk.read(ResponseBody.create(new Buffer().writeUtf8("[1,2,3]"), null, -1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testResponseOfUnknownLengthOverTheMaxSizeFails() throws IOException {
+        final BulkResponse bulk = new BulkResponse("$", null, null, 6);
+        bulk.read(ResponseBody.create(new Buffer().writeUtf8("[1,2,3]"), null, -1));
+    }
+
+    @Test(expected = IOException.class)
+    public void testResponseWithContentLengthOverTheMaxSizeFails() throws IOException {
+        final BulkResponse bulk = new BulkResponse("$", null, null, 6);
+        bulk.read(ResponseBody.create("[1,2,3]", MediaType.parse("application/json")));
+    }
+}
@@ -0,0 +1,115 @@
+package nifi.processors.demo.cache;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ResponseCacheTest {
+
+    private static Request request(String url, String apiKey) {
+        return new Request.Builder().url(url).header("X-Api-Key", apiKey).get().build();
+    }
+
+    private static Response response(Request request, int code, String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("OK")
+                .body(ResponseBody.create(body, MediaType.parse("text/plain")))
+                .build();
+    }
+
+    @Test
+    public void testHitReturnsStoredBodyAndKeepsOriginalReadable() throws IOException {
+        ResponseCache cache = new ResponseCache(TimeUnit.MINUTES.toNanos(1), 10, 1024, 1024, Collections.singletonList("X-Api-Key"));
+        Request request = request("http://localhost/lookup", "a");
+        Response original = response(request, 200, "hello");
+
+        cache.put(cache.key(request), original);
+        assertEquals("hello", original.body().string());
+
+        Response cached = cache.get(cache.key(request), request);
+        assertNotNull(cached);
+        assertEquals(200, cached.code());
+        assertEquals("hello", cached.body().string());
+    }
+
+    @Test
+    public void testKeyIncludesSelectedHeaders() {
+        ResponseCache cache = new ResponseCache(TimeUnit.MINUTES.toNanos(1), 10, 1024, 1024, Collections.singletonList("X-Api-Key"));
+        assertNotEquals(cache.key(request("http://localhost/lookup", "a")), cache.key(request("http://localhost/lookup", "b")));
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws IOException {
+        ResponseCache cache = new ResponseCache(TimeUnit.MINUTES.toNanos(1), 10, 1024, 1024, null);
+        Request request = request("http://localhost/lookup", "a");
+        cache.put(cache.key(request), response(request, 503, "unavailable"));
+        assertNull(cache.get(cache.key(request), request));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        ResponseCache cache = new ResponseCache(TimeUnit.MINUTES.toNanos(1), 2, 1024, 1024, null);
+        Request first = request("http://localhost/1", "a");
+        Request second = request("http://localhost/2", "a");
+        Request third = request("http://localhost/3", "a");
+
+        cache.put(cache.key(first), response(first, 200, "1"));
+        cache.put(cache.key(second), response(second, 200, "2"));
+        cache.get(cache.key(first), first);
+        cache.put(cache.key(third), response(third, 200, "3"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(cache.key(first), first));
+        assertNull(cache.get(cache.key(second), second));
+    }
+
+    @Test
+    public void testSizeLimitAndExpiry() throws IOException {
+        ResponseCache cache = new ResponseCache(0, 10, 4, 4, null);
+        Request small = request("http://localhost/small", "a");
+        Request large = request("http://localhost/large", "a");
+
+        cache.put(cache.key(large), response(large, 200, "too large"));
+        assertEquals(0, cache.size());
+
+        cache.put(cache.key(small), response(small, 200, "ok"));
+        assertEquals(2, cache.totalBytes());
+        assertNull(cache.get(cache.key(small), small));
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    public void testEntryLargerThanEntryLimitIsNotCached() throws IOException {
+        ResponseCache cache = new ResponseCache(TimeUnit.MINUTES.toNanos(1), 10, 1024, 4, null);
+        Request known = request("http://localhost/known", "a");
+        Request unknown = request("http://localhost/unknown", "a");
+
+        Response knownLength = response(known, 200, "too large");
+        cache.put(cache.key(known), knownLength);
+        assertEquals(0, cache.size());
+        assertEquals("too large", knownLength.body().string());
+
+        Response unknownLength = response(unknown, 200, "too large").newBuilder()
+                .body(ResponseBody.create(new Buffer().writeUtf8("too large"), MediaType.parse("text/plain"), -1))
+                .build();
+        cache.put(cache.key(unknown), unknownLength);
+        assertEquals(0, cache.size());
+        assertEquals("too large", unknownLength.body().string());
+    }
+}
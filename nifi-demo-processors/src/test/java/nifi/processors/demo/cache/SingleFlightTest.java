@@ -0,0 +1,85 @@
+package nifi.processors.demo.cache;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    private static final Request REQUEST = new Request.Builder().url("http://localhost/lookup").get().build();
+
+    private static Response response(String body) {
+        return new Response.Builder()
+                .request(REQUEST)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, MediaType.parse("text/plain")))
+                .build();
+    }
+
+    @Test
+    public void testFollowersShareLeaderResponse() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(1024);
+        String key = SingleFlight.key(REQUEST);
+
+        SingleFlight.Flight leader = singleFlight.join(key);
+        SingleFlight.Flight follower = singleFlight.join(key);
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+
+        Response landed = leader.land(response("shared"));
+        assertEquals("shared", landed.body().string());
+        assertEquals("shared", follower.result().get().toResponse(REQUEST).body().string());
+        assertEquals(0, singleFlight.size());
+
+        assertTrue(singleFlight.join(key).isLeader());
+    }
+
+    @Test
+    public void testLoneLeaderResponseIsNotBuffered() throws IOException, ExecutionException, InterruptedException {
+        SingleFlight singleFlight = new SingleFlight(1024);
+        SingleFlight.Flight leader = singleFlight.join(SingleFlight.key(REQUEST));
+
+        Response original = response("streamed");
+        assertTrue(original == leader.land(original));
+        assertNull(leader.result().get());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testFollowersSeeLeaderFailure() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(1024);
+        String key = SingleFlight.key(REQUEST);
+
+        SingleFlight.Flight leader = singleFlight.join(key);
+        SingleFlight.Flight follower = singleFlight.join(key);
+        leader.fail(new IOException("connection reset"));
+        follower.result().get();
+    }
+
+    @Test
+    public void testTooLargeResponseIsNotShared() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(4);
+        String key = SingleFlight.key(REQUEST);
+
+        SingleFlight.Flight leader = singleFlight.join(key);
+        SingleFlight.Flight follower = singleFlight.join(key);
+
+        Response original = response("too large");
+        Response landed = leader.land(original);
+        assertTrue(original == landed);
+        assertEquals("too large", landed.body().string());
+        assertNull(follower.result().get());
+    }
+}
@@ -0,0 +1,76 @@
+package nifi.processors.demo.compress;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ContentCodingTest {
+
+    private static byte[] roundTrip(ContentCoding coding, int level, byte[] content) throws Exception {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = coding.getEncoder().encode(compressed, level)) {
+            out.write(content);
+        }
+        assertTrue(compressed.size() < content.length);
+
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream in = coding.decode(new ByteArrayInputStream(compressed.toByteArray()))) {
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+        return decompressed.toByteArray();
+    }
+
+    private static byte[] json() {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"item\"},");
+        }
+        return json.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        final byte[] content = json();
+        assertArrayEquals(content, roundTrip(ContentCoding.GZIP, -1, content));
+        assertArrayEquals(content, roundTrip(ContentCoding.GZIP, 1, content));
+    }
+
+    @Test
+    public void testZstdRoundTrip() throws Exception {
+        final byte[] content = json();
+        assertArrayEquals(content, roundTrip(ContentCoding.ZSTD, -1, content));
+        assertArrayEquals(content, roundTrip(ContentCoding.ZSTD, 19, content));
+    }
+
+    @Test
+    public void testOf() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.of("gzip"));
+        assertEquals(ContentCoding.ZSTD, ContentCoding.of(" ZSTD "));
+        assertEquals(ContentCoding.BROTLI, ContentCoding.of("br"));
+        assertNull(ContentCoding.of("identity"));
+        assertNull(ContentCoding.of(null));
+        assertFalse(ContentCoding.BROTLI.isEncodable());
+        assertNull(ContentCoding.BROTLI.getEncoder());
+    }
+
+    @Test
+    public void testMaxLevelIsAccepted() throws Exception {
+        final byte[] content = json();
+        assertArrayEquals(content, roundTrip(ContentCoding.GZIP, ContentCoding.GZIP.getMaxLevel(), content));
+        assertArrayEquals(content, roundTrip(ContentCoding.ZSTD, ContentCoding.ZSTD.getMaxLevel(), content));
+    }
+}
@@ -0,0 +1,108 @@
+package nifi.processors.demo.dns;
+
+import okhttp3.Dns;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CachingDnsTest {
+
+    /**
+     * Resolves every host to 10.0.0.n, where n counts the lookups, and fails for hosts named "unknown".
+     */
+    private static class CountingDns implements Dns {
+        private final AtomicInteger lookups = new AtomicInteger();
+        private volatile boolean failing;
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            final int n = lookups.incrementAndGet();
+            if (failing || hostname.equals("unknown")) {
+                throw new UnknownHostException(hostname);
+            }
+            return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{10, 0, 0, (byte) n}));
+        }
+    }
+
+    private static void awaitLookups(CountingDns delegate, int lookups) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delegate.lookups.get() < lookups && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // let the refresh store its result
+        Thread.sleep(50);
+    }
+
+    @Test
+    public void testCachesAddresses() throws Exception {
+        final CountingDns delegate = new CountingDns();
+        final CachingDns dns = new CachingDns(delegate, TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(5), 0, 10);
+        try {
+            assertEquals("10.0.0.1", dns.lookup("host").get(0).getHostAddress());
+            assertEquals("10.0.0.1", dns.lookup("host").get(0).getHostAddress());
+            assertEquals(1, delegate.lookups.get());
+        } finally {
+            dns.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefreshesStaleAddressesInBackground() throws Exception {
+        final CountingDns delegate = new CountingDns();
+        final CachingDns dns = new CachingDns(delegate, 0, TimeUnit.MINUTES.toNanos(5), 0, 10);
+        try {
+            assertEquals("10.0.0.1", dns.lookup("host").get(0).getHostAddress());
+            // stale, so the old address is returned and a refresh started
+            assertEquals("10.0.0.1", dns.lookup("host").get(0).getHostAddress());
+            awaitLookups(delegate, 2);
+
+            // a failed refresh keeps the stale addresses
+            delegate.failing = true;
+            assertEquals("10.0.0.2", dns.lookup("host").get(0).getHostAddress());
+            awaitLookups(delegate, 3);
+            assertEquals("10.0.0.2", dns.lookup("host").get(0).getHostAddress());
+        } finally {
+            dns.shutdown();
+        }
+    }
+
+    @Test
+    public void testCachesFailures() throws Exception {
+        final CountingDns delegate = new CountingDns();
+        final CachingDns dns = new CachingDns(delegate, TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(5), TimeUnit.MINUTES.toNanos(1), 10);
+        try {
+            for (int i = 0; i < 3; i++) {
+                try {
+                    dns.lookup("unknown");
+                    fail();
+                } catch (final UnknownHostException e) {
+                    assertEquals("unknown", e.getMessage());
+                }
+            }
+            assertEquals(1, delegate.lookups.get());
+        } finally {
+            dns.shutdown();
+        }
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        final CachingDns dns = new CachingDns(new CountingDns(), TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(5), 0, 2);
+        try {
+            dns.lookup("a");
+            dns.lookup("b");
+            dns.lookup("c");
+            assertEquals(2, dns.size());
+        } finally {
+            dns.shutdown();
+        }
+    }
+}
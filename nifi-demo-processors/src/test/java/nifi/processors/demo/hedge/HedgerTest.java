@@ -0,0 +1,201 @@
+package nifi.processors.demo.hedge;
+
+import nifi.processors.demo.retry.RetryInterceptor;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HedgerTest {
+
+    private static final String HEDGE_HEADER = "X-Hedge";
+
+    private final MockWebServer server = new MockWebServer();
+    private final CountDownLatch canceled = new CountDownLatch(1);
+    private final Hedger hedger = new Hedger(TimeUnit.MILLISECONDS.toNanos(50), -1,
+            request -> request.newBuilder().header(HEDGE_HEADER, "true").build());
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .addInterceptor(chain -> {
+                try {
+                    return chain.proceed(chain.request());
+                } catch (final IOException e) {
+                    if (chain.call().isCanceled()) {
+                        canceled.countDown();
+                    }
+                    throw e;
+                }
+            })
+            .build();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        hedger.shutdown();
+        server.shutdown();
+    }
+
+    /**
+     * Answers the first request with the given delay and the hedge right away, with the leg as the body.
+     */
+    private void respond(long primaryDelayMillis) {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getHeader(HEDGE_HEADER) != null) {
+                    return new MockResponse().setBody("hedge");
+                }
+                return new MockResponse().setHeadersDelay(primaryDelayMillis, TimeUnit.MILLISECONDS).setBody("primary");
+            }
+        });
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/hedge"))
+                .tag(RetryInterceptor.Attempts.class, new RetryInterceptor.Attempts())
+                .build();
+    }
+
+    @Test
+    public void testFixedDelaySendsHedge() throws Exception {
+        respond(500);
+        final Result result = new Result();
+
+        final Hedger.HedgedCall call = hedger.enqueue(client, request(), result);
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertTrue(call.isHedged());
+        assertEquals(2, server.getRequestCount());
+        assertNull(server.takeRequest().getHeader(HEDGE_HEADER));
+        assertEquals("true", server.takeRequest().getHeader(HEDGE_HEADER));
+        result.response.get().close();
+    }
+
+    @Test
+    public void testPrimaryWins() throws Exception {
+        respond(0);
+        final Request request = request();
+        final Result result = new Result();
+
+        final Hedger.HedgedCall call = hedger.enqueue(client, request, result);
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        try (Response response = result.response.get()) {
+            assertEquals("primary", response.body().string());
+        }
+        assertFalse(call.isHedgeWon());
+        assertSame(request.tag(RetryInterceptor.Attempts.class), call.getAttempts());
+        // the hedge delay passes after the response, without a hedge being sent
+        Thread.sleep(100);
+        assertFalse(call.isHedged());
+        assertNull(call.getHedgeRequest());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testHedgeWinsAndPrimaryIsCanceled() throws Exception {
+        respond(5000);
+        final Request request = request();
+        final Result result = new Result();
+
+        final Hedger.HedgedCall call = hedger.enqueue(client, request, result);
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        try (Response response = result.response.get()) {
+            assertEquals("hedge", response.body().string());
+        }
+        assertTrue(call.isHedged());
+        assertTrue(call.isHedgeWon());
+        assertEquals("true", call.getHedgeRequest().header(HEDGE_HEADER));
+        assertTrue(canceled.await(5, TimeUnit.SECONDS));
+        // the hedge counts its retries on its own
+        assertNotNull(call.getAttempts());
+        assertNotSame(request.tag(RetryInterceptor.Attempts.class), call.getAttempts());
+        assertEquals(1, result.calls.get());
+    }
+
+    @Test
+    public void testFailsOnceBothLegsFailed() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+            }
+        });
+        // holds the first request back until the hedge has failed
+        final CountDownLatch hedgeSent = new CountDownLatch(1);
+        final OkHttpClient slowPrimary = client.newBuilder()
+                .addInterceptor(chain -> {
+                    if (chain.request().header(HEDGE_HEADER) == null) {
+                        try {
+                            hedgeSent.await(5, TimeUnit.SECONDS);
+                            Thread.sleep(100);
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    } else {
+                        hedgeSent.countDown();
+                    }
+                    return chain.proceed(chain.request());
+                })
+                .build();
+        final Result result = new Result();
+
+        final Hedger.HedgedCall call = hedger.enqueue(slowPrimary, request(), result);
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertTrue(call.isHedged());
+        assertFalse(call.isHedgeWon());
+        assertNotNull(result.failure.get());
+        // neither leg delivers anything more
+        Thread.sleep(100);
+        assertEquals(1, result.calls.get());
+    }
+
+    private static final class Result implements Callback {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicReference<Response> response = new AtomicReference<>();
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            this.response.set(response);
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            failure.set(e);
+            calls.incrementAndGet();
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package nifi.processors.demo.limit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testRejectsAtLimit() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(() -> new AimdLimit(2, 1, 10));
+
+        final ConcurrencyLimiter.Permit first = limiter.tryAcquire("a");
+        assertNotNull(first);
+        assertNotNull(limiter.tryAcquire("a"));
+        assertNull(limiter.tryAcquire("a"));
+
+        // hosts have their own limits
+        assertNotNull(limiter.tryAcquire("b"));
+
+        first.onIgnore();
+        first.onIgnore();
+        assertEquals(1, limiter.getInFlight("a"));
+        assertNotNull(limiter.tryAcquire("a"));
+    }
+
+    @Test
+    public void testAimdBacksOffOnDrops() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(() -> new AimdLimit(20, 1, 100));
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("a").onDropped();
+        }
+        assertTrue(limiter.getLimit("a") < 20);
+        assertEquals(0, limiter.getInFlight("a"));
+    }
+
+    @Test
+    public void testAimdGrowsOnlyWhenUsed() {
+        final AimdLimit limit = new AimdLimit(10, 1, 11);
+        assertEquals(10, limit.onSample(1, 1, false));
+        assertEquals(11, limit.onSample(1, 5, false));
+        assertEquals(11, limit.onSample(1, 11, false));
+    }
+
+    @Test
+    public void testVegasShrinksWhenQueueing() {
+        final VegasLimit limit = new VegasLimit(50, 100);
+        final long idle = TimeUnit.MILLISECONDS.toNanos(10);
+        limit.onSample(idle, 50, false);
+
+        // requests take three times as long as on an idle host, so most of them are waiting in a queue
+        int current = limit.getLimit();
+        for (int i = 0; i < 20; i++) {
+            current = limit.onSample(idle * 3, current, false);
+        }
+        assertTrue(current < 50);
+    }
+}
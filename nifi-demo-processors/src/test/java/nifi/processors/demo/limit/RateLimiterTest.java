@@ -0,0 +1,58 @@
+package nifi.processors.demo.limit;
+
+import okhttp3.Headers;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenRate() {
+        final RateLimiter limiter = new RateLimiter(10, 3);
+        final long now = System.nanoTime();
+
+        assertTrue(limiter.tryAcquire("key", now));
+        assertTrue(limiter.tryAcquire("key", now));
+        assertTrue(limiter.tryAcquire("key", now));
+        assertFalse(limiter.tryAcquire("key", now));
+
+        // every key has its own bucket
+        assertTrue(limiter.tryAcquire("other", now));
+
+        // one more token every 100 ms
+        assertFalse(limiter.tryAcquire("key", now + SECOND / 20));
+        assertTrue(limiter.tryAcquire("key", now + SECOND / 10));
+        assertFalse(limiter.tryAcquire("key", now + SECOND / 10));
+    }
+
+    @Test
+    public void testPause() {
+        final RateLimiter limiter = new RateLimiter(0, 1);
+        assertTrue(limiter.tryAcquire("key"));
+
+        limiter.pause("key", TimeUnit.MINUTES.toNanos(1));
+        assertFalse(limiter.tryAcquire("key"));
+        assertTrue(limiter.tryAcquire("other"));
+    }
+
+    @Test
+    public void testBackoffFromHeaders() {
+        final long now = System.currentTimeMillis();
+
+        assertEquals(2 * SECOND, RateLimiter.backoffNanos(429, Headers.of("Retry-After", "2"), now));
+        assertEquals(-1, RateLimiter.backoffNanos(200, Headers.of("Retry-After", "2"), now));
+
+        assertEquals(30 * SECOND, RateLimiter.backoffNanos(200, Headers.of("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", "30"), now));
+        final long resetAt = TimeUnit.MILLISECONDS.toSeconds(now) + 60;
+        assertEquals(60 * SECOND, RateLimiter.backoffNanos(200,
+                Headers.of("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", String.valueOf(resetAt)), now), SECOND);
+        assertEquals(-1, RateLimiter.backoffNanos(200, Headers.of("X-RateLimit-Remaining", "5", "X-RateLimit-Reset", "30"), now));
+    }
+}
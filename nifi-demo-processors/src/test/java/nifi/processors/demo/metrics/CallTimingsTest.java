@@ -0,0 +1,82 @@
+package nifi.processors.demo.metrics;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CallTimingsTest {
+
+    private static final Request REQUEST = new Request.Builder().url("http://localhost/latency").get().build();
+
+    private static Response response(int code) {
+        return new Response.Builder()
+                .request(REQUEST)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("status")
+                .build();
+    }
+
+    @Test
+    public void testNewConnection() {
+        final LatencyMetrics metrics = new LatencyMetrics();
+        final CallTimings timings = new CallTimings(metrics, "localhost");
+        final InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 80);
+
+        timings.callStart(null);
+        timings.dnsStart(null, "localhost");
+        timings.connectStart(null, address, Proxy.NO_PROXY);
+        timings.connectEnd(null, address, Proxy.NO_PROXY, Protocol.HTTP_1_1);
+        timings.responseHeadersStart(null);
+        timings.responseHeadersEnd(null, response(200));
+        timings.callEnd(null);
+
+        assertTrue(timings.getDnsConnectNanos() >= 0);
+        assertEquals(-1, timings.getTlsNanos());
+        assertTrue(timings.getTimeToFirstByteNanos() >= 0);
+        assertTrue(timings.getTotalNanos() >= timings.getTimeToFirstByteNanos());
+        assertEquals(1, metrics.size());
+
+        final Map<String, String> attributes = timings.toAttributes();
+        assertTrue(attributes.containsKey(CallTimings.LATENCY_DNS_CONNECT));
+        assertFalse(attributes.containsKey(CallTimings.LATENCY_TLS));
+        assertTrue(attributes.containsKey(CallTimings.LATENCY_TTFB));
+        assertTrue(attributes.containsKey(CallTimings.LATENCY_TOTAL));
+    }
+
+    @Test
+    public void testPooledConnection() {
+        final LatencyMetrics metrics = new LatencyMetrics();
+        final CallTimings timings = new CallTimings(metrics, "localhost");
+
+        timings.callStart(null);
+        timings.responseHeadersStart(null);
+        timings.responseHeadersEnd(null, response(503));
+        timings.callEnd(null);
+
+        assertEquals(-1, timings.getDnsConnectNanos());
+        assertFalse(timings.toAttributes().containsKey(CallTimings.LATENCY_DNS_CONNECT));
+
+        // a second call with the same request starts from scratch and lands in another status class
+        timings.callStart(null);
+        timings.callFailed(null, null);
+        assertEquals(-1, timings.getTimeToFirstByteNanos());
+        assertEquals(2, metrics.size());
+    }
+
+    @Test
+    public void testStatusClass() {
+        assertEquals("2xx", CallTimings.statusClass(204));
+        assertEquals("5xx", CallTimings.statusClass(503));
+        assertEquals("failed", CallTimings.statusClass(0));
+    }
+}
@@ -0,0 +1,79 @@
+package nifi.processors.demo.metrics;
+
+import nifi.processors.demo.MyProcessor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyMetricsTest {
+
+    private static final String GAUGE = "Latency total p50 (us) localhost 2xx";
+
+    private TestRunner runner;
+    private ProcessSession session;
+    private LatencyMetrics metrics;
+
+    @Before
+    public void init() {
+        runner = TestRunners.newTestRunner(MyProcessor.class);
+        session = runner.getProcessSessionFactory().createSession();
+        metrics = new LatencyMetrics();
+        metrics.setReportInterval(0, TimeUnit.MILLISECONDS);
+    }
+
+    private void call(String host) throws InterruptedException {
+        final Request request = new Request.Builder().url("http://" + host + "/latency").get().build();
+        final CallTimings timings = new CallTimings(metrics, host);
+        timings.callStart(null);
+        timings.responseHeadersStart(null);
+        // long enough for the percentiles not to be zero
+        TimeUnit.MILLISECONDS.sleep(1);
+        timings.responseHeadersEnd(null, new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .build());
+        timings.callEnd(null);
+    }
+
+    private void report() {
+        metrics.reportIfDue(session, runner.getLogger());
+        session.commit();
+    }
+
+    @Test
+    public void testIdleTargetIsDroppedAndItsGaugesRetracted() throws InterruptedException {
+        call("localhost");
+        report();
+        assertEquals(1, metrics.size());
+        assertEquals(Long.valueOf(1), runner.getCounterValue("Calls localhost 2xx"));
+        assertTrue(runner.getCounterValue(GAUGE) >= 1000);
+
+        report();
+        assertEquals(0, metrics.size());
+        assertEquals(Long.valueOf(0), runner.getCounterValue(GAUGE));
+        assertEquals(Long.valueOf(1), runner.getCounterValue("Calls localhost 2xx"));
+    }
+
+    @Test
+    public void testHostsBeyondTheMostTargetsAreRecordedTogether() throws InterruptedException {
+        for (int i = 0; i < LatencyMetrics.MAX_TARGETS + 10; i++) {
+            call("host" + i);
+        }
+        assertEquals(LatencyMetrics.MAX_TARGETS + 1, metrics.size());
+
+        report();
+        assertEquals(Long.valueOf(10), runner.getCounterValue("Calls " + LatencyMetrics.OTHER_HOSTS + " 2xx"));
+    }
+}
@@ -0,0 +1,103 @@
+package nifi.processors.demo.model;
+
+import nifi.processors.demo.MyProcessor;
+import nifi.processors.demo.compress.ContentCoding;
+import okhttp3.MediaType;
+import okio.Buffer;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlowFileRequestBodyTest {
+
+    private static final MediaType TEXT = MediaType.parse("text/plain");
+    private static final String CONTENT = new String(new char[20]).replace("\0", "The quick brown fox jumps over the lazy dog. ");
+
+    private ProcessSession session;
+    private FlowFile flowFile;
+
+    @Before
+    public void init() {
+        final TestRunner runner = TestRunners.newTestRunner(MyProcessor.class);
+        runner.enqueue(CONTENT);
+        session = runner.getProcessSessionFactory().createSession();
+        flowFile = session.get();
+    }
+
+    @Test
+    public void testStreamedBodyCanBeWrittenAgain() throws IOException {
+        final FlowFileRequestBody body = new FlowFileRequestBody(session, flowFile, TEXT, false, 8);
+        assertFalse(body.isOneShot());
+        assertEquals(CONTENT.length(), body.contentLength());
+
+        for (int i = 0; i < 2; i++) {
+            final Buffer sink = new Buffer();
+            body.writeTo(sink);
+            assertEquals(CONTENT, sink.readUtf8());
+        }
+        assertEquals(CONTENT.length(), body.getBytesWritten());
+        assertEquals(-1, body.getCompressedBytes());
+    }
+
+    @Test
+    public void testChunkedBodyHasNoLength() {
+        assertEquals(-1, new FlowFileRequestBody(session, flowFile, TEXT, true, 8).contentLength());
+    }
+
+    @Test
+    public void testCompressedBodyCountsBothSizes() throws IOException {
+        final FlowFileRequestBody body = new FlowFileRequestBody(session, flowFile, TEXT, false, 8192, ContentCoding.GZIP, -1, false);
+        assertEquals(-1, body.contentLength());
+
+        final Buffer sink = new Buffer();
+        body.writeTo(sink);
+        final long compressedSize = sink.size();
+        try (InputStream in = ContentCoding.GZIP.decode(sink.inputStream())) {
+            assertEquals(CONTENT, new String(readAll(in), StandardCharsets.UTF_8));
+        }
+        assertEquals(CONTENT.length(), body.getBytesWritten());
+        assertEquals(compressedSize, body.getCompressedBytes());
+        assertTrue(body.getCompressedBytes() < body.getBytesWritten());
+    }
+
+    @Test
+    public void testOneShotBodyStaysOneShotAfterClose() throws IOException {
+        final FlowFileRequestBody body = new FlowFileRequestBody(session, flowFile, TEXT, false, 8, null, -1, true);
+        assertTrue(body.isOneShot());
+
+        body.open();
+        final Buffer sink = new Buffer();
+        body.writeTo(sink);
+        body.close();
+
+        assertEquals(CONTENT, sink.readUtf8());
+        assertTrue(body.isOneShot());
+    }
+
+    @Test(expected = IOException.class)
+    public void testOneShotBodyIsNotWrittenWithoutBeingOpened() throws IOException {
+        new FlowFileRequestBody(session, flowFile, TEXT, false, 8, null, -1, true).writeTo(new Buffer());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOnlyOneShotBodiesAreOpened() {
+        new FlowFileRequestBody(session, flowFile, TEXT, false, 8).open();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        final Buffer buffer = new Buffer();
+        buffer.readFrom(in);
+        return buffer.readByteArray();
+    }
+}
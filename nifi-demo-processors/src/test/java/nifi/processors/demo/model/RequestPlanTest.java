@@ -0,0 +1,192 @@
+package nifi.processors.demo.model;
+
+import nifi.processors.demo.MyProcessor;
+import nifi.processors.demo.compress.ContentCoding;
+import nifi.processors.demo.properties.Descriptions;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The plan has to produce the same requests as evaluating every property against every FlowFile, which is what the
+ * processor did before the plan existed.
+ */
+public class RequestPlanTest {
+
+    private static final Map<String, String> EXCLUDED_HEADERS = Collections.singletonMap("Trusted Hostname", "excluded");
+
+    private TestRunner runner;
+    private final Set<String> dynamicPropertyNames = new LinkedHashSet<>();
+
+    @Before
+    public void init() {
+        runner = TestRunners.newTestRunner(MyProcessor.class);
+        runner.setProperty(Descriptions.PROP_URL, "http://localhost/");
+    }
+
+    private void setDynamicProperty(String name, String value) {
+        runner.setProperty(name, value);
+        dynamicPropertyNames.add(name);
+    }
+
+    private RequestPlan compile() {
+        return RequestPlan.compile(runner.getProcessContext(), dynamicPropertyNames, EXCLUDED_HEADERS);
+    }
+
+    private List<FlowFile> flowFiles(Map<String, String> first, Map<String, String> second) {
+        runner.enqueue("", first);
+        runner.enqueue("", second);
+        final ProcessSession session = runner.getProcessSessionFactory().createSession();
+        return Arrays.asList(session.get(), session.get());
+    }
+
+    private static Map<String, String> attributes(String... namesAndValues) {
+        final Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            attributes.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return attributes;
+    }
+
+    private String legacyMethod(FlowFile flowFile) {
+        return trimToEmpty(runner.getProcessContext().getProperty(Descriptions.PROP_METHOD).evaluateAttributeExpressions(flowFile).getValue()).toUpperCase();
+    }
+
+    private MediaType legacyContentType(FlowFile flowFile) {
+        final String contentType = runner.getProcessContext().getProperty(Descriptions.PROP_CONTENT_TYPE).evaluateAttributeExpressions(flowFile).getValue();
+        return MediaType.parse(StringUtils.isBlank(contentType) ? Descriptions.DEFAULT_CONTENT_TYPE : contentType);
+    }
+
+    private Map<String, List<String>> legacyHeaders(FlowFile flowFile) {
+        final ProcessContext context = runner.getProcessContext();
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final String authUser = trimToEmpty(context.getProperty(Descriptions.PROP_BASIC_AUTH_USERNAME).getValue());
+        if (!authUser.isEmpty() && "false".equalsIgnoreCase(context.getProperty(Descriptions.PROP_DIGEST_AUTH).getValue())) {
+            add(headers, "UserName", authUser);
+            add(headers, "PassWord", trimToEmpty(context.getProperty(Descriptions.PROP_BASIC_AUTH_PASSWORD).getValue()));
+        }
+        for (String headerKey : dynamicPropertyNames) {
+            if (!EXCLUDED_HEADERS.containsKey(headerKey)) {
+                add(headers, headerKey, context.getProperty(headerKey).evaluateAttributeExpressions(flowFile).getValue());
+            }
+        }
+        return headers;
+    }
+
+    private Map<String, List<String>> planHeaders(RequestPlan plan, FlowFile flowFile) {
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Headers constant = plan.getConstantHeaders();
+        for (int i = 0; i < constant.size(); i++) {
+            add(headers, constant.name(i), constant.value(i));
+        }
+        for (String headerKey : plan.getDynamicHeaderNames()) {
+            add(headers, headerKey, runner.getProcessContext().getProperty(headerKey).evaluateAttributeExpressions(flowFile).getValue());
+        }
+        return headers;
+    }
+
+    private static void add(Map<String, List<String>> headers, String name, String value) {
+        headers.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+    }
+
+    @Test
+    public void testStaticMethodAndContentType() {
+        runner.setProperty(Descriptions.PROP_METHOD, " post ");
+        runner.setProperty(Descriptions.PROP_CONTENT_TYPE, "text/plain; charset=UTF-8");
+        final RequestPlan plan = compile();
+
+        for (FlowFile flowFile : flowFiles(attributes(), attributes("mime.type", "application/json"))) {
+            assertEquals("POST", plan.method(flowFile));
+            assertEquals(legacyMethod(flowFile), plan.method(flowFile));
+            assertEquals(legacyContentType(flowFile), plan.contentType(flowFile));
+        }
+    }
+
+    @Test
+    public void testMethodAndContentTypeWithExpressionLanguage() {
+        runner.setProperty(Descriptions.PROP_METHOD, "${method}");
+        runner.setProperty(Descriptions.PROP_CONTENT_TYPE, "${mime.type}");
+        final RequestPlan plan = compile();
+
+        final List<FlowFile> flowFiles = flowFiles(attributes("method", "put", "mime.type", "application/json"), attributes("method", "DELETE"));
+        assertEquals("PUT", plan.method(flowFiles.get(0)));
+        assertEquals(MediaType.parse("application/json"), plan.contentType(flowFiles.get(0)));
+        assertEquals("DELETE", plan.method(flowFiles.get(1)));
+        assertEquals(MediaType.parse(Descriptions.DEFAULT_CONTENT_TYPE), plan.contentType(flowFiles.get(1)));
+        for (FlowFile flowFile : flowFiles) {
+            assertEquals(legacyMethod(flowFile), plan.method(flowFile));
+            assertEquals(legacyContentType(flowFile), plan.contentType(flowFile));
+        }
+    }
+
+    @Test
+    public void testConstantAndExpressionHeaders() {
+        runner.setProperty(Descriptions.PROP_BASIC_AUTH_USERNAME, "user");
+        runner.setProperty(Descriptions.PROP_BASIC_AUTH_PASSWORD, "secret");
+        setDynamicProperty("X-Static", "constant");
+        setDynamicProperty("X-Tenant", "${tenant}");
+        setDynamicProperty("Trusted Hostname", "ignored");
+        final RequestPlan plan = compile();
+
+        assertEquals("constant", plan.getConstantHeaders().get("X-Static"));
+        assertEquals("user", plan.getConstantHeaders().get("UserName"));
+        assertNull(plan.getConstantHeaders().get("Trusted Hostname"));
+        assertEquals(Collections.singletonList("X-Tenant"), plan.getDynamicHeaderNames());
+
+        for (FlowFile flowFile : flowFiles(attributes("tenant", "a"), attributes("tenant", "b"))) {
+            assertEquals(legacyHeaders(flowFile), planHeaders(plan, flowFile));
+        }
+    }
+
+    @Test
+    public void testDigestAuthSendsNoCredentialHeaders() {
+        runner.setProperty(Descriptions.PROP_BASIC_AUTH_USERNAME, "user");
+        runner.setProperty(Descriptions.PROP_BASIC_AUTH_PASSWORD, "secret");
+        runner.setProperty(Descriptions.PROP_DIGEST_AUTH, "true");
+        final RequestPlan plan = compile();
+
+        assertNull(plan.getConstantHeaders().get("UserName"));
+        for (FlowFile flowFile : flowFiles(attributes(), attributes())) {
+            assertEquals(legacyHeaders(flowFile), planHeaders(plan, flowFile));
+        }
+    }
+
+    @Test
+    public void testAcceptEncoding() {
+        runner.setProperty(Descriptions.PROP_ACCEPT_ENCODING, " zstd ,gzip");
+        final RequestPlan plan = compile();
+
+        assertEquals("zstd, gzip", plan.getConstantHeaders().get("Accept-Encoding"));
+        assertEquals(Arrays.asList(ContentCoding.ZSTD, ContentCoding.GZIP), plan.getAcceptEncodings());
+    }
+
+    @Test
+    public void testNoAcceptEncodingLeavesGzipToOkHttp() {
+        final RequestPlan plan = compile();
+
+        assertNull(plan.getConstantHeaders().get("Accept-Encoding"));
+        assertTrue(plan.getAcceptEncodings().isEmpty());
+    }
+}
@@ -0,0 +1,30 @@
+package nifi.processors.demo.properties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NumberRangeValidatorTest {
+
+    @Test
+    public void testPositive() {
+        final NumberRangeValidator positive = new NumberRangeValidator(0, Double.POSITIVE_INFINITY);
+        assertTrue(positive.validate("Rate Limit", "0.5", null).isValid());
+        assertTrue(positive.validate("Rate Limit", "1000", null).isValid());
+        assertFalse(positive.validate("Rate Limit", "0", null).isValid());
+        assertFalse(positive.validate("Rate Limit", "-1", null).isValid());
+        assertFalse(positive.validate("Rate Limit", "fast", null).isValid());
+        assertFalse(positive.validate("Rate Limit", "Infinity", null).isValid());
+        assertFalse(positive.validate("Rate Limit", "NaN", null).isValid());
+    }
+
+    @Test
+    public void testPercentile() {
+        final NumberRangeValidator percentile = new NumberRangeValidator(0, 100);
+        assertTrue(percentile.validate("Hedge Percentile", "95", null).isValid());
+        assertTrue(percentile.validate("Hedge Percentile", "100", null).isValid());
+        assertFalse(percentile.validate("Hedge Percentile", "0", null).isValid());
+        assertFalse(percentile.validate("Hedge Percentile", "100.1", null).isValid());
+    }
+}
@@ -0,0 +1,53 @@
+package nifi.processors.demo.record;
+
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.record.MapRecord;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class RecordResultTest {
+
+    private static final RecordSchema INPUT = new SimpleRecordSchema(Arrays.asList(
+            new RecordField("id", RecordFieldType.INT.getDataType()),
+            new RecordField("http", RecordFieldType.STRING.getDataType())));
+
+    @Test
+    public void testResultFieldReplacesFieldOfTheSameName() {
+        final RecordSchema enriched = RecordResult.enrichedSchema(INPUT, "http", RecordResult.schema(null));
+        assertEquals(Arrays.asList("id", "http"), enriched.getFieldNames());
+        assertEquals(RecordFieldType.RECORD, enriched.getDataType("http").get().getFieldType());
+    }
+
+    @Test
+    public void testFailedRequestIsWrittenWithError() {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("id", 7);
+        values.put("http", "stale");
+        final Record record = new MapRecord(INPUT, values);
+
+        final RecordResult result = RecordResult.failed("http://localhost/7", "java.net.ConnectException: refused");
+        assertFalse(result.isSuccess());
+
+        final RecordSchema resultSchema = RecordResult.schema(null);
+        final RecordSchema enriched = RecordResult.enrichedSchema(INPUT, "http", resultSchema);
+        final Record written = result.enrich(record, enriched, "http", resultSchema, result.getBodyAsString());
+
+        assertEquals(7, written.getValue("id"));
+        final Record http = (Record) written.getValue("http");
+        assertEquals("http://localhost/7", http.getValue(RecordResult.URL));
+        assertNull(http.getValue(RecordResult.STATUS_CODE));
+        assertNull(http.getValue(RecordResult.BODY));
+        assertEquals("java.net.ConnectException: refused", http.getValue(RecordResult.ERROR));
+    }
+}
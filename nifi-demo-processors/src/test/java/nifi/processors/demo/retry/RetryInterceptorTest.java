@@ -0,0 +1,107 @@
+package nifi.processors.demo.retry;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.BufferedSink;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetryInterceptorTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        final RetryPolicy policy = new RetryPolicy(3, 0, 0, Collections.singletonList(503), Collections.emptyList(), false);
+        client = new OkHttpClient.Builder().addInterceptor(new RetryInterceptor(policy)).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testRetriesUntilSuccess() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("done"));
+
+        final RetryInterceptor.Attempts attempts = new RetryInterceptor.Attempts();
+        final Request request = new Request.Builder().url(server.url("/retry"))
+                .put(RequestBody.create("body", MediaType.parse("text/plain")))
+                .tag(RetryInterceptor.Attempts.class, attempts)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("done", response.body().string());
+        }
+        assertEquals(2, attempts.getRetries());
+        assertEquals(3, server.getRequestCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("body", server.takeRequest().getBody().readUtf8());
+        }
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        final RetryInterceptor.Attempts attempts = new RetryInterceptor.Attempts();
+        final Request request = new Request.Builder().url(server.url("/retry"))
+                .tag(RetryInterceptor.Attempts.class, attempts)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(2, attempts.getRetries());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testOneShotBodyIsNotRetried() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(200));
+
+        final RetryInterceptor.Attempts attempts = new RetryInterceptor.Attempts();
+        final Request request = new Request.Builder().url(server.url("/retry"))
+                .put(new RequestBody() {
+                    @Override
+                    public MediaType contentType() {
+                        return MediaType.parse("text/plain");
+                    }
+
+                    @Override
+                    public boolean isOneShot() {
+                        return true;
+                    }
+
+                    @Override
+                    public void writeTo(BufferedSink sink) throws IOException {
+                        sink.writeUtf8("body");
+                    }
+                })
+                .tag(RetryInterceptor.Attempts.class, attempts)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(0, attempts.getRetries());
+        assertEquals(1, server.getRequestCount());
+    }
+}
@@ -0,0 +1,66 @@
+package nifi.processors.demo.retry;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    private static final Request GET = new Request.Builder().url("http://localhost/retry").get().build();
+    private static final Request POST = new Request.Builder().url("http://localhost/retry")
+            .post(RequestBody.create(new byte[0], MediaType.parse("text/plain"))).build();
+
+    private static final RetryPolicy POLICY = new RetryPolicy(3, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1),
+            Arrays.asList(502, 503, 504), Collections.singletonList(SocketException.class.getName()), false);
+
+    private static Response response(Request request, int code) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("status")
+                .build();
+    }
+
+    @Test
+    public void testRetryableOutcomes() {
+        assertTrue(POLICY.shouldRetry(GET, 1, response(GET, 503), null));
+        assertFalse(POLICY.shouldRetry(GET, 1, response(GET, 500), null));
+        assertFalse(POLICY.shouldRetry(GET, 1, response(GET, 200), null));
+
+        // subclasses of the configured exceptions are retried as well
+        assertTrue(POLICY.shouldRetry(GET, 1, null, new ConnectException("refused")));
+        assertFalse(POLICY.shouldRetry(GET, 1, null, new IllegalStateException()));
+    }
+
+    @Test
+    public void testAttemptsAndMethods() {
+        assertTrue(POLICY.shouldRetry(GET, 2, response(GET, 503), null));
+        assertFalse(POLICY.shouldRetry(GET, 3, response(GET, 503), null));
+        assertFalse(POLICY.shouldRetry(POST, 1, response(POST, 503), null));
+    }
+
+    @Test
+    public void testBackoffIsCapped() {
+        for (int retry = 1; retry < 64; retry++) {
+            final long backoff = POLICY.backoffNanos(retry);
+            assertTrue(backoff >= 0);
+            assertTrue(backoff <= TimeUnit.SECONDS.toNanos(1));
+            if (retry == 1) {
+                assertTrue(backoff <= TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+}
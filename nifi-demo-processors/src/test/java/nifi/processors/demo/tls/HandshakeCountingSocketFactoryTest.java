@@ -0,0 +1,54 @@
+package nifi.processors.demo.tls;
+
+import org.apache.nifi.processor.ProcessSession;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HandshakeCountingSocketFactoryTest {
+
+    private static SSLSession session(String host, long creationTime) {
+        return (SSLSession) Proxy.newProxyInstance(SSLSession.class.getClassLoader(), new Class<?>[]{SSLSession.class},
+                (proxy, method, args) -> method.getName().equals("getPeerHost") ? host : creationTime);
+    }
+
+    private static Map<String, Long> publish(HandshakeCountingSocketFactory factory) {
+        final Map<String, Long> counters = new HashMap<>();
+        factory.publish((ProcessSession) Proxy.newProxyInstance(ProcessSession.class.getClassLoader(), new Class<?>[]{ProcessSession.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("adjustCounter")) {
+                        counters.merge((String) args[0], (Long) args[1], Long::sum);
+                    }
+                    return null;
+                }));
+        return counters;
+    }
+
+    @Test
+    public void testCountsFullAndResumedHandshakes() throws Exception {
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+        final HandshakeCountingSocketFactory factory = new HandshakeCountingSocketFactory(sslContext.getSocketFactory());
+
+        factory.record(session("a", 1000), 1000);
+        factory.record(session("a", 500), 1000);
+        factory.record(session("a", 700), 1000);
+        factory.record(session("b", 2000), 1000);
+
+        final Map<String, Long> counters = publish(factory);
+        assertEquals(Long.valueOf(1), counters.get("TLS Full Handshakes a"));
+        assertEquals(Long.valueOf(2), counters.get("TLS Resumed Handshakes a"));
+        assertEquals(Long.valueOf(1), counters.get("TLS Full Handshakes b"));
+        assertEquals(3, counters.size());
+
+        // published counts are not published again
+        assertTrue(publish(factory).isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package nifi.processors.demo.tls;
+
+import org.apache.nifi.ssl.SSLContextService;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SharedTlsContextsTest {
+
+    private static SSLContextService service(String identifier) {
+        return (SSLContextService) Proxy.newProxyInstance(SSLContextService.class.getClassLoader(), new Class<?>[]{SSLContextService.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getIdentifier":
+                            return identifier;
+                        case "isTrustStoreConfigured":
+                            return false;
+                        case "createSSLContext":
+                            final SSLContext sslContext = SSLContext.getInstance("TLS");
+                            sslContext.init(null, null, null);
+                            return sslContext;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testSameServiceSharesOneContext() throws Exception {
+        final SSLContextService service = service("ssl");
+        final SharedTlsContexts.Lease first = SharedTlsContexts.acquire(new SharedTlsContexts.Settings("ssl", 100, 3600), service);
+        final SharedTlsContexts.Lease second = SharedTlsContexts.acquire(new SharedTlsContexts.Settings("ssl", 100, 3600), service);
+        final SharedTlsContexts.Lease other = SharedTlsContexts.acquire(new SharedTlsContexts.Settings("ssl", 10, 3600), service);
+
+        assertSame(first, second);
+        assertSame(first.getSocketFactory(), second.getSocketFactory());
+        assertNotSame(first, other);
+        assertEquals(2, SharedTlsContexts.size());
+
+        SharedTlsContexts.release(first);
+        assertEquals(2, SharedTlsContexts.size());
+        SharedTlsContexts.release(second);
+        SharedTlsContexts.release(other);
+        assertEquals(0, SharedTlsContexts.size());
+
+        // once released, the next processor gets a fresh context
+        final SharedTlsContexts.Lease fresh = SharedTlsContexts.acquire(new SharedTlsContexts.Settings("ssl", 100, 3600), service);
+        assertNotSame(first, fresh);
+        SharedTlsContexts.release(fresh);
+    }
+}
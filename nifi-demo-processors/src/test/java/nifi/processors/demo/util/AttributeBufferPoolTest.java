@@ -0,0 +1,53 @@
+package nifi.processors.demo.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AttributeBufferPoolTest {
+
+    @Test
+    public void testBufferIsReusedOnSameThread() throws IOException {
+        AttributeBufferPool pool = new AttributeBufferPool();
+
+        AttributeBufferPool.AttributeBuffer first = pool.acquire(16);
+        assertFalse(first.isHit());
+        first.getStream().readFrom(new ByteArrayInputStream("first body".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("first body", first.decode(StandardCharsets.UTF_8));
+        first.release();
+
+        AttributeBufferPool.AttributeBuffer second = pool.acquire(8);
+        assertSame(first, second);
+        assertTrue(second.isHit());
+        second.getStream().readFrom(new ByteArrayInputStream("truncated body".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("truncate", second.decode(StandardCharsets.UTF_8));
+        second.release();
+    }
+
+    @Test
+    public void testNestedAcquireIsNotShared() {
+        AttributeBufferPool pool = new AttributeBufferPool();
+        AttributeBufferPool.AttributeBuffer outer = pool.acquire(16);
+        AttributeBufferPool.AttributeBuffer inner = pool.acquire(16);
+        assertNotSame(outer, inner);
+        inner.release();
+        outer.release();
+    }
+
+    @Test
+    public void testDecodeMatchesStringConstructorOnTruncatedMultiByteInput() throws IOException {
+        byte[] body = "h\u00e9llo".getBytes(StandardCharsets.UTF_8);
+        AttributeBufferPool.AttributeBuffer buffer = new AttributeBufferPool().acquire(2);
+        buffer.getStream().readFrom(new ByteArrayInputStream(body));
+        assertEquals(new String(body, 0, 2, StandardCharsets.UTF_8), buffer.decode(StandardCharsets.UTF_8));
+        buffer.release();
+    }
+}
@@ -0,0 +1,57 @@
+package nifi.processors.demo.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedConnectionRegistryTest {
+
+    @Test
+    public void testSameSettingsShareOnePool() {
+        SharedConnectionRegistry.Settings settings = new SharedConnectionRegistry.Settings(5, 300_000L, 64, 5);
+        SharedConnectionRegistry.Lease first = SharedConnectionRegistry.acquire(settings);
+        SharedConnectionRegistry.Lease second = SharedConnectionRegistry.acquire(new SharedConnectionRegistry.Settings(5, 300_000L, 64, 5));
+        SharedConnectionRegistry.Lease other = SharedConnectionRegistry.acquire(new SharedConnectionRegistry.Settings(10, 300_000L, 64, 5));
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, SharedConnectionRegistry.size());
+
+        SharedConnectionRegistry.release(first);
+        assertEquals(2, SharedConnectionRegistry.size());
+        SharedConnectionRegistry.release(second);
+        SharedConnectionRegistry.release(other);
+        assertEquals(0, SharedConnectionRegistry.size());
+        assertTrue(first.getDispatcher().executorService().isShutdown());
+    }
+
+    @Test
+    public void testPrivateLeaseIsNotShared() {
+        SharedConnectionRegistry.Settings settings = new SharedConnectionRegistry.Settings(5, 300_000L, 64, 5);
+        SharedConnectionRegistry.Lease owned = SharedConnectionRegistry.createPrivate(settings);
+        SharedConnectionRegistry.Lease shared = SharedConnectionRegistry.acquire(settings);
+
+        assertNotSame(owned, shared);
+        SharedConnectionRegistry.release(owned);
+        assertEquals(1, SharedConnectionRegistry.size());
+        SharedConnectionRegistry.release(shared);
+        assertEquals(0, SharedConnectionRegistry.size());
+    }
+
+    @Test
+    public void testVirtualThreadsAreNotSharedWithPlatformThreads() {
+        SharedConnectionRegistry.Lease platform = SharedConnectionRegistry.acquire(new SharedConnectionRegistry.Settings(5, 300_000L, 64, 5, false));
+        SharedConnectionRegistry.Lease virtual = SharedConnectionRegistry.acquire(new SharedConnectionRegistry.Settings(5, 300_000L, 64, 5, true));
+
+        assertNotSame(platform, virtual);
+        assertFalse(platform.isVirtualThreads());
+        assertEquals(VirtualThreads.isSupported(), virtual.isVirtualThreads());
+        SharedConnectionRegistry.release(platform);
+        SharedConnectionRegistry.release(virtual);
+        assertEquals(0, SharedConnectionRegistry.size());
+    }
+}
@@ -0,0 +1,42 @@
+package nifi.processors.demo.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class TeeInputStreamTest {
+
+    @Test
+    public void testSinglePassFillsBoundedBranch() throws IOException {
+        byte[] body = "0123456789".getBytes(StandardCharsets.UTF_8);
+        SoftLimitBoundedByteArrayOutputStream branch = new SoftLimitBoundedByteArrayOutputStream(4);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        try (InputStream in = new TeeInputStream(new ByteArrayInputStream(body), branch)) {
+            byte[] buffer = new byte[3];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+        }
+
+        assertEquals("0123456789", new String(content.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals("0123", new String(branch.getBuffer(), 0, branch.size(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSkippedBytesReachBranch() throws IOException {
+        ByteArrayOutputStream branch = new ByteArrayOutputStream();
+        try (InputStream in = new TeeInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3}), branch)) {
+            assertEquals(2, in.skip(2));
+            assertEquals(3, in.read());
+        }
+        assertEquals(3, branch.size());
+    }
+}
@@ -0,0 +1,30 @@
+package nifi.processors.demo.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void testExecutorMatchesJvmSupport() throws Exception {
+        final ExecutorService executor = VirtualThreads.newExecutor("test ");
+        if (!VirtualThreads.isSupported()) {
+            assertNull(executor);
+            return;
+        }
+
+        try {
+            final Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+            assertEquals("test 0", thread.getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}